@@ -0,0 +1,159 @@
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/*
+    Draws the watch face into an offscreen canvas the size of a watch screen, checks a frame
+    allocates nothing and the dial layers are only built when something changes, and measures
+    how long a frame takes with and without the layers at typical watch resolutions.
+ */
+public class TestWatchFaceRenderer extends AndroidTestCase {
+    public static final String LOG_TAG = TestWatchFaceRenderer.class.getSimpleName();
+
+    private static final int SIZE = 320;
+    // Small round, Moto 360, and large square screens
+    private static final int[] RESOLUTIONS = {280, 320, 400};
+    private static final int FRAMES = 600;
+    // A frame a second is the budget; a frame should take a tiny fraction of it
+    private static final long MAX_FRAME_NANOS = 16 * 1000 * 1000;
+
+    private WatchFaceRenderer mRenderer;
+    private Canvas mCanvas;
+    private Bitmap mSurface;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRenderer = new WatchFaceRenderer(mContext.getResources());
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+        mRenderer.setTheme(Constants.WeatherTypes.Rainy);
+        mRenderer.setWeather(BitmapFactory.decodeResource(mContext.getResources(),
+                R.drawable.ic_rain), "21.5", "12.0");
+        mSurface = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mSurface);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mSurface.recycle();
+        super.tearDown();
+    }
+
+    public void testFrameAllocatesNothing() {
+        // Warm up, so nothing loaded lazily on the first frame counts
+        drawFrames(10);
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        try {
+            drawFrames(FRAMES);
+            int allocations = Debug.getThreadAllocCount();
+            assertEquals("Error: " + FRAMES + " frames made " + allocations + " allocations", 0,
+                    allocations);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    public void testAmbientFrameAllocatesNothing() {
+        mRenderer.setLowBitAmbient(true);
+        mRenderer.setAmbient(true);
+        drawFrames(10);
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        try {
+            drawFrames(FRAMES);
+            assertEquals(0, Debug.getThreadAllocCount());
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    public void testResizeKeepsIcon() {
+        drawFrames(1);
+        mRenderer.setTheme(Constants.WeatherTypes.Clear);
+        mRenderer.setSurfaceSize(SIZE * 2, SIZE * 2);
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+        // The icon is rescaled from the original, which must not have been recycled with the
+        // old scaled copy; drawing a recycled bitmap throws
+        drawFrames(1);
+    }
+
+    public void testLayersBuiltOnlyOnChange() {
+        drawFrames(FRAMES);
+        assertEquals("Error: The dial was rebuilt while nothing changed", 1,
+                mRenderer.getLayerBuilds());
+
+        mRenderer.setAmbient(true);
+        drawFrames(FRAMES);
+        mRenderer.setAmbient(false);
+        drawFrames(FRAMES);
+        // The interactive layer was still good after ambient mode
+        assertEquals(2, mRenderer.getLayerBuilds());
+
+        mRenderer.setTheme(Constants.WeatherTypes.Snowing);
+        drawFrames(FRAMES);
+        assertEquals(3, mRenderer.getLayerBuilds());
+
+        mRenderer.setWeather(null, "3.0", "-2.0");
+        drawFrames(FRAMES);
+        assertEquals(4, mRenderer.getLayerBuilds());
+    }
+
+    public void testBenchmarkLayers() {
+        for (int size : RESOLUTIONS) {
+            Bitmap surface = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(surface);
+            mRenderer.setSurfaceSize(size, size);
+            // Warm up both paths, and build the layer
+            for (int i = 0; i < 10; i++) {
+                mRenderer.drawWithoutLayers(canvas, 10, 10, i);
+                mRenderer.draw(canvas, 10, 10, i);
+            }
+
+            long start = Debug.threadCpuTimeNanos();
+            for (int i = 0; i < FRAMES; i++) {
+                mRenderer.drawWithoutLayers(canvas, (i / 3600) % 24, (i / 60) % 60, i % 60);
+            }
+            long withoutLayersNanos = (Debug.threadCpuTimeNanos() - start) / FRAMES;
+
+            start = Debug.threadCpuTimeNanos();
+            for (int i = 0; i < FRAMES; i++) {
+                mRenderer.draw(canvas, (i / 3600) % 24, (i / 60) % 60, i % 60);
+            }
+            long layeredNanos = (Debug.threadCpuTimeNanos() - start) / FRAMES;
+            surface.recycle();
+
+            Log.i(LOG_TAG, size + "x" + size + ": " + (withoutLayersNanos / 1000)
+                    + "us CPU per frame redrawing the dial, " + (layeredNanos / 1000)
+                    + "us with the layer");
+            assertTrue("Error: A layered frame at " + size + "x" + size + " took "
+                    + (layeredNanos / 1000) + "us", layeredNanos < MAX_FRAME_NANOS);
+        }
+    }
+
+    public void testBenchmarkFrame() {
+        drawFrames(10);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        drawFrames(FRAMES);
+        long frameNanos = (SystemClock.elapsedRealtimeNanos() - start) / FRAMES;
+
+        Log.i(LOG_TAG, "Watch face frame: " + (frameNanos / 1000) + "us");
+        assertTrue("Error: A frame took " + (frameNanos / 1000) + "us",
+                frameNanos < MAX_FRAME_NANOS);
+    }
+
+    private void drawFrames(int count) {
+        for (int i = 0; i < count; i++) {
+            mRenderer.draw(mCanvas, (i / 3600) % 24, (i / 60) % 60, i % 60);
+        }
+    }
+}
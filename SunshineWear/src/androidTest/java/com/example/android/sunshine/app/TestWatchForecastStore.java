@@ -0,0 +1,93 @@
+package com.example.android.sunshine.app;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.sharedassets.WearForecast;
+import com.example.sharedassets.WearForecastCodec;
+
+/*
+    Checks the stored forecast survives a new engine, isn't rewritten when the Data Layer hands
+    it over again, and is dropped once stale, and measures reading it at engine creation.
+ */
+public class TestWatchForecastStore extends AndroidTestCase {
+    public static final String LOG_TAG = TestWatchForecastStore.class.getSimpleName();
+
+    private static final int TODAY = 2457450;
+    private static final long NOW = 1457049600000L;
+    private static final int READS = 100;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        new WatchForecastStore(mContext).clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        new WatchForecastStore(mContext).clear();
+        super.tearDown();
+    }
+
+    public void testRoundTrip() {
+        assertNull(new WatchForecastStore(mContext).getForecast(NOW));
+
+        assertTrue(new WatchForecastStore(mContext).update(encode(800), NOW));
+        // As a new engine would read it
+        WearForecast read = new WatchForecastStore(mContext).getForecast(NOW + 1000);
+
+        assertNotNull("Error: The stored forecast wasn't read back", read);
+        assertEquals("94043", read.locationSetting);
+        assertEquals(3, read.days.length);
+        assertEquals(800, read.getDay(TODAY).weatherId);
+        assertEquals(21.5, read.getDay(TODAY).high);
+    }
+
+    public void testSameForecastKeepsArrivalTime() {
+        WatchForecastStore store = new WatchForecastStore(mContext);
+        assertTrue(store.update(encode(800), NOW));
+
+        long later = NOW + WatchForecastStore.MAX_AGE_MILLIS / 2;
+        store = new WatchForecastStore(mContext);
+        assertFalse("Error: The same forecast was written again", store.update(encode(800), later));
+        assertTrue(store.update(encode(500), later));
+
+        // Counted from when the second forecast arrived
+        long stillFresh = later + WatchForecastStore.MAX_AGE_MILLIS;
+        assertEquals(500, new WatchForecastStore(mContext).getForecast(stillFresh)
+                .getDay(TODAY).weatherId);
+    }
+
+    public void testStaleForecastDropped() {
+        new WatchForecastStore(mContext).update(encode(800), NOW);
+        WatchForecastStore store = new WatchForecastStore(mContext);
+
+        assertNotNull(store.getForecast(NOW + WatchForecastStore.MAX_AGE_MILLIS));
+        assertNull("Error: A stale forecast was shown",
+                store.getForecast(NOW + WatchForecastStore.MAX_AGE_MILLIS + 1));
+        // A clock turned back doesn't make it fresh either
+        assertNull(store.getForecast(NOW - 1000));
+    }
+
+    public void testBenchmarkRead() {
+        new WatchForecastStore(mContext).update(encode(800), NOW);
+        new WatchForecastStore(mContext).getForecast(NOW);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < READS; i++) {
+            assertNotNull(new WatchForecastStore(mContext).getForecast(NOW));
+        }
+        long readNanos = (SystemClock.elapsedRealtimeNanos() - start) / READS;
+        Log.i(LOG_TAG, "Reading the stored forecast: " + (readNanos / 1000) + "us");
+    }
+
+    private static byte[] encode(int todayWeatherId) {
+        WearForecast.Day[] days = {
+                new WearForecast.Day(TODAY, todayWeatherId, 21.5, 10),
+                new WearForecast.Day(TODAY + 1, 500, 18, 9),
+                new WearForecast.Day(TODAY + 2, 801, 19, 11)
+        };
+        return WearForecastCodec.encode(new WearForecast("94043", true, days));
+    }
+}
@@ -24,13 +24,7 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.Shader;
-import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
@@ -41,27 +35,25 @@ import android.util.Log;
 import android.view.SurfaceHolder;
 
 import com.example.sharedassets.SharedUtility;
+import com.example.sharedassets.WearForecast;
+import com.example.sharedassets.WearForecastCodec;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.Wearable;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.ref.WeakReference;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 /**
  * Analog watch face with a ticking second hand. In ambient mode, the second hand isn't shown. On
  * devices with low-bit ambient mode, the hands are drawn without anti-aliasing in ambient mode.
@@ -78,23 +70,9 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
      */
     private static final int MSG_UPDATE_TIME = 0;
 
-    private Bitmap mWeatherBitmap;
-    private final int[] mClockNumbers = new int[]{12, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
-    public int mClockNumberPadding = 30;
-    public int mIconScaleFactor = 6;
-    public int mSunOffset = 60;
     public final String LOG_TAG = SunshineWatchFace.class.getSimpleName();
-    public static float DEFAULT_LATLONG = 0F;
-    public String mDailyHighTemperature;
-    public String mDailyLowTemperature;
-    public int mTempHighLowOffset = 50;
-    public int weatherIconID = 0; //default to sun
-    public int mWatchHandDarkColor;
-    public int mWatchHandLightColor;
     Resources mResources;
 
-    public String mPath = "/forcast";
-
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -120,13 +98,18 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         }
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine implements DataApi.DataListener {
+    private class Engine extends CanvasWatchFaceService.Engine implements DataApi.DataListener,
+            GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
         final Handler mUpdateTimeHandler = new EngineHandler(this);
+        // The phone sends the forecast through the Data Layer; the watch never fetches it
+        GoogleApiClient mGoogleApiClient;
+        WearForecast mForecast;
+        WatchForecastStore mForecastStore;
+        int mShownJulianDay = -1;
+        int mShownWeatherId = -1;
+        Bitmap mWeatherBitmap;
         boolean mRegisteredTimeZoneReceiver = false;
-        Paint mBackgroundPaint;
-        Paint mHandPaint;
-        Paint mNumbersPaint;
-        Paint mTemperaturePaint;
+        WatchFaceRenderer mRenderer;
         boolean mAmbient;
         Time mTime;
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
@@ -156,36 +139,31 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
                     .build());
 
             mResources = SunshineWatchFace.this.getResources();
-            mBackgroundPaint = new Paint();
-            mBackgroundPaint.setColor(mResources.getColor(R.color.primary_sunny));
-
-            mHandPaint = new Paint();
-            //mHandPaint.setColor(resources.getColor(R.color.analog_hands));
-            mHandPaint.setStrokeWidth(mResources.getDimension(R.dimen.analog_hand_stroke));
-            mHandPaint.setAntiAlias(true);
-            mHandPaint.setStrokeCap(Paint.Cap.ROUND);
-
-            mNumbersPaint = new Paint();
-            mNumbersPaint.setColor(mResources.getColor(R.color.watch_number_color));
-            mNumbersPaint.setStrokeWidth(mResources.getDimension(R.dimen.analog_hand_stroke));
-            mNumbersPaint.setTextSize(20);
-
-            mTemperaturePaint = new Paint();
-            mTemperaturePaint.setColor(mResources.getColor(R.color.watch_number_color));
-            mTemperaturePaint.setTextSize(20);
+            // Starts with the sunny theme
+            mRenderer = new WatchFaceRenderer(mResources);
 
             mTime = new Time();
 
-            LoadWeatherDataTask weatherDataTask = new LoadWeatherDataTask();
-            weatherDataTask.execute("");
-
-            mWatchHandDarkColor = R.color.watch_hands_sunshine_yellow;
-            mWatchHandLightColor = R.color.watch_hands_sunshine_yellow_light;
+            // The file is tiny, and reading it here means the first frame has the weather
+            mForecastStore = new WatchForecastStore(SunshineWatchFace.this);
+            mForecast = mForecastStore.getForecast(System.currentTimeMillis());
+            showToday();
+
+            mGoogleApiClient = new GoogleApiClient.Builder(SunshineWatchFace.this)
+                    .addApi(Wearable.API)
+                    .addConnectionCallbacks(this)
+                    .addOnConnectionFailedListener(this)
+                    .build();
+            mGoogleApiClient.connect();
         }
 
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            if (mGoogleApiClient.isConnected()) {
+                Wearable.DataApi.removeListener(mGoogleApiClient, this);
+            }
+            mGoogleApiClient.disconnect();
             super.onDestroy();
         }
 
@@ -193,11 +171,19 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mRenderer.setLowBitAmbient(mLowBitAmbient);
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            mRenderer.setSurfaceSize(width, height);
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
+            showToday();
             invalidate();
         }
 
@@ -206,9 +192,7 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
             super.onAmbientModeChanged(inAmbientMode);
             if (mAmbient != inAmbientMode) {
                 mAmbient = inAmbientMode;
-                if (mLowBitAmbient) {
-                    mHandPaint.setAntiAlias(!inAmbientMode);
-                }
+                mRenderer.setAmbient(inAmbientMode);
                 invalidate();
             }
 
@@ -244,76 +228,8 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
             mTime.setToNow();
-
-            //move the sun more offscreen to indicate the setting sun so 80 will be noon or when the sun is fully up
-
-            // Draw the background.
-            if (isInAmbientMode()) {
-                canvas.drawColor(Color.BLACK);
-            } else {
-                canvas.drawRect(0, 0, canvas.getWidth(), canvas.getHeight(), mBackgroundPaint);
-            }
-
-            if (mWeatherBitmap != null)
-                mWeatherBitmap = Bitmap.createScaledBitmap(mWeatherBitmap, canvas.getWidth() / mIconScaleFactor, canvas.getHeight() / mIconScaleFactor, false);
-
-            // Find the center. Ignore the window insets so that, on round watches with a
-            // "chin", the watch face is centered on the entire screen, not just the usable
-            // portion.
-            float centerX = bounds.width() / 2f;
-            float centerY = bounds.height() / 2f;
-
-            float secRot = mTime.second / 30f * (float) Math.PI;
-            int minutes = mTime.minute;
-            float minRot = minutes / 30f * (float) Math.PI;
-            float hrRot = ((mTime.hour + (minutes / 60f)) / 6f) * (float) Math.PI;
-
-            float secLength = centerX - 40;
-            float minLength = centerX - 60;
-            float hrLength = centerX - 100;
-
-            for (int i = 0; i < mClockNumbers.length; i++) {
-                float clockNumbersX = GetCos(i * 30 + 270) * (centerX - 20);
-                float clockNumbersY = GetSin(i * 30 + 270) * (centerY - mClockNumberPadding);
-                canvas.drawText(String.valueOf(mClockNumbers[i]), clockNumbersX + centerX, clockNumbersY + centerY, mNumbersPaint);
-            }
-
-            if (!mAmbient) {
-                float secX = (float) Math.sin(secRot) * secLength;
-                float secY = (float) -Math.cos(secRot) * secLength;
-                mHandPaint.setShader(new LinearGradient(centerX + secX, centerY + secY, centerX, centerY, mResources.getColor(mWatchHandDarkColor), mResources.getColor(mWatchHandLightColor), Shader.TileMode.MIRROR));
-                canvas.drawLine(centerX, centerY, centerX + secX, centerY + secY, mHandPaint);
-            }
-
-            float minX = (float) Math.sin(minRot) * minLength;
-            float minY = (float) -Math.cos(minRot) * minLength;
-            mHandPaint.setShader(new LinearGradient(centerX + minX, centerY + minY, centerX, centerY, mResources.getColor(mWatchHandDarkColor), mResources.getColor(mWatchHandLightColor), Shader.TileMode.MIRROR));
-            canvas.drawLine(centerX, centerY, centerX + minX, centerY + minY, mHandPaint);
-
-            float hrX = (float) Math.sin(hrRot) * hrLength;
-            float hrY = (float) -Math.cos(hrRot) * hrLength;
-            mHandPaint.setShader(new LinearGradient(centerX + hrX, centerY + hrY, centerX, centerY, mResources.getColor(mWatchHandDarkColor), mResources.getColor(mWatchHandLightColor), Shader.TileMode.MIRROR));
-            canvas.drawLine(centerX, centerY, centerX + hrX, centerY + hrY, mHandPaint);
-
-            float sunshineBitmapX = canvas.getWidth() - mSunOffset;
-            float sunshineBitmapY = canvas.getHeight() - mSunOffset;
-
-            if(mWeatherBitmap != null){
-                canvas.drawBitmap(mWeatherBitmap, sunshineBitmapX, sunshineBitmapY, null);
-            }
-
-            if(mDailyHighTemperature != null){
-                canvas.drawText(mDailyHighTemperature  + (char) 0x00B0,(centerX-25) - mTempHighLowOffset,centerY + mTempHighLowOffset, mTemperaturePaint);
-                canvas.drawText(mDailyLowTemperature  + (char) 0x00B0,(centerX -25) + mTempHighLowOffset,centerY + mTempHighLowOffset, mTemperaturePaint);
-            }
-        }
-
-        public float GetSin(float degAngle) {
-            return (float) Math.sin(Math.PI * degAngle / 180);
-        }
-
-        public float GetCos(float degAngle) {
-            return (float) Math.cos(Math.PI * degAngle / 180);
+            // Runs every second, so everything it draws was prepared beforehand
+            mRenderer.draw(canvas, mTime.hour, mTime.minute, mTime.second);
         }
 
         @Override
@@ -385,261 +301,152 @@ public class SunshineWatchFace extends CanvasWatchFaceService {
         }
 
         @Override
-        public void onDataChanged(DataEventBuffer dataEvents) {
-            for(DataEvent event : dataEvents) {
-                DataItem dataItem = event.getDataItem();
-                if(mPath.equals(dataItem.getUri().getPath())) {
-                    DataMap dataMap = DataMapItem.fromDataItem(dataItem).getDataMap();
-                    mDailyHighTemperature = String.valueOf(dataMap.getDouble(SharedUtility.HIGH_TEMP_KEY));
-                    mDailyLowTemperature = String.valueOf(dataMap.getDouble(SharedUtility.LOW_TEMP_KEY));
-                }
-            }
+        public void onConnected(Bundle connectionHint) {
+            Wearable.DataApi.addListener(mGoogleApiClient, this);
+            // Whatever the phone sent while the face wasn't listening
+            Wearable.DataApi.getDataItems(mGoogleApiClient)
+                    .setResultCallback(new ResultCallback<DataItemBuffer>() {
+                        @Override
+                        public void onResult(DataItemBuffer dataItems) {
+                            try {
+                                for (DataItem dataItem : dataItems) {
+                                    readForecast(dataItem);
+                                }
+                            } finally {
+                                dataItems.release();
+                            }
+                        }
+                    });
         }
 
-        private class LoadWeatherDataTask extends AsyncTask<String, Void, String> {
+        @Override
+        public void onConnectionSuspended(int cause) {
+            Log.d(LOG_TAG, "Data Layer connection suspended: " + cause);
+        }
 
-            @Override
-            protected String doInBackground(String... string) {
-
-                String locationLatitude = String.valueOf(DEFAULT_LATLONG);
-                String locationLongitude = String.valueOf(DEFAULT_LATLONG);
-
-                // These two need to be declared outside the try/catch
-                // so that they can be closed in the finally block.
-                HttpURLConnection urlConnection = null;
-                BufferedReader reader = null;
-
-                // Will contain the raw JSON response as a string.
-                String forecastJsonStr = null;
-
-                String format = "json";
-                String units = "metric";
-                int numDays = 14;
-
-                try {
-                    // Construct the URL for the OpenWeatherMap query
-                    // Possible parameters are avaiable at OWM's forecast API page, at
-                    // http://openweathermap.org/API#forecast
-                    final String FORECAST_BASE_URL = "http://api.openweathermap.org/data/2.5/forecast/daily?";
-                    final String QUERY_PARAM = "q";
-                    final String LAT_PARAM = "lat";
-                    final String LON_PARAM = "lon";
-                    final String FORMAT_PARAM = "mode";
-                    final String UNITS_PARAM = "units";
-                    final String DAYS_PARAM = "cnt";
-                    final String APPID_PARAM = "APPID";
-
-                    Uri.Builder uriBuilder = Uri.parse(FORECAST_BASE_URL).buildUpon();
-
-                    uriBuilder.appendQueryParameter(LAT_PARAM, locationLatitude)
-                            .appendQueryParameter(LON_PARAM, locationLongitude);
-
-                    Uri builtUri = uriBuilder.appendQueryParameter(FORMAT_PARAM, format)
-                            .appendQueryParameter(UNITS_PARAM, units)
-                            .appendQueryParameter(DAYS_PARAM, Integer.toString(numDays))
-                            .appendQueryParameter(APPID_PARAM, "3b37debf4e1aba37f1a839423613be5b")
-                            .build();
-
-                    URL url = new URL(builtUri.toString());
-
-                    // Create the request to OpenWeatherMap, and open the connection
-                    urlConnection = (HttpURLConnection) url.openConnection();
-                    urlConnection.setRequestMethod("GET");
-                    urlConnection.connect();
-
-                    // Read the input stream into a String
-                    InputStream inputStream = urlConnection.getInputStream();
-                    StringBuffer buffer = new StringBuffer();
-                    if (inputStream == null) {
-                        // Nothing to do.
-                        return "";
-                    }
-                    reader = new BufferedReader(new InputStreamReader(inputStream));
-
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        // Since it's JSON, adding a newline isn't necessary (it won't affect parsing)
-                        // But it does make debugging a *lot* easier if you print out the completed
-                        // buffer for debugging.
-                        buffer.append(line + "\n");
-                    }
-
-                    if (buffer.length() == 0) {
-                        // Stream was empty.  No point in parsing.
-                        return "";
-                    }
-                    forecastJsonStr = buffer.toString();
-                    //getWeatherDataFromJson(forecastJsonStr, locationQuery);
-                } catch (IOException e) {
-                    Log.e(LOG_TAG, "Error ", e);
-                    // If the code didn't successfully get the weather data, there's no point in attempting
-                    // to parse it.
-                }  finally {
-                    if (urlConnection != null) {
-                        urlConnection.disconnect();
-                    }
-                    if (reader != null) {
-                        try {
-                            reader.close();
-                        } catch (final IOException e) {
-                            Log.e(LOG_TAG, "Error closing stream", e);
-                        }
-                    }
-                }
-                return forecastJsonStr;
-            }
+        @Override
+        public void onConnectionFailed(ConnectionResult connectionResult) {
+            Log.e(LOG_TAG, "Couldn't connect to the Data Layer: " + connectionResult);
+        }
 
-            @Override
-            public void onPostExecute(String result){
-                try {
-                    getWeatherDataFromJson(result);
-                } catch (JSONException e) {
-                    e.printStackTrace();
+        @Override
+        public void onDataChanged(DataEventBuffer dataEvents) {
+            for (DataEvent event : dataEvents) {
+                if (event.getType() == DataEvent.TYPE_CHANGED) {
+                    readForecast(event.getDataItem());
                 }
             }
+        }
 
-            private void getWeatherDataFromJson(String forecastJsonStr) throws JSONException {
-                // Weather information.  Each day's forecast info is an element of the "list" array.
-                final String OWM_LIST = "list";
-
-                // All temperatures are children of the "temp" object.
-                final String OWM_TEMPERATURE = "temp";
-                final String OWM_MAX = "max";
-                final String OWM_MIN = "min";
-
-                final String OWM_WEATHER = "weather";
-                final String OWM_DESCRIPTION = "main";
-                final String OWM_WEATHER_ID = "id";
-
-                final String OWM_MESSAGE_CODE = "cod";
-
-                try {
-                    JSONObject forecastJson = new JSONObject(forecastJsonStr);
-
-                    // do we have an error?
-                    if (forecastJson.has(OWM_MESSAGE_CODE)) {
-                        int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-                        switch (errorCode) {
-                            case HttpURLConnection.HTTP_OK:
-                                break;
-                        }
-                    }
-
-                    JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-                    for (int i = 0; i < weatherArray.length(); i++) {
-                        double high;
-                        double low;
-
-                        String description;
-                        int weatherId;
-
-                        // Get the JSON object representing the day
-                        JSONObject dayForecast = weatherArray.getJSONObject(i);
-
-                        // Description is in a child array called "weather", which is 1 element long.
-                        // That element also contains a weather code.
-                        JSONObject weatherObject = dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                        weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-                        // Temperatures are in a child object called "temp".  Try not to name variables
-                        // "temp" when working with temperature.  It confuses everybody.
-                        JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                        high = temperatureObject.getDouble(OWM_MAX);
-                        low = temperatureObject.getDouble(OWM_MIN);
-                        mDailyHighTemperature = String.valueOf(high);
-                        mDailyLowTemperature = String.valueOf(low);
-
-                        int weatherIconId = getIconResourceForWeatherCondition(weatherId);
-                        if(weatherIconId != -1)
-                            mWeatherBitmap = BitmapFactory.decodeResource(mResources, weatherIconId);
-
-                    }
-                }catch (JSONException ex){
-
-                }
+        /**
+         * Shows the forecast the phone put in a data item, if it is one.
+         */
+        private void readForecast(DataItem dataItem) {
+            if (!SharedUtility.FORECAST_PATH.equals(dataItem.getUri().getPath())) {
+                return;
             }
+            DataMap dataMap = DataMapItem.fromDataItem(dataItem).getDataMap();
+            byte[] encoded = dataMap.getByteArray(SharedUtility.FORECAST_KEY);
+            if (encoded == null) {
+                return;
+            }
+            WearForecast forecast;
+            try {
+                forecast = WearForecastCodec.decode(encoded);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Couldn't read the forecast from the phone", e);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (!mForecastStore.update(encoded, now) && mForecastStore.getForecast(now) == null) {
+                // The stale forecast again, which the phone hasn't replaced in all this time
+                return;
+            }
+            mForecast = forecast;
+            mShownJulianDay = -1;
+            showToday();
+            invalidate();
+        }
 
-            public int getIconResourceForWeatherCondition(int weatherId) {
-                // Based on weather code data found at:
-                // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-                if (weatherId >= 200 && weatherId <= 232) {
-                    setWeatherUI(Constants.WeatherTypes.Stormy);
-                    return R.drawable.ic_storm;
-                } else if (weatherId >= 300 && weatherId <= 321) {
-                    setWeatherUI(Constants.WeatherTypes.Rainy);
-                    return R.drawable.ic_light_rain;
-                } else if (weatherId >= 500 && weatherId <= 504) {
-                    setWeatherUI(Constants.WeatherTypes.Rainy);
-                    return R.drawable.ic_rain;
-                } else if (weatherId == 511) {
-                    setWeatherUI(Constants.WeatherTypes.Snowing);
-                    return R.drawable.ic_snow;
-                } else if (weatherId >= 520 && weatherId <= 531) {
-                    setWeatherUI(Constants.WeatherTypes.Rainy);
-                    return R.drawable.ic_rain;
-                } else if (weatherId >= 600 && weatherId <= 622) {
-                    setWeatherUI(Constants.WeatherTypes.Snowing);
-                    return R.drawable.ic_snow;
-                } else if (weatherId >= 701 && weatherId <= 761) {
-                    setWeatherUI(Constants.WeatherTypes.Foggy);
-                    return R.drawable.ic_fog;
-                } else if (weatherId == 761 || weatherId == 781) {
-                    setWeatherUI(Constants.WeatherTypes.Stormy);
-                    return R.drawable.ic_storm;
-                } else if (weatherId == 800) {
-                    setWeatherUI(Constants.WeatherTypes.Clear);
-                    return R.drawable.ic_clear;
-                } else if (weatherId == 801) {
-                    setWeatherUI(Constants.WeatherTypes.LightCloudy);
-                    return R.drawable.ic_light_clouds;
-                } else if (weatherId >= 802 && weatherId <= 804) {
-                    setWeatherUI(Constants.WeatherTypes.Cloudy);
-                    return R.drawable.ic_cloudy;
-                }
-                return -1;
+        /**
+         * Shows today's day of the forecast, unless it is already shown.  Called every minute, so
+         * the face moves on to the next day at midnight without hearing from the phone.
+         */
+        private void showToday() {
+            if (mForecast == null) {
+                return;
             }
+            mTime.setToNow();
+            int julianDay = Time.getJulianDay(System.currentTimeMillis(), mTime.gmtoff);
+            if (julianDay == mShownJulianDay) {
+                return;
+            }
+            mShownJulianDay = julianDay;
+            WearForecast.Day today = mForecast.getDay(julianDay);
+            if (today == null) {
+                mShownWeatherId = -1;
+                mWeatherBitmap = null;
+                mRenderer.setWeather(null, null, null);
+                return;
+            }
+            if (today.weatherId != mShownWeatherId) {
+                // Only decoded when the weather changes
+                mShownWeatherId = today.weatherId;
+                int weatherIconId = getIconResourceForWeatherCondition(today.weatherId);
+                mWeatherBitmap = weatherIconId == -1
+                        ? null : BitmapFactory.decodeResource(mResources, weatherIconId);
+            }
+            mRenderer.setWeather(mWeatherBitmap, formatTemperature(today.high, mForecast.metric),
+                    formatTemperature(today.low, mForecast.metric));
+        }
 
-            /* Sets the weather UI components (Ex: watchface, hands, and number colors) for each different weather types */
-            public void setWeatherUI(Constants.WeatherTypes weathertype) {
-                if (weathertype == Constants.WeatherTypes.Clear) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_sunny));
-                    mWatchHandDarkColor = R.color.watch_hands_sunshine_yellow;
-                    mWatchHandLightColor = R.color.watch_hands_sunshine_yellow_light;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_number_color));
-                } else if (weathertype == Constants.WeatherTypes.Rainy) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_rainy));
-                    mWatchHandDarkColor = R.color.watch_hands_rain_blue;
-                    mWatchHandLightColor = R.color.watch_hands_rain_blue_light;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_number_rainy_color));
-                } else if (weathertype == Constants.WeatherTypes.Stormy) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_stormy));
-                    mWatchHandDarkColor = R.color.watch_hands_storm_grey;
-                    mWatchHandLightColor = R.color.watch_hands_storm_white;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_number_stormy_color));
-                } else if (weathertype == Constants.WeatherTypes.Cloudy) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_cloudy));
-                    mWatchHandDarkColor = R.color.watch_hands_cloudy_grey;
-                    mWatchHandLightColor = R.color.watch_hands_cloudy_white;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_number_cloudy_color));
-                } else if (weathertype == Constants.WeatherTypes.Foggy) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_foggy));
-                    mWatchHandDarkColor = R.color.watch_hands_foggy_white;
-                    mWatchHandLightColor = R.color.watch_hands_foggy_white_light;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_hands_foggy_white));
-                } else if (weathertype == Constants.WeatherTypes.Snowing) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_snowing));
-                    mWatchHandDarkColor = R.color.watch_hands_snowing_white;
-                    mWatchHandLightColor = R.color.watch_hands_snowing_white_light;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_number_snowing_color));
-                } else if (weathertype == Constants.WeatherTypes.LightCloudy) {
-                    mBackgroundPaint.setColor(mResources.getColor(R.color.primary_cloudy));
-                    mWatchHandDarkColor = R.color.watch_hands_cloudy_grey;
-                    mWatchHandLightColor = R.color.watch_hands_cloudy_white;
-                    mHandPaint.setColor(mResources.getColor(R.color.watch_number_cloudy_color));
-                }
+        private String formatTemperature(double celsius, boolean metric) {
+            return Long.toString(Math.round(metric ? celsius : celsius * 1.8 + 32));
+        }
+
+        private int getIconResourceForWeatherCondition(int weatherId) {
+            // Based on weather code data found at:
+            // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+            if (weatherId >= 200 && weatherId <= 232) {
+                setWeatherUI(Constants.WeatherTypes.Stormy);
+                return R.drawable.ic_storm;
+            } else if (weatherId >= 300 && weatherId <= 321) {
+                setWeatherUI(Constants.WeatherTypes.Rainy);
+                return R.drawable.ic_light_rain;
+            } else if (weatherId >= 500 && weatherId <= 504) {
+                setWeatherUI(Constants.WeatherTypes.Rainy);
+                return R.drawable.ic_rain;
+            } else if (weatherId == 511) {
+                setWeatherUI(Constants.WeatherTypes.Snowing);
+                return R.drawable.ic_snow;
+            } else if (weatherId >= 520 && weatherId <= 531) {
+                setWeatherUI(Constants.WeatherTypes.Rainy);
+                return R.drawable.ic_rain;
+            } else if (weatherId >= 600 && weatherId <= 622) {
+                setWeatherUI(Constants.WeatherTypes.Snowing);
+                return R.drawable.ic_snow;
+            } else if (weatherId >= 701 && weatherId <= 761) {
+                setWeatherUI(Constants.WeatherTypes.Foggy);
+                return R.drawable.ic_fog;
+            } else if (weatherId == 761 || weatherId == 781) {
+                setWeatherUI(Constants.WeatherTypes.Stormy);
+                return R.drawable.ic_storm;
+            } else if (weatherId == 800) {
+                setWeatherUI(Constants.WeatherTypes.Clear);
+                return R.drawable.ic_clear;
+            } else if (weatherId == 801) {
+                setWeatherUI(Constants.WeatherTypes.LightCloudy);
+                return R.drawable.ic_light_clouds;
+            } else if (weatherId >= 802 && weatherId <= 804) {
+                setWeatherUI(Constants.WeatherTypes.Cloudy);
+                return R.drawable.ic_cloudy;
             }
+            return -1;
+        }
+
+        /* Sets the weather UI components (Ex: watchface, hands, and number colors) for each different weather types */
+        private void setWeatherUI(Constants.WeatherTypes weathertype) {
+            mRenderer.setTheme(weathertype);
         }
     }
 }
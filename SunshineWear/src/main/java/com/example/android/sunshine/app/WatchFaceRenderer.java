@@ -0,0 +1,332 @@
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+/**
+ * Draws the watch face.  Everything a frame needs, the scaled weather icon, the clock numbers and
+ * where they go, the hand gradients and the colours, is worked out when the surface size, the
+ * theme or the weather changes, so {@link #draw} allocates nothing.
+ *
+ * The dial, meaning the background, the numbers, the icon and the temperatures, only changes with
+ * those too, so it is rendered into an offscreen layer and a frame is that layer plus the hands.
+ * Interactive, ambient and low-bit ambient mode each have a layer of their own, built when the
+ * face first enters the mode after a change, so switching modes doesn't redraw a dial that is
+ * still good.
+ *
+ * The hands are drawn pointing at twelve on a rotated canvas, which lets each keep one gradient
+ * running from its tip to the centre whatever the time.
+ */
+public class WatchFaceRenderer {
+    private static final String[] CLOCK_NUMBERS =
+            {"12", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"};
+    private static final int CLOCK_NUMBER_PADDING = 30;
+    private static final int ICON_SCALE_FACTOR = 6;
+    private static final int SUN_OFFSET = 60;
+    private static final int TEMP_HIGH_LOW_OFFSET = 50;
+    private static final char DEGREES = (char) 0x00B0;
+
+    private static final int LAYER_INTERACTIVE = 0;
+    private static final int LAYER_AMBIENT = 1;
+    // Low-bit displays can't show the icon's colours, so their dial leaves it out
+    private static final int LAYER_LOW_BIT_AMBIENT = 2;
+    private static final int LAYER_COUNT = 3;
+
+    private final Resources mResources;
+    private final Paint mHandPaint;
+    private final Paint mNumbersPaint;
+    private final Paint mTemperaturePaint;
+
+    private final float[] mNumberX = new float[CLOCK_NUMBERS.length];
+    private final float[] mNumberY = new float[CLOCK_NUMBERS.length];
+    private int mWidth;
+    private int mHeight;
+    private float mCenterX;
+    private float mCenterY;
+    private float mSecondLength;
+    private float mMinuteLength;
+    private float mHourLength;
+
+    private int mBackgroundColor;
+    private int mHandDarkColor;
+    private int mHandLightColor;
+    private Shader mSecondShader;
+    private Shader mMinuteShader;
+    private Shader mHourShader;
+
+    // The icon as decoded, so it is only ever scaled once from the original
+    private Bitmap mWeatherIcon;
+    private Bitmap mScaledWeatherIcon;
+    private String mHighText;
+    private String mLowText;
+
+    private boolean mAmbient;
+    private boolean mLowBitAmbient;
+
+    private final Bitmap[] mLayers = new Bitmap[LAYER_COUNT];
+    private final boolean[] mLayerValid = new boolean[LAYER_COUNT];
+    private final Canvas mLayerCanvas = new Canvas();
+    private int mLayerBuilds;
+
+    public WatchFaceRenderer(Resources resources) {
+        mResources = resources;
+
+        mHandPaint = new Paint();
+        mHandPaint.setStrokeWidth(resources.getDimension(R.dimen.analog_hand_stroke));
+        mHandPaint.setAntiAlias(true);
+        mHandPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        mNumbersPaint = new Paint();
+        mNumbersPaint.setColor(resources.getColor(R.color.watch_number_color));
+        mNumbersPaint.setStrokeWidth(resources.getDimension(R.dimen.analog_hand_stroke));
+        mNumbersPaint.setTextSize(20);
+
+        mTemperaturePaint = new Paint();
+        mTemperaturePaint.setColor(resources.getColor(R.color.watch_number_color));
+        mTemperaturePaint.setTextSize(20);
+
+        setTheme(Constants.WeatherTypes.Clear);
+    }
+
+    public void setSurfaceSize(int width, int height) {
+        if (width == mWidth && height == mHeight) {
+            return;
+        }
+        mWidth = width;
+        mHeight = height;
+        // Ignore the window insets so that, on round watches with a "chin", the watch face is
+        // centered on the entire screen, not just the usable portion.
+        mCenterX = width / 2f;
+        mCenterY = height / 2f;
+        mSecondLength = mCenterX - 40;
+        mMinuteLength = mCenterX - 60;
+        mHourLength = mCenterX - 100;
+
+        for (int i = 0; i < CLOCK_NUMBERS.length; i++) {
+            double angle = Math.toRadians(i * 30 + 270);
+            mNumberX[i] = (float) Math.cos(angle) * (mCenterX - 20) + mCenterX;
+            mNumberY[i] = (float) Math.sin(angle) * (mCenterY - CLOCK_NUMBER_PADDING) + mCenterY;
+        }
+        updateShaders();
+        updateScaledIcon();
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            if (mLayers[i] != null) {
+                mLayers[i].recycle();
+                mLayers[i] = null;
+            }
+        }
+        invalidateLayers();
+    }
+
+    /**
+     * Sets the colours of the face for a kind of weather.
+     */
+    public void setTheme(Constants.WeatherTypes weatherType) {
+        int background;
+        int handDark;
+        int handLight;
+        int hand;
+        switch (weatherType) {
+            case Rainy:
+                background = R.color.primary_rainy;
+                handDark = R.color.watch_hands_rain_blue;
+                handLight = R.color.watch_hands_rain_blue_light;
+                hand = R.color.watch_number_rainy_color;
+                break;
+            case Stormy:
+                background = R.color.primary_stormy;
+                handDark = R.color.watch_hands_storm_grey;
+                handLight = R.color.watch_hands_storm_white;
+                hand = R.color.watch_number_stormy_color;
+                break;
+            case Cloudy:
+            case LightCloudy:
+                background = R.color.primary_cloudy;
+                handDark = R.color.watch_hands_cloudy_grey;
+                handLight = R.color.watch_hands_cloudy_white;
+                hand = R.color.watch_number_cloudy_color;
+                break;
+            case Foggy:
+                background = R.color.primary_foggy;
+                handDark = R.color.watch_hands_foggy_white;
+                handLight = R.color.watch_hands_foggy_white_light;
+                hand = R.color.watch_hands_foggy_white;
+                break;
+            case Snowing:
+                background = R.color.primary_snowing;
+                handDark = R.color.watch_hands_snowing_white;
+                handLight = R.color.watch_hands_snowing_white_light;
+                hand = R.color.watch_number_snowing_color;
+                break;
+            case Clear:
+            default:
+                background = R.color.primary_sunny;
+                handDark = R.color.watch_hands_sunshine_yellow;
+                handLight = R.color.watch_hands_sunshine_yellow_light;
+                hand = R.color.watch_number_color;
+                break;
+        }
+        mBackgroundColor = mResources.getColor(background);
+        mHandDarkColor = mResources.getColor(handDark);
+        mHandLightColor = mResources.getColor(handLight);
+        mHandPaint.setColor(mResources.getColor(hand));
+        updateShaders();
+        invalidateLayers();
+    }
+
+    /**
+     * @param icon the weather icon at its original size, or null for none
+     * @param high today's high, or null if there is no forecast yet
+     */
+    public void setWeather(Bitmap icon, String high, String low) {
+        if (icon != mWeatherIcon) {
+            mWeatherIcon = icon;
+            updateScaledIcon();
+        }
+        mHighText = high == null ? null : high + DEGREES;
+        mLowText = low == null ? null : low + DEGREES;
+        invalidateLayers();
+    }
+
+    public void setAmbient(boolean ambient) {
+        mAmbient = ambient;
+        updateAntiAlias();
+    }
+
+    public void setLowBitAmbient(boolean lowBitAmbient) {
+        mLowBitAmbient = lowBitAmbient;
+        updateAntiAlias();
+    }
+
+    /**
+     * Draws a frame for the given time: the dial's layer and the hands.  Allocates nothing unless
+     * the layer has to be built first.
+     */
+    public void draw(Canvas canvas, int hour, int minute, int second) {
+        int layer = getCurrentLayer();
+        if (!mLayerValid[layer]) {
+            buildLayer(layer);
+        }
+        if (mLayers[layer] != null) {
+            canvas.drawBitmap(mLayers[layer], 0, 0, null);
+        }
+        drawHands(canvas, hour, minute, second);
+    }
+
+    /**
+     * Draws a frame without the layers, redrawing the dial, for comparison in tests.
+     */
+    void drawWithoutLayers(Canvas canvas, int hour, int minute, int second) {
+        drawDial(canvas, getCurrentLayer());
+        drawHands(canvas, hour, minute, second);
+    }
+
+    /**
+     * @return how many times a dial layer was built
+     */
+    int getLayerBuilds() {
+        return mLayerBuilds;
+    }
+
+    private int getCurrentLayer() {
+        if (!mAmbient) {
+            return LAYER_INTERACTIVE;
+        }
+        return mLowBitAmbient ? LAYER_LOW_BIT_AMBIENT : LAYER_AMBIENT;
+    }
+
+    private void invalidateLayers() {
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            mLayerValid[i] = false;
+        }
+    }
+
+    private void buildLayer(int layer) {
+        mLayerValid[layer] = true;
+        if (mWidth == 0 || mHeight == 0) {
+            return;
+        }
+        if (mLayers[layer] == null) {
+            mLayers[layer] = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        }
+        mLayerCanvas.setBitmap(mLayers[layer]);
+        drawDial(mLayerCanvas, layer);
+        mLayerCanvas.setBitmap(null);
+        mLayerBuilds++;
+    }
+
+    private void drawDial(Canvas canvas, int layer) {
+        canvas.drawColor(layer == LAYER_INTERACTIVE ? mBackgroundColor : Color.BLACK);
+
+        for (int i = 0; i < CLOCK_NUMBERS.length; i++) {
+            canvas.drawText(CLOCK_NUMBERS[i], mNumberX[i], mNumberY[i], mNumbersPaint);
+        }
+
+        if (mScaledWeatherIcon != null && layer != LAYER_LOW_BIT_AMBIENT) {
+            canvas.drawBitmap(mScaledWeatherIcon, mWidth - SUN_OFFSET, mHeight - SUN_OFFSET,
+                    null);
+        }
+
+        if (mHighText != null && mLowText != null) {
+            float y = mCenterY + TEMP_HIGH_LOW_OFFSET;
+            canvas.drawText(mHighText, mCenterX - 25 - TEMP_HIGH_LOW_OFFSET, y,
+                    mTemperaturePaint);
+            canvas.drawText(mLowText, mCenterX - 25 + TEMP_HIGH_LOW_OFFSET, y,
+                    mTemperaturePaint);
+        }
+    }
+
+    private void drawHands(Canvas canvas, int hour, int minute, int second) {
+        if (!mAmbient) {
+            drawHand(canvas, second * 6f, mSecondLength, mSecondShader);
+        }
+        drawHand(canvas, minute * 6f, mMinuteLength, mMinuteShader);
+        drawHand(canvas, (hour + minute / 60f) * 30f, mHourLength, mHourShader);
+    }
+
+    private void drawHand(Canvas canvas, float degrees, float length, Shader shader) {
+        canvas.save();
+        canvas.rotate(degrees, mCenterX, mCenterY);
+        mHandPaint.setShader(shader);
+        canvas.drawLine(mCenterX, mCenterY, mCenterX, mCenterY - length, mHandPaint);
+        canvas.restore();
+    }
+
+    private void updateShaders() {
+        if (mWidth == 0) {
+            return;
+        }
+        mSecondShader = buildHandShader(mSecondLength);
+        mMinuteShader = buildHandShader(mMinuteLength);
+        mHourShader = buildHandShader(mHourLength);
+    }
+
+    /**
+     * @return a gradient from the tip of a hand pointing at twelve to the centre
+     */
+    private Shader buildHandShader(float length) {
+        return new LinearGradient(mCenterX, mCenterY - length, mCenterX, mCenterY,
+                mHandDarkColor, mHandLightColor, Shader.TileMode.MIRROR);
+    }
+
+    private void updateScaledIcon() {
+        if (mScaledWeatherIcon != null && mScaledWeatherIcon != mWeatherIcon) {
+            mScaledWeatherIcon.recycle();
+        }
+        mScaledWeatherIcon = null;
+        if (mWeatherIcon == null || mWidth == 0) {
+            return;
+        }
+        mScaledWeatherIcon = Bitmap.createScaledBitmap(mWeatherIcon,
+                mWidth / ICON_SCALE_FACTOR, mHeight / ICON_SCALE_FACTOR, true);
+    }
+
+    private void updateAntiAlias() {
+        mHandPaint.setAntiAlias(!(mAmbient && mLowBitAmbient));
+    }
+}
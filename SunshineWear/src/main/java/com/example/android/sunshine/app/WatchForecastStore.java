@@ -0,0 +1,127 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.sharedassets.WearForecast;
+import com.example.sharedassets.WearForecastCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The last forecast the phone sent, kept in a small file so a new engine shows the weather as
+ * soon as it is created instead of waiting for the Data Layer.
+ *
+ * The file holds the time the forecast first arrived and the forecast as
+ * {@link WearForecastCodec} encoded it, a hundred bytes or so, and is replaced atomically.  The
+ * Data Layer hands every new engine the phone's current item again, so a forecast equal to the
+ * stored one isn't written, and keeps the time it first arrived.  The theme and the icon follow
+ * from the weather ID, so they aren't stored; resource IDs change from one build to the next
+ * anyway.
+ *
+ * A forecast older than {@link #MAX_AGE_MILLIS} isn't shown, since the phone hasn't had anything
+ * new for a long time.  Only used from the main thread.
+ */
+public class WatchForecastStore {
+    private static final String LOG_TAG = WatchForecastStore.class.getSimpleName();
+
+    private static final String FILE_NAME = "forecast";
+    // Bumped whenever the layout of the file changes
+    private static final int FORMAT_VERSION = 1;
+    static final long MAX_AGE_MILLIS = 24 * 60 * 60 * 1000;
+
+    private final AtomicFile mFile;
+    private byte[] mEncoded;
+    private long mReceivedMillis;
+
+    /**
+     * Reads the stored forecast, if any.  The file is tiny, so this may run on the main thread.
+     */
+    public WatchForecastStore(Context context) {
+        mFile = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(mFile.readFully()));
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            long receivedMillis = in.readLong();
+            byte[] encoded = new byte[in.readUnsignedShort()];
+            in.readFully(encoded);
+            mEncoded = encoded;
+            mReceivedMillis = receivedMillis;
+        } catch (FileNotFoundException e) {
+            // Nothing stored yet
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Couldn't read the stored forecast", e);
+        }
+    }
+
+    /**
+     * @return the stored forecast, or null if there is none, it is stale, or it can't be decoded
+     */
+    public WearForecast getForecast(long nowMillis) {
+        if (mEncoded == null) {
+            return null;
+        }
+        if (mReceivedMillis > nowMillis || nowMillis - mReceivedMillis > MAX_AGE_MILLIS) {
+            Log.d(LOG_TAG, "Stored forecast is stale");
+            return null;
+        }
+        try {
+            return WearForecastCodec.decode(mEncoded);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Couldn't decode the stored forecast", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a forecast from the phone, unless it is the one already stored.
+     *
+     * @param encoded the forecast as the phone sent it
+     * @return true if it was written
+     */
+    public boolean update(byte[] encoded, long nowMillis) {
+        if (Arrays.equals(encoded, mEncoded)) {
+            return false;
+        }
+        mEncoded = encoded;
+        mReceivedMillis = nowMillis;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + encoded.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        FileOutputStream stream = null;
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(nowMillis);
+            out.writeShort(encoded.length);
+            out.write(encoded);
+            out.flush();
+
+            stream = mFile.startWrite();
+            stream.write(bytes.toByteArray());
+            mFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Couldn't store the forecast", e);
+            if (stream != null) {
+                mFile.failWrite(stream);
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        mEncoded = null;
+        mReceivedMillis = 0;
+        mFile.delete();
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.MatrixCursor;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.AbsListView;
+
+import com.example.android.sunshine.app.data.PackedForecast;
+import com.example.android.sunshine.app.data.TestUtilities;
+
+/*
+    Benchmarks binding forecast rows.  The resolving the adapter used to do on every bind is
+    measured against binding the rows ForecastLoader resolves ahead of time, both in time per row
+    and in allocations per scroll through the whole list.
+ */
+public class TestForecastAdapter extends AndroidTestCase {
+    public static final String LOG_TAG = TestForecastAdapter.class.getSimpleName();
+
+    private static final int DAYS = 14;
+    private static final int SCROLLS = 50;
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+
+    // Indices into PackedForecast.COLUMNS
+    private static final int COL_WEATHER_DATE = 1;
+    private static final int COL_WEATHER_MAX_TEMP = 3;
+    private static final int COL_WEATHER_MIN_TEMP = 4;
+    private static final int COL_WEATHER_CONDITION_ID = 9;
+
+    private String mSavedArtPack;
+    private Context mThemedContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // The bundled art keeps Glide, which must run on the main thread, out of the benchmark
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        mSavedArtPack = prefs.getString(key, null);
+        prefs.edit().putString(key, mContext.getString(R.string.pref_art_pack_sunshine)).commit();
+        // Committed off the main thread, so the snapshot's listener hasn't run yet
+        PreferencesSnapshot.refresh(mContext);
+        mThemedContext = new ContextThemeWrapper(mContext, R.style.AppTheme);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        if (mSavedArtPack == null) {
+            prefs.edit().remove(key).commit();
+        } else {
+            prefs.edit().putString(key, mSavedArtPack).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testBuildList() {
+        long today = System.currentTimeMillis();
+        ForecastList forecast = ForecastLoader.buildList(mContext,
+                PackedForecast.from(TestUtilities.createForecastCursor(today, DAYS)));
+
+        assertEquals(DAYS, forecast.size());
+        assertEquals("37.39", forecast.latitude);
+        ForecastRow row = forecast.get(0);
+        assertEquals(today, row.date);
+        assertEquals(R.drawable.ic_clear, row.iconResource);
+        assertEquals(R.drawable.art_clear, row.artResource);
+        assertNull("Error: The bundled art needs no URL", row.artUrl);
+        assertEquals(Utility.formatTemperature(mContext, 20), row.highText);
+        assertEquals(Utility.getFriendlyDayString(mContext, today, true), row.longDateText);
+        assertEquals(1, forecast.findPosition(today + DAY_IN_MILLIS));
+        assertEquals(-1, forecast.findPosition(0));
+    }
+
+    public void testBenchmarkBind() {
+        ForecastList forecast = ForecastLoader.buildList(mContext,
+                PackedForecast.from(TestUtilities.createForecastCursor(
+                        System.currentTimeMillis(), DAYS)));
+        RecyclerView recyclerView = new RecyclerView(mThemedContext);
+        recyclerView.setLayoutManager(new LinearLayoutManager(mThemedContext));
+        ForecastAdapter adapter = new ForecastAdapter(mThemedContext,
+                new ForecastAdapter.ForecastAdapterOnClickHandler() {
+                    @Override
+                    public void onClick(Long date, ForecastAdapter.ForecastAdapterViewHolder vh) {
+                    }
+                }, new View(mThemedContext), AbsListView.CHOICE_MODE_NONE);
+        adapter.swapForecast(forecast);
+        ForecastAdapter.ForecastAdapterViewHolder today =
+                adapter.onCreateViewHolder(recyclerView, adapter.getItemViewType(0));
+        ForecastAdapter.ForecastAdapterViewHolder future =
+                adapter.onCreateViewHolder(recyclerView, adapter.getItemViewType(1));
+        MatrixCursor cursor = TestUtilities.createForecastCursor(System.currentTimeMillis(), DAYS);
+
+        // Warm up both paths, so class loading and resource caches don't count
+        resolveScroll(cursor, today, future);
+        bindScroll(adapter, today, future);
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < SCROLLS; i++) {
+                resolveScroll(cursor, today, future);
+            }
+            long resolveNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int resolveAllocs = Debug.getThreadAllocCount() / SCROLLS;
+
+            Debug.resetThreadAllocCount();
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < SCROLLS; i++) {
+                bindScroll(adapter, today, future);
+            }
+            long bindNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int bindAllocs = Debug.getThreadAllocCount() / SCROLLS;
+
+            long binds = SCROLLS * DAYS;
+            Log.i(LOG_TAG, "Resolving on bind: " + (resolveNanos / binds / 1000) + "us per row, "
+                    + resolveAllocs + " allocations per scroll");
+            Log.i(LOG_TAG, "Precomputed rows: " + (bindNanos / binds / 1000) + "us per row, "
+                    + bindAllocs + " allocations per scroll");
+            assertTrue("Error: Binding precomputed rows allocated more",
+                    bindAllocs < resolveAllocs);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private static void bindScroll(ForecastAdapter adapter,
+                                   ForecastAdapter.ForecastAdapterViewHolder today,
+                                   ForecastAdapter.ForecastAdapterViewHolder future) {
+        for (int position = 0; position < adapter.getItemCount(); position++) {
+            adapter.onBindViewHolder(position == 0 ? today : future, position);
+        }
+    }
+
+    /**
+     * What ForecastAdapter.onBindViewHolder did before the loader resolved the rows.
+     */
+    private void resolveScroll(MatrixCursor cursor,
+                               ForecastAdapter.ForecastAdapterViewHolder today,
+                               ForecastAdapter.ForecastAdapterViewHolder future) {
+        for (int position = 0; cursor.moveToPosition(position); position++) {
+            ForecastAdapter.ForecastAdapterViewHolder holder = position == 0 ? today : future;
+            int weatherId = cursor.getInt(COL_WEATHER_CONDITION_ID);
+            int defaultImage = position == 0
+                    ? Utility.getArtResourceForWeatherCondition(weatherId)
+                    : Utility.getIconResourceForWeatherCondition(weatherId);
+            if (Utility.usingLocalGraphics(mContext)) {
+                holder.mIconView.setImageResource(defaultImage);
+            }
+            holder.mIconView.setTransitionName("iconView" + position);
+            long date = cursor.getLong(COL_WEATHER_DATE);
+            holder.mDateView.setText(Utility.getFriendlyDayString(mContext, date, position == 0));
+            String description = Utility.getStringForWeatherCondition(mContext, weatherId);
+            holder.mDescriptionView.setText(description);
+            holder.mDescriptionView.setContentDescription(
+                    mContext.getString(R.string.a11y_forecast, description));
+            String high = Utility.formatTemperature(mContext,
+                    cursor.getDouble(COL_WEATHER_MAX_TEMP));
+            holder.mHighTempView.setText(high);
+            holder.mHighTempView.setContentDescription(
+                    mContext.getString(R.string.a11y_high_temp, high));
+            String low = Utility.formatTemperature(mContext,
+                    cursor.getDouble(COL_WEATHER_MIN_TEMP));
+            holder.mLowTempView.setText(low);
+            holder.mLowTempView.setContentDescription(
+                    mContext.getString(R.string.a11y_low_temp, low));
+        }
+    }
+}
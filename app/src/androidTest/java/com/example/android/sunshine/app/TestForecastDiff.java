@@ -0,0 +1,137 @@
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestForecastDiff extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+    private static final int DAYS = 14;
+
+    public void testOneChangedDayTouchesOneRow() {
+        ForecastList before = createList(0, DAYS, -1);
+        ForecastList after = createList(0, DAYS, 5);
+
+        ForecastDiff diff = ForecastDiff.compute(before, after);
+        RecordingObserver observer = dispatch(diff, after);
+
+        assertEquals(1, diff.getRowCount());
+        assertEquals(1, observer.events.size());
+        assertEquals("change 5+1 " + ForecastDiff.CHANGED_HIGH, observer.events.get(0));
+    }
+
+    public void testUnchangedListIsEmpty() {
+        ForecastDiff diff = ForecastDiff.compute(createList(0, DAYS, -1), createList(0, DAYS, -1));
+        assertTrue(diff.isEmpty());
+    }
+
+    public void testDayRollsOver() {
+        // Yesterday drops off the front, and a new last day arrives
+        ForecastList before = createList(0, DAYS, -1);
+        ForecastList after = createList(1, DAYS, -1);
+
+        RecordingObserver observer = dispatch(ForecastDiff.compute(before, after), after);
+
+        assertEquals(2, observer.events.size());
+        assertEquals("remove 0+1", observer.events.get(0));
+        assertEquals("insert 13+1", observer.events.get(1));
+    }
+
+    public void testHorizonExtension() {
+        ForecastList before = createList(0, 5, -1);
+        ForecastList after = createList(0, DAYS, -1);
+
+        RecordingObserver observer = dispatch(ForecastDiff.compute(before, after), after);
+
+        assertEquals(1, observer.events.size());
+        assertEquals("insert 5+9", observer.events.get(0));
+    }
+
+    public void testAppliesOnlyToItsBase() {
+        ForecastList before = createList(0, DAYS, -1);
+        ForecastList after = before.withDiffFrom(before);
+        assertTrue(after.diff.appliesTo(before));
+        assertFalse(after.diff.appliesTo(createList(0, DAYS, -1)));
+    }
+
+    public void testOldListsCanBeCollected() {
+        ForecastList first = createList(0, DAYS, -1);
+        WeakReference<ForecastList> firstRef = new WeakReference<ForecastList>(first);
+        // A few reloads, each diffed against the one before, as the loader does
+        ForecastList latest = first;
+        for (int i = 0; i < 5; i++) {
+            latest = createList(0, DAYS, i).withDiffFrom(latest);
+        }
+        first = null;
+
+        for (int i = 0; i < 10 && firstRef.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            Runtime.getRuntime().runFinalization();
+        }
+        assertNull("Error: The newest list's diff keeps the first list alive", firstRef.get());
+        assertNotNull(latest.diff);
+    }
+
+    private static RecordingObserver dispatch(ForecastDiff diff, final ForecastList list) {
+        RecyclerView.Adapter adapter = new RecyclerView.Adapter() {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(android.view.ViewGroup parent,
+                                                              int viewType) {
+                return null;
+            }
+
+            @Override
+            public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            }
+
+            @Override
+            public int getItemCount() {
+                return list.size();
+            }
+        };
+        RecordingObserver observer = new RecordingObserver();
+        adapter.registerAdapterDataObserver(observer);
+        diff.dispatchTo(adapter);
+        return observer;
+    }
+
+    /**
+     * @param startDay   the first day, in days from an arbitrary epoch
+     * @param changedDay the day whose high is different, or -1 for none
+     */
+    private static ForecastList createList(int startDay, int days, int changedDay) {
+        ForecastRow[] rows = new ForecastRow[days];
+        for (int i = 0; i < days; i++) {
+            int day = startDay + i;
+            long date = day * DAY_IN_MILLIS;
+            String high = day == changedDay ? "30°" : "20°";
+            rows[i] = new ForecastRow(date, 800, R.drawable.ic_clear, R.drawable.art_clear, null,
+                    "Day " + day, "Day " + day, "Clear", "Forecast: Clear", high, "High " + high,
+                    "10°", "Low 10°", "iconView" + date);
+        }
+        return new ForecastList(rows, "37.39", "-122.08");
+    }
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("insert " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("remove " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events.add("change " + positionStart + "+" + itemCount + " " + payload);
+        }
+    }
+}
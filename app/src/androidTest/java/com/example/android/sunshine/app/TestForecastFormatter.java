@@ -0,0 +1,155 @@
+package com.example.android.sunshine.app;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+
+/*
+    Checks the cached labels and temperatures match what Utility formatted before they were
+    cached, and benchmarks the two in time and allocations per list of labels.
+ */
+public class TestForecastFormatter extends AndroidTestCase {
+    public static final String LOG_TAG = TestForecastFormatter.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+    // More than are cached, so the uncached path is checked too
+    private static final int DAYS = 20;
+    private static final int LIST_DAYS = 14;
+    private static final int LISTS = 200;
+
+    public void testMatchesUncached() {
+        ForecastFormatter formatter = ForecastFormatter.getInstance(mContext);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < DAYS; i++) {
+            long date = now + i * DAY_IN_MILLIS;
+            assertEquals(legacyFriendlyDayString(date, false),
+                    formatter.getFriendlyDayString(date, false));
+            assertEquals(legacyFriendlyDayString(date, true),
+                    formatter.getFriendlyDayString(date, true));
+            assertEquals(legacyDayName(date), formatter.getDayName(date));
+            assertEquals(mContext.getString(R.string.format_full_friendly_date,
+                    legacyDayName(date), legacyMonthDay(date)),
+                    formatter.getFullFriendlyDayString(date));
+        }
+    }
+
+    public void testTemperatures() {
+        ForecastFormatter formatter = ForecastFormatter.getInstance(mContext);
+        double[] temperatures = {-300, -40.5, -12.5, -0.4, 0, 0.4, 0.5, 12.49, 12.5, 99.9, 300};
+        String format = mContext.getString(R.string.format_temperature);
+        for (double temperature : temperatures) {
+            assertEquals(String.format(format, temperature),
+                    formatter.formatTemperature(temperature));
+            // And again from the cache
+            assertEquals(String.format(format, temperature),
+                    formatter.formatTemperature(temperature));
+        }
+    }
+
+    public void testInvalidate() {
+        ForecastFormatter formatter = ForecastFormatter.getInstance(mContext);
+        long now = System.currentTimeMillis();
+        String before = formatter.getFriendlyDayString(now, true);
+        formatter.invalidate();
+        assertEquals(before, formatter.getFriendlyDayString(now, true));
+    }
+
+    public void testBenchmarkLabels() {
+        ForecastFormatter formatter = ForecastFormatter.getInstance(mContext);
+        long now = System.currentTimeMillis();
+
+        // Warm up both paths, so class loading and building the labels don't count
+        formatLegacy(now);
+        formatCached(formatter, now);
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < LISTS; i++) {
+                formatLegacy(now);
+            }
+            long legacyNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int legacyAllocs = Debug.getThreadAllocCount() / LISTS;
+
+            Debug.resetThreadAllocCount();
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < LISTS; i++) {
+                formatCached(formatter, now);
+            }
+            long cachedNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int cachedAllocs = Debug.getThreadAllocCount() / LISTS;
+
+            Log.i(LOG_TAG, "Formatting: " + (legacyNanos / LISTS / 1000) + "us per list, "
+                    + legacyAllocs + " allocations per list");
+            Log.i(LOG_TAG, "Cached: " + (cachedNanos / LISTS / 1000) + "us per list, "
+                    + cachedAllocs + " allocations per list");
+            assertTrue("Error: Cached labels allocated more", cachedAllocs < legacyAllocs);
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private void formatLegacy(long now) {
+        String format = mContext.getString(R.string.format_temperature);
+        for (int i = 0; i < LIST_DAYS; i++) {
+            long date = now + i * DAY_IN_MILLIS;
+            legacyFriendlyDayString(date, false);
+            legacyFriendlyDayString(date, true);
+            String.format(format, 20.0 + i);
+            String.format(format, 10.0 + i);
+        }
+    }
+
+    private static void formatCached(ForecastFormatter formatter, long now) {
+        for (int i = 0; i < LIST_DAYS; i++) {
+            long date = now + i * DAY_IN_MILLIS;
+            formatter.getFriendlyDayString(date, false);
+            formatter.getFriendlyDayString(date, true);
+            formatter.formatTemperature(20.0 + i);
+            formatter.formatTemperature(10.0 + i);
+        }
+    }
+
+    /**
+     * What Utility.getFriendlyDayString did before the labels were cached.
+     */
+    private String legacyFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        long currentTime = System.currentTimeMillis();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
+        if (displayLongToday && julianDay == currentJulianDay) {
+            return mContext.getString(R.string.format_full_friendly_date,
+                    mContext.getString(R.string.today), legacyMonthDay(dateInMillis));
+        } else if (julianDay < currentJulianDay + 7) {
+            return legacyDayName(dateInMillis);
+        } else {
+            SimpleDateFormat shortenedDateFormat = new SimpleDateFormat("EEE MMM dd");
+            return shortenedDateFormat.format(dateInMillis);
+        }
+    }
+
+    private String legacyDayName(long dateInMillis) {
+        Time t = new Time();
+        t.setToNow();
+        int julianDay = Time.getJulianDay(dateInMillis, t.gmtoff);
+        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
+        if (julianDay == currentJulianDay) {
+            return mContext.getString(R.string.today);
+        } else if (julianDay == currentJulianDay + 1) {
+            return mContext.getString(R.string.tomorrow);
+        } else {
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        }
+    }
+
+    private static String legacyMonthDay(long dateInMillis) {
+        return new SimpleDateFormat("MMMM dd").format(dateInMillis);
+    }
+}
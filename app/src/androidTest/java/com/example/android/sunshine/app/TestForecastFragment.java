@@ -0,0 +1,115 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.preference.PreferenceManager;
+import android.test.ActivityInstrumentationTestCase2;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.PackedForecast;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.ForecastDay;
+import com.example.android.sunshine.app.sync.ForecastResult;
+import com.example.android.sunshine.app.sync.ForecastWriter;
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/*
+    Starts MainActivity with the stored list equal to the live one, so the loader's list changes
+    no rows, and checks the list still gets as far as being fully drawn.
+ */
+public class TestForecastFragment extends ActivityInstrumentationTestCase2<MainActivity> {
+    private static final String LOCATION = "99705";
+    private static final int DAYS = 7;
+    private static final long WAIT_MILLIS = 5000;
+
+    private Context mContext;
+    private String mSavedLocation;
+
+    public TestForecastFragment() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_location_key);
+        mSavedLocation = prefs.getString(key, null);
+        prefs.edit().putString(key, LOCATION).commit();
+        PreferencesSnapshot.refresh(mContext);
+
+        Time time = new Time();
+        time.setToNow();
+        int today = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+        List<ForecastDay> days = new ArrayList<ForecastDay>(DAYS);
+        for (int i = 0; i < DAYS; i++) {
+            days.add(new ForecastDay(today + i, 800, "Clear", 20 + i, 10 + i, 50, 1010, 3, 180,
+                    "owm"));
+        }
+        new ForecastWriter(mContext).write(LOCATION,
+                new ForecastResult("North Pole", 64.7488, -147.353, days));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Closes the activity first
+        super.tearDown();
+        String inLocation = " IN (SELECT " + WeatherContract.LocationEntry._ID + " FROM "
+                + WeatherContract.LocationEntry.TABLE_NAME + " WHERE "
+                + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?)";
+        mContext.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherContract.WeatherEntry.COLUMN_LOC_KEY + inLocation,
+                new String[] {LOCATION});
+        mContext.getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI,
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[] {LOCATION});
+        ForecastListStore.clear(mContext);
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_location_key);
+        if (mSavedLocation == null) {
+            prefs.edit().remove(key).commit();
+        } else {
+            prefs.edit().putString(key, mSavedLocation).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+    }
+
+    public void testStoredListEqualToLiveOne() throws Exception {
+        // Stored exactly as the loader will build the live list
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(LOCATION,
+                        System.currentTimeMillis()),
+                PackedForecast.COLUMNS, null, null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        assertNotNull(cursor);
+        try {
+            ForecastListStore.write(mContext,
+                    ForecastLoader.buildList(mContext, PackedForecast.from(cursor)));
+        } finally {
+            cursor.close();
+        }
+
+        getActivity();
+        PollingCheck.check("Error: The list was never fully drawn", WAIT_MILLIS,
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        final boolean[] fullyDrawn = new boolean[1];
+                        getInstrumentation().runOnMainSync(new Runnable() {
+                            @Override
+                            public void run() {
+                                fullyDrawn[0] = StartupMetrics.isFullyDrawn();
+                            }
+                        });
+                        return fullyDrawn[0];
+                    }
+                });
+    }
+}
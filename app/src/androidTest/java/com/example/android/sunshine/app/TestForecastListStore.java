@@ -0,0 +1,109 @@
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.database.MatrixCursor;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.PackedForecast;
+import com.example.android.sunshine.app.data.TestUtilities;
+
+/*
+    Checks the stored list reads back as it was written and is dropped when the units change, and
+    logs how long reading it takes next to building the list from a loaded forecast, which is what
+    the loader does after its query.  The query the stored list also saves isn't measured.
+ */
+public class TestForecastListStore extends AndroidTestCase {
+    public static final String LOG_TAG = TestForecastListStore.class.getSimpleName();
+
+    private static final int DAYS = 14;
+    private static final int READS = 50;
+
+    private SharedPreferences mPrefs;
+    private String mUnitsKey;
+    private String mSavedUnits;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = TestUtilities.getPreferences(mContext);
+        mUnitsKey = TestUtilities.getUnitsKey(mContext);
+        mSavedUnits = mPrefs.getString(mUnitsKey, null);
+        ForecastListStore.clear(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mSavedUnits == null) {
+            mPrefs.edit().remove(mUnitsKey).commit();
+        } else {
+            mPrefs.edit().putString(mUnitsKey, mSavedUnits).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        ForecastListStore.clear(mContext);
+        super.tearDown();
+    }
+
+    public void testRoundTrip() {
+        assertNull(ForecastListStore.read(mContext));
+
+        ForecastList written = buildList();
+        ForecastListStore.write(mContext, written);
+        ForecastList read = ForecastListStore.read(mContext);
+
+        assertNotNull("Error: The stored list wasn't read back", read);
+        assertTrue(read.provisional);
+        assertEquals(written.size(), read.size());
+        assertEquals(written.latitude, read.latitude);
+        assertEquals(written.longitude, read.longitude);
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals("Error: Row " + i + " differs", 0,
+                    ForecastDiff.compareRows(written.get(i), read.get(i)));
+            assertEquals(written.get(i).artUrl, read.get(i).artUrl);
+            assertEquals(written.get(i).iconTransitionName, read.get(i).iconTransitionName);
+        }
+    }
+
+    public void testDroppedWhenUnitsChange() {
+        boolean metric = PreferencesSnapshot.get(mContext).metric;
+        ForecastListStore.write(mContext, buildList());
+        assertNotNull(ForecastListStore.read(mContext));
+
+        mPrefs.edit().putString(mUnitsKey, mContext.getString(
+                metric ? R.string.pref_units_imperial : R.string.pref_units_metric)).commit();
+        PreferencesSnapshot.refresh(mContext);
+        assertNull("Error: A list formatted in other units was read back",
+                ForecastListStore.read(mContext));
+    }
+
+    public void testBenchmarkColdStart() {
+        MatrixCursor cursor = TestUtilities.createForecastCursor(System.currentTimeMillis(), DAYS);
+        ForecastListStore.write(mContext, buildList());
+
+        // Warm up both paths, so class loading and resource caches don't count
+        ForecastLoader.buildList(mContext, PackedForecast.from(cursor));
+        ForecastListStore.read(mContext);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < READS; i++) {
+            ForecastLoader.buildList(mContext, PackedForecast.from(cursor));
+        }
+        long buildNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < READS; i++) {
+            ForecastListStore.read(mContext);
+        }
+        long readNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(LOG_TAG, "Building the list: " + (buildNanos / READS / 1000) + "us");
+        Log.i(LOG_TAG, "Reading the stored list: " + (readNanos / READS / 1000) + "us");
+    }
+
+    private ForecastList buildList() {
+        return ForecastLoader.buildList(mContext,
+                PackedForecast.from(TestUtilities.createForecastCursor(
+                        System.currentTimeMillis(), DAYS)));
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.support.v4.content.Loader;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.ForecastDay;
+import com.example.android.sunshine.app.sync.ForecastResult;
+import com.example.android.sunshine.app.sync.ForecastWriter;
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/*
+    Runs the forecast loader against a stored forecast and checks what it delivers on a cold
+    start: today's row on its own first, then the whole list.
+ */
+public class TestForecastLoader extends AndroidTestCase {
+    private static final String LOCATION = "99705";
+    private static final int DAYS = 3;
+    private static final long WAIT_MILLIS = 5000;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<ForecastList> mDelivered =
+            Collections.synchronizedList(new ArrayList<ForecastList>());
+    private String mSavedLocation;
+    private ForecastLoader mLoader;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_location_key);
+        mSavedLocation = prefs.getString(key, null);
+        prefs.edit().putString(key, LOCATION).commit();
+        // Committed off the main thread, so the snapshot's listener hasn't run yet
+        PreferencesSnapshot.refresh(mContext);
+        ForecastListStore.clear(mContext);
+
+        Time time = new Time();
+        time.setToNow();
+        int today = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+        List<ForecastDay> days = new ArrayList<ForecastDay>(DAYS);
+        for (int i = 0; i < DAYS; i++) {
+            days.add(new ForecastDay(today + i, 800, "Clear", 20 + i, 10 + i, 50, 1010, 3, 180,
+                    "owm"));
+        }
+        new ForecastWriter(mContext).write(LOCATION,
+                new ForecastResult("North Pole", 64.7488, -147.353, days));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mLoader != null) {
+            runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    mLoader.reset();
+                }
+            });
+        }
+        String inLocation = " IN (SELECT " + WeatherContract.LocationEntry._ID + " FROM "
+                + WeatherContract.LocationEntry.TABLE_NAME + " WHERE "
+                + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?)";
+        mContext.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherContract.WeatherEntry.COLUMN_LOC_KEY + inLocation,
+                new String[] {LOCATION});
+        mContext.getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI,
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[] {LOCATION});
+        ForecastListStore.clear(mContext);
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_location_key);
+        if (mSavedLocation == null) {
+            prefs.edit().remove(key).commit();
+        } else {
+            prefs.edit().putString(key, mSavedLocation).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testTodayDeliveredBeforeWholeList() throws Exception {
+        startLoader(null);
+        waitForWholeList();
+
+        ForecastList first = mDelivered.get(0);
+        assertTrue("Error: The first delivery wasn't today's row on its own", first.provisional);
+        assertEquals(1, first.size());
+        assertEquals(WeatherContract.normalizeDate(System.currentTimeMillis()),
+                first.get(0).date);
+
+        ForecastList last = mDelivered.get(mDelivered.size() - 1);
+        assertEquals(DAYS, last.size());
+        assertEquals("Error: The whole list didn't start with today", first.get(0).date,
+                last.get(0).date);
+        assertNotNull("Error: The whole list wasn't stored for the next start",
+                ForecastListStore.read(mContext));
+    }
+
+    public void testStoredListSkipsToday() throws Exception {
+        startLoader(null);
+        waitForWholeList();
+        ForecastList stored = ForecastListStore.read(mContext);
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mLoader.reset();
+            }
+        });
+        mDelivered.clear();
+
+        // As on a cold start that shows the stored list while the loader runs
+        startLoader(stored);
+        waitForWholeList();
+
+        assertSame("Error: The stored list wasn't delivered first", stored, mDelivered.get(0));
+        ForecastList last = mDelivered.get(mDelivered.size() - 1);
+        assertEquals(DAYS, last.size());
+        assertNotNull(last.diff);
+        assertTrue(last.diff.appliesTo(stored));
+        assertTrue("Error: The live list differs from the one just stored", last.diff.isEmpty());
+    }
+
+    private void startLoader(final ForecastList initial) throws Exception {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mLoader = new ForecastLoader(mContext, initial);
+                mLoader.registerListener(0, new Loader.OnLoadCompleteListener<ForecastList>() {
+                    @Override
+                    public void onLoadComplete(Loader<ForecastList> loader, ForecastList data) {
+                        mDelivered.add(data);
+                    }
+                });
+                mLoader.startLoading();
+            }
+        });
+    }
+
+    private void waitForWholeList() throws Exception {
+        PollingCheck.check("Error: The whole list wasn't delivered", WAIT_MILLIS,
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        synchronized (mDelivered) {
+                            return !mDelivered.isEmpty()
+                                    && !mDelivered.get(mDelivered.size() - 1).provisional;
+                        }
+                    }
+                });
+    }
+
+    private void runOnMainThread(final Runnable runnable) throws Exception {
+        final boolean[] done = new boolean[1];
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                runnable.run();
+                synchronized (done) {
+                    done[0] = true;
+                }
+            }
+        });
+        PollingCheck.check("Error: The main thread didn't run the task", WAIT_MILLIS,
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        synchronized (done) {
+                            return done[0];
+                        }
+                    }
+                });
+    }
+}
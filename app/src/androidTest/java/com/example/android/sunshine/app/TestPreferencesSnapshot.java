@@ -0,0 +1,106 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.TestUtilities;
+
+/*
+    Checks that the snapshot follows the stored settings, and benchmarks reading the settings a
+    list bind needs through it against reading them from SharedPreferences the way Utility used to.
+ */
+public class TestPreferencesSnapshot extends AndroidTestCase {
+    public static final String LOG_TAG = TestPreferencesSnapshot.class.getSimpleName();
+
+    private static final int READS = 20000;
+
+    private SharedPreferences mPrefs;
+    private String mUnitsKey;
+    private String mSavedUnits;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = TestUtilities.getPreferences(mContext);
+        mUnitsKey = TestUtilities.getUnitsKey(mContext);
+        mSavedUnits = mPrefs.getString(mUnitsKey, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mSavedUnits == null) {
+            mPrefs.edit().remove(mUnitsKey).commit();
+        } else {
+            mPrefs.edit().putString(mUnitsKey, mSavedUnits).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testFollowsChanges() {
+        mPrefs.edit()
+                .putString(mUnitsKey, mContext.getString(R.string.pref_units_imperial))
+                .commit();
+        PreferencesSnapshot.refresh(mContext);
+        PreferencesSnapshot imperial = PreferencesSnapshot.get(mContext);
+        assertFalse(imperial.metric);
+        assertFalse(Utility.isMetric(mContext));
+
+        mPrefs.edit()
+                .putString(mUnitsKey, mContext.getString(R.string.pref_units_metric))
+                .commit();
+        PreferencesSnapshot.refresh(mContext);
+        assertTrue(PreferencesSnapshot.get(mContext).metric);
+        assertFalse("Error: A snapshot changed after it was taken", imperial.metric);
+    }
+
+    public void testBenchmarkReads() {
+        // Warm up both paths, so class loading and the first read of the file don't count
+        readFromPreferences(mContext);
+        readFromSnapshot(mContext);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < READS; i++) {
+            readFromPreferences(mContext);
+        }
+        long preferencesNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < READS; i++) {
+            readFromSnapshot(mContext);
+        }
+        long snapshotNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(LOG_TAG, "SharedPreferences: " + (preferencesNanos / READS) + "ns per read");
+        Log.i(LOG_TAG, "Snapshot: " + (snapshotNanos / READS) + "ns per read");
+    }
+
+    /**
+     * What Utility.isMetric, usingLocalGraphics and getArtPack did before the snapshot.
+     */
+    private static boolean readFromPreferences(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean metric = prefs.getString(context.getString(R.string.pref_units_key),
+                context.getString(R.string.pref_units_metric))
+                .equals(context.getString(R.string.pref_units_metric));
+        prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        boolean localGraphics = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                sunshineArtPack).equals(sunshineArtPack);
+        prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String artPack = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                context.getString(R.string.pref_art_pack_sunshine));
+        return metric && localGraphics && artPack != null;
+    }
+
+    private static boolean readFromSnapshot(Context context) {
+        boolean metric = Utility.isMetric(context);
+        boolean localGraphics = Utility.usingLocalGraphics(context);
+        String artPack = Utility.getArtPack(context);
+        return metric && localGraphics && artPack != null;
+    }
+}
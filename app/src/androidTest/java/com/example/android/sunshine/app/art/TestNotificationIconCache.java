@@ -0,0 +1,117 @@
+package com.example.android.sunshine.app.art;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.sync.LatencyHistogram;
+
+/*
+    Checks the cached notification icons, and benchmarks posting a notification with the icon
+    decoded from the full size art, as it used to be, against taking it from the cache.
+ */
+public class TestNotificationIconCache extends AndroidTestCase {
+    public static final String LOG_TAG = TestNotificationIconCache.class.getSimpleName();
+
+    private static final int NOTIFICATION_ID = 9032;
+    private static final int POSTS = 50;
+    private static final int[] WEATHER_IDS = {200, 300, 500, 511, 600, 701, 800, 801, 802};
+
+    private String mSavedArtPack;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Use the bundled pack so the fill doesn't depend on the network
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        mSavedArtPack = prefs.getString(key, null);
+        prefs.edit().putString(key, mContext.getString(R.string.pref_art_pack_sunshine)).commit();
+        // Committed off the main thread, so the snapshot's listener hasn't run yet
+        PreferencesSnapshot.refresh(mContext);
+        NotificationIconCache.getInstance(mContext).fill();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        getNotificationManager().cancel(NOTIFICATION_ID);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        if (mSavedArtPack == null) {
+            prefs.edit().remove(key).commit();
+        } else {
+            prefs.edit().putString(key, mSavedArtPack).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testIconsFitLargeIconSize() {
+        Resources resources = mContext.getResources();
+        int width = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+        NotificationIconCache cache = NotificationIconCache.getInstance(mContext);
+        for (int weatherId : WEATHER_IDS) {
+            Bitmap icon = cache.getLargeIcon(weatherId);
+            assertNotNull("Error: No icon for weather id " + weatherId, icon);
+            assertTrue("Error: Icon for " + weatherId + " is " + icon.getWidth() + "x"
+                    + icon.getHeight() + ", larger than " + width + "x" + height,
+                    icon.getWidth() <= width && icon.getHeight() <= height);
+        }
+        assertNull(cache.getLargeIcon(-1));
+    }
+
+    public void testSampleSize() {
+        assertEquals(1, ScaledArtCache.calculateSampleSize(100, 100, 64, 64));
+        assertEquals(4, ScaledArtCache.calculateSampleSize(512, 512, 128, 128));
+        // Never samples below the target, in either direction
+        assertEquals(2, ScaledArtCache.calculateSampleSize(512, 300, 128, 128));
+    }
+
+    public void testBenchmarkNotificationPost() {
+        NotificationIconCache cache = NotificationIconCache.getInstance(mContext);
+        LatencyHistogram decoded = new LatencyHistogram();
+        LatencyHistogram cached = new LatencyHistogram();
+
+        for (int i = 0; i < POSTS; i++) {
+            int weatherId = WEATHER_IDS[i % WEATHER_IDS.length];
+
+            long start = SystemClock.elapsedRealtime();
+            Bitmap largeIcon = BitmapFactory.decodeResource(mContext.getResources(),
+                    Utility.getArtResourceForWeatherCondition(weatherId));
+            post(largeIcon);
+            decoded.record(SystemClock.elapsedRealtime() - start);
+
+            start = SystemClock.elapsedRealtime();
+            post(cache.getLargeIcon(weatherId));
+            cached.record(SystemClock.elapsedRealtime() - start);
+        }
+
+        Log.i(LOG_TAG, "Posting with decoded art: " + decoded);
+        Log.i(LOG_TAG, "Posting with cached icons: " + cached);
+    }
+
+    private void post(Bitmap largeIcon) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext)
+                .setSmallIcon(R.drawable.ic_clear)
+                .setLargeIcon(largeIcon)
+                .setContentTitle(LOG_TAG)
+                .setContentText(LOG_TAG);
+        getNotificationManager().notify(NOTIFICATION_ID, builder.build());
+    }
+
+    private NotificationManager getNotificationManager() {
+        return (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
+    }
+}
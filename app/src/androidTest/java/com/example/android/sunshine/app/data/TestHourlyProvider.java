@@ -0,0 +1,180 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+
+/*
+    Tests the hourly table through the provider, and benchmarks it with as many locations as a
+    heavy user could plausibly have synced.  The timings are logged so they can be compared
+    between devices and schema changes.
+ */
+public class TestHourlyProvider extends AndroidTestCase {
+    public static final String LOG_TAG = TestHourlyProvider.class.getSimpleName();
+
+    private static final long STEP_SECONDS = 3 * 60 * 60;
+    // OWM's 5 day forecast has 40 steps of 3 hours
+    private static final int STEPS_PER_LOCATION = 40;
+    private static final int BENCHMARK_LOCATIONS = 50;
+    private static final int BENCHMARK_QUERIES = 200;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    private void deleteAllRecords() {
+        mContext.getContentResolver().delete(HourlyEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testGetType() {
+        assertEquals("Error: the HourlyEntry CONTENT_URI should return HourlyEntry.CONTENT_TYPE",
+                HourlyEntry.CONTENT_TYPE,
+                mContext.getContentResolver().getType(HourlyEntry.CONTENT_URI));
+        assertEquals("Error: the hourly day slice should return HourlyEntry.CONTENT_TYPE",
+                HourlyEntry.CONTENT_TYPE,
+                mContext.getContentResolver().getType(HourlyEntry.buildHourlyLocationWithDate(
+                        TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE)));
+    }
+
+    public void testScaledValues() {
+        assertEquals(-1234L, HourlyEntry.toScaled(-12.34, HourlyEntry.TEMP_SCALE));
+        assertEquals(-12.34, HourlyEntry.fromScaled(-1234, HourlyEntry.TEMP_SCALE), 1e-9);
+        assertEquals(10135L, HourlyEntry.toScaled(1013.51, HourlyEntry.PRESSURE_SCALE));
+    }
+
+    public void testDaySlice() {
+        long locationId = insertLocation(TestUtilities.TEST_LOCATION);
+        // A second location on the same days must not show up in the slice
+        long otherLocationId = insertLocation("other");
+        long dayStart = WeatherContract.normalizeDate(TestUtilities.TEST_DATE);
+
+        int inserted = mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                createSteps(locationId, dayStart / 1000 - STEP_SECONDS, 10));
+        mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                createSteps(otherLocationId, dayStart / 1000, 8));
+        assertEquals("Error: Not every step was inserted", 10, inserted);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                HourlyEntry.buildHourlyLocationWithDate(TestUtilities.TEST_LOCATION, dayStart),
+                new String[]{HourlyEntry.COLUMN_TIMESTAMP, HourlyEntry.COLUMN_TEMP},
+                null, null, null);
+
+        // One step falls on the day before, and one on the day after
+        assertEquals("Error: Wrong number of steps in the day slice", 8, cursor.getCount());
+        long previous = Long.MIN_VALUE;
+        while (cursor.moveToNext()) {
+            long timestamp = cursor.getLong(0);
+            assertTrue("Error: Step outside of the day", timestamp >= dayStart / 1000
+                    && timestamp < dayStart / 1000 + 24 * 60 * 60);
+            assertTrue("Error: Steps are not in time order", timestamp > previous);
+            previous = timestamp;
+        }
+        cursor.close();
+    }
+
+    public void testReinsertReplaces() {
+        long locationId = insertLocation(TestUtilities.TEST_LOCATION);
+        long start = WeatherContract.normalizeDate(TestUtilities.TEST_DATE) / 1000;
+        mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                createSteps(locationId, start, 8));
+        mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                createSteps(locationId, start, 8));
+
+        Cursor cursor = mContext.getContentResolver().query(HourlyEntry.CONTENT_URI,
+                null, null, null, null);
+        assertEquals("Error: A re-synced step should replace the old one", 8, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testQueryUsesIndex() {
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext);
+        Cursor plan = dbHelper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN SELECT * FROM "
+                + HourlyEntry.TABLE_NAME + " WHERE " + HourlyEntry.COLUMN_LOC_KEY + " = 1 AND "
+                + HourlyEntry.COLUMN_TIMESTAMP + " >= 0 AND "
+                + HourlyEntry.COLUMN_TIMESTAMP + " < 86400", null);
+        StringBuilder detail = new StringBuilder();
+        int detailColumn = plan.getColumnIndex("detail");
+        while (plan.moveToNext()) {
+            detail.append(plan.getString(detailColumn)).append('\n');
+        }
+        plan.close();
+        dbHelper.close();
+
+        assertTrue("Error: The day slice is not served from the (location_id, ts) index: "
+                + detail, detail.indexOf("INDEX") >= 0);
+    }
+
+    public void testBenchmarkMultiLocation() {
+        long start = WeatherContract.normalizeDate(TestUtilities.TEST_DATE) / 1000;
+        long[] locationIds = new long[BENCHMARK_LOCATIONS];
+        for (int i = 0; i < BENCHMARK_LOCATIONS; i++) {
+            locationIds[i] = insertLocation("location" + i);
+        }
+
+        long insertStart = SystemClock.elapsedRealtime();
+        for (long locationId : locationIds) {
+            mContext.getContentResolver().bulkInsert(HourlyEntry.CONTENT_URI,
+                    createSteps(locationId, start, STEPS_PER_LOCATION));
+        }
+        long insertMillis = SystemClock.elapsedRealtime() - insertStart;
+        int rows = BENCHMARK_LOCATIONS * STEPS_PER_LOCATION;
+        Log.i(LOG_TAG, "Inserted " + rows + " hourly rows for " + BENCHMARK_LOCATIONS
+                + " locations in " + insertMillis + "ms ("
+                + (rows * 1000L / Math.max(1, insertMillis)) + " rows/s)");
+
+        long queryStart = SystemClock.elapsedRealtime();
+        for (int i = 0; i < BENCHMARK_QUERIES; i++) {
+            Uri uri = HourlyEntry.buildHourlyLocationWithDate("location" + (i % BENCHMARK_LOCATIONS),
+                    (start + (i % 5) * 24 * 60 * 60) * 1000);
+            Cursor cursor = mContext.getContentResolver().query(uri, null, null, null, null);
+            assertEquals("Error: Wrong number of steps in the day slice", 8, cursor.getCount());
+            cursor.close();
+        }
+        long queryMillis = SystemClock.elapsedRealtime() - queryStart;
+        Log.i(LOG_TAG, "Queried " + BENCHMARK_QUERIES + " day slices in " + queryMillis
+                + "ms (" + (queryMillis * 1000 / BENCHMARK_QUERIES) + "us per slice)");
+    }
+
+    private long insertLocation(String locationSetting) {
+        ContentValues values = TestUtilities.createNorthPoleLocationValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        Uri uri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values);
+        return ContentUris.parseId(uri);
+    }
+
+    static ContentValues[] createSteps(long locationId, long startSeconds, int count) {
+        ContentValues[] steps = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            ContentValues values = new ContentValues();
+            values.put(HourlyEntry.COLUMN_LOC_KEY, locationId);
+            values.put(HourlyEntry.COLUMN_TIMESTAMP, startSeconds + i * STEP_SECONDS);
+            values.put(HourlyEntry.COLUMN_WEATHER_ID, 800);
+            values.put(HourlyEntry.COLUMN_TEMP,
+                    HourlyEntry.toScaled(10.5 + i, HourlyEntry.TEMP_SCALE));
+            values.put(HourlyEntry.COLUMN_WIND_SPEED,
+                    HourlyEntry.toScaled(3.2, HourlyEntry.WIND_SPEED_SCALE));
+            values.put(HourlyEntry.COLUMN_PRESSURE,
+                    HourlyEntry.toScaled(1013.2, HourlyEntry.PRESSURE_SCALE));
+            values.put(HourlyEntry.COLUMN_HUMIDITY, 60);
+            steps[i] = values;
+        }
+        return steps;
+    }
+}
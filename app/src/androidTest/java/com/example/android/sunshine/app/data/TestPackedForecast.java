@@ -0,0 +1,219 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SyncLogEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/*
+    Checks a packed forecast reads back as the provider's cursor does and is dropped when the
+    weather tables change but not the sync log, and measures it against reading the provider's
+    cursor window: the time to load the forecast, the time to read every field of it, and the
+    memory each takes.
+ */
+public class TestPackedForecast extends AndroidTestCase {
+    public static final String LOG_TAG = TestPackedForecast.class.getSimpleName();
+
+    private static final int DAYS = 14;
+    private static final int LOADS = 50;
+    private static final int BINDS = 500;
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
+
+    private Uri mForecastUri;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        long locationRowId = Long.parseLong(locationUri.getLastPathSegment());
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            days[i] = TestUtilities.createWeatherValues(locationRowId);
+            days[i].put(WeatherEntry.COLUMN_DATE, TestUtilities.TEST_DATE + i * DAY_IN_MILLIS);
+            days[i].put(WeatherEntry.COLUMN_MAX_TEMP, 20.5 + i);
+        }
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, days);
+        mForecastUri = WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        super.tearDown();
+    }
+
+    public void testCursorMatchesProvider() {
+        Cursor expected = query();
+        PackedForecast forecast = PackedForecast.from(expected);
+        Cursor actual = forecast.toCursor(PackedForecast.COLUMNS, 0, forecast.size);
+        try {
+            assertEquals(DAYS, actual.getCount());
+            assertEquals(expected.getColumnCount(), actual.getColumnCount());
+            for (int i = 0; expected.moveToPosition(i); i++) {
+                assertTrue(actual.moveToPosition(i));
+                for (int column = 0; column < expected.getColumnCount(); column++) {
+                    String name = expected.getColumnName(column);
+                    assertEquals(name, actual.getColumnName(column));
+                    if (expected.getType(column) == Cursor.FIELD_TYPE_FLOAT) {
+                        assertEquals("Error: " + name + " differs", expected.getDouble(column),
+                                actual.getDouble(column), 0.001);
+                    } else {
+                        assertEquals("Error: " + name + " differs", expected.getString(column),
+                                actual.getString(column));
+                    }
+                }
+            }
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    public void testCacheDroppedOnWrite() {
+        long generation = PackedForecastCache.getGeneration();
+        Cursor cursor = query();
+        PackedForecast forecast = PackedForecast.from(cursor);
+        cursor.close();
+        PackedForecastCache.put(forecast, generation);
+        assertSame(forecast, PackedForecastCache.get(TestUtilities.TEST_LOCATION));
+
+        Uri dayUri = WeatherEntry.buildWeatherLocationWithDate(TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE + DAY_IN_MILLIS);
+        Cursor day = PackedForecastCache.query(mContext, dayUri, PackedForecast.COLUMNS);
+        assertNotNull("Error: A loaded day wasn't served from the cache", day);
+        assertEquals(1, day.getCount());
+        day.close();
+
+        ContentValues values = new ContentValues();
+        values.put(WeatherEntry.COLUMN_MAX_TEMP, 30);
+        mContext.getContentResolver().update(WeatherEntry.CONTENT_URI, values, null, null);
+        assertNull("Error: The cache kept a forecast after a write",
+                PackedForecastCache.get(TestUtilities.TEST_LOCATION));
+
+        // A forecast queried before the write is stale, so it isn't kept
+        PackedForecastCache.put(forecast, generation);
+        assertNull(PackedForecastCache.get(TestUtilities.TEST_LOCATION));
+    }
+
+    public void testCacheKeptOnSyncLogWrite() {
+        long generation = PackedForecastCache.getGeneration();
+        Cursor cursor = query();
+        PackedForecast forecast = PackedForecast.from(cursor);
+        cursor.close();
+        PackedForecastCache.put(forecast, generation);
+
+        // As SyncTrafficLog writes and prunes after every sync
+        ContentValues values = new ContentValues();
+        values.put(SyncLogEntry.COLUMN_STARTED, TestUtilities.TEST_DATE);
+        values.put(SyncLogEntry.COLUMN_DURATION, 1000);
+        values.put(SyncLogEntry.COLUMN_NETWORK_TYPE, "WIFI");
+        values.put(SyncLogEntry.COLUMN_METERED, 0);
+        values.put(SyncLogEntry.COLUMN_ROAMING, 0);
+        values.put(SyncLogEntry.COLUMN_MODE, SyncLogEntry.MODE_FULL);
+        values.put(SyncLogEntry.COLUMN_DAYS, DAYS);
+        values.put(SyncLogEntry.COLUMN_RX_BYTES, 4096);
+        values.put(SyncLogEntry.COLUMN_TX_BYTES, 512);
+        mContext.getContentResolver().insert(SyncLogEntry.CONTENT_URI, values);
+        mContext.getContentResolver().delete(SyncLogEntry.CONTENT_URI,
+                SyncLogEntry.COLUMN_STARTED + " <= ?",
+                new String[] {Long.toString(TestUtilities.TEST_DATE)});
+
+        assertSame("Error: A sync log write dropped the forecast", forecast,
+                PackedForecastCache.get(TestUtilities.TEST_LOCATION));
+    }
+
+    public void testBenchmark() {
+        // Warm up, so class loading and the first open of the database don't count
+        Cursor warmUp = query();
+        readWindow(warmUp);
+        PackedForecast.from(warmUp);
+        warmUp.close();
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < LOADS; i++) {
+            Cursor cursor = query();
+            cursor.getCount();
+            cursor.close();
+        }
+        long windowLoadNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < LOADS; i++) {
+            Cursor cursor = query();
+            PackedForecast.from(cursor);
+            cursor.close();
+        }
+        long packedLoadNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        long nativeBefore = Debug.getNativeHeapAllocatedSize();
+        Cursor window = query();
+        // Fills the window
+        window.getCount();
+        long windowBytes = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+        PackedForecast forecast = PackedForecast.from(window);
+
+        start = SystemClock.elapsedRealtimeNanos();
+        double sum = 0;
+        for (int i = 0; i < BINDS; i++) {
+            sum += readWindow(window);
+        }
+        long windowBindNanos = SystemClock.elapsedRealtimeNanos() - start;
+        window.close();
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < BINDS; i++) {
+            sum -= readPacked(forecast);
+        }
+        long packedBindNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(LOG_TAG, "Cursor window: load " + (windowLoadNanos / LOADS / 1000) + "us, read "
+                + (windowBindNanos / BINDS / 1000) + "us per forecast, about "
+                + windowBytes + " native bytes");
+        Log.i(LOG_TAG, "Packed: load " + (packedLoadNanos / LOADS / 1000) + "us, read "
+                + (packedBindNanos / BINDS / 1000) + "us per forecast, about "
+                + forecast.getSizeInBytes() + " heap bytes");
+        assertEquals("Error: The packed forecast read different values", 0, sum, 1);
+    }
+
+    private Cursor query() {
+        return mContext.getContentResolver().query(mForecastUri, PackedForecast.COLUMNS, null,
+                null, WeatherEntry.COLUMN_DATE + " ASC");
+    }
+
+    /**
+     * Reads the fields the list and the detail view bind, through the cursor.
+     */
+    private static double readWindow(Cursor cursor) {
+        double sum = 0;
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            sum += cursor.getLong(1) / DAY_IN_MILLIS + cursor.getString(2).length()
+                    + cursor.getDouble(3) + cursor.getDouble(4) + cursor.getFloat(5)
+                    + cursor.getFloat(6) + cursor.getFloat(7) + cursor.getFloat(8)
+                    + cursor.getInt(9);
+        }
+        return sum;
+    }
+
+    private static double readPacked(PackedForecast forecast) {
+        double sum = 0;
+        for (int i = 0; i < forecast.size; i++) {
+            sum += forecast.dates[i] / DAY_IN_MILLIS + forecast.descriptions[i].length()
+                    + forecast.high[i] + forecast.low[i] + forecast.humidity[i]
+                    + forecast.pressure[i] + forecast.windSpeed[i] + forecast.degrees[i]
+                    + forecast.weatherIds[i];
+        }
+        return sum;
+    }
+}
@@ -17,14 +17,18 @@ package com.example.android.sunshine.app.data;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.ContentObserver;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.preference.PreferenceManager;
 import android.test.AndroidTestCase;
 
+import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.utils.PollingCheck;
 
 import java.util.Map;
@@ -38,6 +42,7 @@ import java.util.Set;
 public class TestUtilities extends AndroidTestCase {
     static final String TEST_LOCATION = "99705";
     static final long TEST_DATE = 1419033600L;  // December 20th, 2014
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000;
 
     static void validateCursor(String error, Cursor valueCursor, ContentValues expectedValues) {
         assertTrue("Empty cursor returned. " + error, valueCursor.moveToFirst());
@@ -111,6 +116,27 @@ public class TestUtilities extends AndroidTestCase {
         return locationRowId;
     }
 
+    /*
+        A forecast of clear days starting today, with every column a PackedForecast reads, for
+        tests that build the list without the provider.
+     */
+    public static MatrixCursor createForecastCursor(long today, int days) {
+        MatrixCursor cursor = new MatrixCursor(PackedForecast.COLUMNS);
+        for (int i = 0; i < days; i++) {
+            cursor.addRow(new Object[]{i, today + i * DAY_IN_MILLIS, "Clear", 20.0 + i, 10.0 + i,
+                    50.0, 1013.0, 5.0, 90.0, 800, "94043", "37.39", "-122.08"});
+        }
+        return cursor;
+    }
+
+    public static SharedPreferences getPreferences(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context);
+    }
+
+    public static String getUnitsKey(Context context) {
+        return context.getString(R.string.pref_units_key);
+    }
+
     /*
         Students: The functions we provide inside of TestProvider use this utility class to test
         the ContentObserver callbacks using the PollingCheck class that we grabbed from the Android
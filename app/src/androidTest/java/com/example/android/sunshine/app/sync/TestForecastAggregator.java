@@ -0,0 +1,168 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.utils.LatencyServer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestForecastAggregator extends AndroidTestCase {
+
+    private static final int START_DAY = 2457450;
+    private static final ForecastRequest REQUEST =
+            new ForecastRequest("94043", false, 0, 0, 3);
+
+    private LatencyServer mServer;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mServer != null) {
+            mServer.shutdown();
+        }
+        super.tearDown();
+    }
+
+    public void testPreferPrimary() {
+        ForecastAggregator aggregator = new ForecastAggregator(Arrays.<ForecastSource>asList(
+                new FakeSource("primary", 0, START_DAY, 2, 20),
+                new FakeSource("backup", 0, START_DAY, 3, 10)));
+
+        ForecastResult result = aggregator.aggregate(REQUEST, 1000,
+                ForecastAggregator.MergePolicy.PREFER_PRIMARY);
+
+        assertEquals("Error: Wrong number of merged days", 3, result.days.size());
+        assertEquals("primary", result.days.get(0).source);
+        assertEquals(20.0, result.days.get(0).high);
+        assertEquals("primary", result.days.get(1).source);
+        // Only the backup had the third day
+        assertEquals("backup", result.days.get(2).source);
+        assertEquals("Error: City should come from the primary", "primary", result.cityName);
+    }
+
+    public void testAverageTemperatures() {
+        ForecastAggregator aggregator = new ForecastAggregator(Arrays.<ForecastSource>asList(
+                new FakeSource("primary", 0, START_DAY, 1, 20),
+                new FakeSource("backup", 0, START_DAY, 1, 10)));
+
+        ForecastResult result = aggregator.aggregate(REQUEST, 1000,
+                ForecastAggregator.MergePolicy.AVERAGE_TEMPERATURES);
+
+        assertEquals(1, result.days.size());
+        ForecastDay day = result.days.get(0);
+        assertEquals(15.0, day.high);
+        assertEquals(5.0, day.low);
+        assertEquals("primary+backup", day.source);
+    }
+
+    public void testSlowSourceDoesNotDelaySync() {
+        ForecastAggregator aggregator = new ForecastAggregator(Arrays.<ForecastSource>asList(
+                new FakeSource("primary", 5000, START_DAY, 3, 20),
+                new FakeSource("backup", 10, START_DAY, 3, 10)));
+
+        long start = SystemClock.elapsedRealtime();
+        ForecastResult result = aggregator.aggregate(REQUEST, 300,
+                ForecastAggregator.MergePolicy.PREFER_PRIMARY);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertTrue("Error: Aggregation took " + elapsed + "ms with a 300ms deadline",
+                elapsed < 1000);
+        assertEquals(3, result.days.size());
+        assertEquals("backup", result.days.get(0).source);
+        assertEquals(1, aggregator.getStats("primary").getTimeouts());
+        assertEquals(1, aggregator.getStats("backup").getSuccesses());
+    }
+
+    public void testAllSourcesDown() {
+        ForecastAggregator aggregator = new ForecastAggregator(Arrays.<ForecastSource>asList(
+                new FailingSource("primary"), new FailingSource("backup")));
+
+        ForecastResult result = aggregator.aggregate(REQUEST, 1000,
+                ForecastAggregator.MergePolicy.PREFER_PRIMARY);
+
+        assertFalse(result.hasDays());
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN, result.status);
+        assertEquals(0.0, aggregator.getStats("primary").getSuccessRate());
+    }
+
+    public void testJsonSourceAgainstStub() throws Throwable {
+        Time time = new Time();
+        long date = time.setJulianDay(START_DAY) / 1000;
+        String body = "{\"location\":{\"name\":\"Mountain View\",\"lat\":37.39,\"lon\":-122.08},"
+                + "\"days\":[{\"date\":" + date + ",\"condition\":800,\"summary\":\"Clear\","
+                + "\"min\":8.5,\"max\":17.5,\"humidity\":60,\"pressure\":1021.5,"
+                + "\"wind_speed\":2.4,\"wind_deg\":310}]}";
+        mServer = new LatencyServer(body, new LatencyServer.LatencyModel() {
+            @Override
+            public long latencyFor(int requestNumber) {
+                return 0;
+            }
+        });
+        JsonForecastSource source = new JsonForecastSource("stub", mServer.getUrl(),
+                new ForecastFetcher(new RequestQuota(10, 60 * 1000), false));
+
+        ForecastResult result = source.fetch(REQUEST);
+
+        assertEquals("Mountain View", result.cityName);
+        assertEquals(1, result.days.size());
+        ForecastDay day = result.days.get(0);
+        assertEquals(START_DAY, day.julianDay);
+        assertEquals(800, day.weatherId);
+        assertEquals(17.5, day.high);
+        assertEquals("stub", day.source);
+    }
+
+    private static class FakeSource implements ForecastSource {
+        private final String mName;
+        private final long mDelayMillis;
+        private final int mStartDay;
+        private final int mDays;
+        private final double mHigh;
+
+        FakeSource(String name, long delayMillis, int startDay, int days, double high) {
+            mName = name;
+            mDelayMillis = delayMillis;
+            mStartDay = startDay;
+            mDays = days;
+            mHigh = high;
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public ForecastResult fetch(ForecastRequest request) throws IOException {
+            SystemClock.sleep(mDelayMillis);
+            List<ForecastDay> days = new ArrayList<ForecastDay>();
+            for (int i = 0; i < mDays; i++) {
+                days.add(new ForecastDay(mStartDay + i, 800, "Clear", mHigh, mHigh - 10,
+                        50, 1000, 1, 0, mName));
+            }
+            return new ForecastResult(mName, 0, 0, days);
+        }
+    }
+
+    private static class FailingSource implements ForecastSource {
+        private final String mName;
+
+        FailingSource(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public ForecastResult fetch(ForecastRequest request) throws IOException {
+            throw new IOException("Server unavailable");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.data.PackedForecast;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/*
+    Applies deltas recorded from the push server to a stored three day forecast, and checks only
+    the fields they change are stored, that older deltas arriving late are dropped, and that
+    deltas that can't be applied change nothing.
+ */
+public class TestForecastDeltaApplier extends AndroidTestCase {
+
+    private static final String PREFS_NAME = "test_forecast_delta";
+    private static final String LOCATION = "99705";
+    private static final int DAYS = 3;
+    // Julian day of the Unix epoch
+    private static final int EPOCH_JULIAN_DAY = 2440588;
+
+    // Recorded deltas; %1$d to %4$d are the days from today, in UTC seconds
+    private static final String DELTA_RAIN_TOMORROW = "{\"version\":1,\"location\":\"99705\","
+            + "\"revision\":2,\"from\":%1$d,\"to\":%3$d,\"days\":[{\"date\":%2$d,"
+            + "\"condition\":500,\"summary\":\"Rain\",\"max\":12.5}]}";
+    // Sent before DELTA_RAIN_TOMORROW, but delivered after it
+    private static final String DELTA_SNOW_TOMORROW = "{\"version\":1,\"location\":\"99705\","
+            + "\"revision\":1,\"from\":%1$d,\"to\":%3$d,\"days\":[{\"date\":%2$d,"
+            + "\"condition\":600,\"summary\":\"Snow\",\"max\":2.0}]}";
+    private static final String DELTA_SUMMARY_TOMORROW = "{\"version\":1,"
+            + "\"location\":\"99705\",\"revision\":3,\"from\":%1$d,\"to\":%3$d,"
+            + "\"days\":[{\"date\":%2$d,\"summary\":\"Clear skies\"}]}";
+    private static final String DELTA_NO_REVISION = "{\"version\":1,\"location\":\"99705\","
+            + "\"from\":%1$d,\"to\":%3$d,\"days\":[{\"date\":%2$d,\"max\":12.5}]}";
+    private static final String DELTA_VERSION_2 = "{\"version\":2,\"location\":\"99705\","
+            + "\"revision\":1,\"from\":%1$d,\"to\":%3$d,\"days\":[{\"date\":%2$d,"
+            + "\"max\":12.5}]}";
+    private static final String DELTA_OTHER_LOCATION = "{\"version\":1,\"location\":\"94043\","
+            + "\"revision\":1,\"from\":%1$d,\"to\":%3$d,\"days\":[{\"date\":%2$d,"
+            + "\"max\":12.5}]}";
+    private static final String DELTA_INCOMPLETE_NEW_DAY = "{\"version\":1,"
+            + "\"location\":\"99705\",\"revision\":1,\"from\":%1$d,\"to\":%4$d,"
+            + "\"days\":[{\"date\":%2$d,\"max\":12.5},{\"date\":%4$d,\"max\":9.0,\"min\":3.0}]}";
+    private static final String DELTA_OUT_OF_RANGE = "{\"version\":1,\"location\":\"99705\","
+            + "\"revision\":1,\"from\":%1$d,\"to\":%2$d,\"days\":[{\"date\":%3$d,"
+            + "\"max\":12.5}]}";
+
+    private SharedPreferences mPrefs;
+    private String mSavedLocation;
+    private int mFirstDay;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_location_key);
+        mSavedLocation = prefs.getString(key, null);
+        prefs.edit().putString(key, LOCATION).commit();
+        // Committed off the main thread, so the snapshot's listener hasn't run yet
+        PreferencesSnapshot.refresh(mContext);
+
+        Time time = new Time();
+        time.setToNow();
+        mFirstDay = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+        List<ForecastDay> days = new ArrayList<ForecastDay>(DAYS);
+        for (int i = 0; i < DAYS; i++) {
+            days.add(new ForecastDay(mFirstDay + i, 800, "Clear", 20 + i, 10 + i, 50, 1010, 3,
+                    180, "owm"));
+        }
+        new ForecastWriter(mContext).write(LOCATION,
+                new ForecastResult("North Pole", 64.7488, -147.353, days));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        long locationId = new ForecastWriter(mContext).addLocation(LOCATION, "North Pole",
+                64.7488, -147.353);
+        mContext.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ?",
+                new String[] {Long.toString(locationId)});
+        mContext.getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI,
+                WeatherContract.LocationEntry._ID + " = ?",
+                new String[] {Long.toString(locationId)});
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_location_key);
+        if (mSavedLocation == null) {
+            prefs.edit().remove(key).commit();
+        } else {
+            prefs.edit().putString(key, mSavedLocation).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        mPrefs.edit().clear().commit();
+        super.tearDown();
+    }
+
+    public void testAppliesChangedFields() {
+        ForecastDeltaApplier applier = new ForecastDeltaApplier(mContext, mPrefs);
+        assertEquals(ForecastDeltaApplier.OUTCOME_APPLIED,
+                applier.apply(format(DELTA_RAIN_TOMORROW)));
+
+        PackedForecast stored = queryStored();
+        assertEquals("Error: The delta added or removed days", DAYS, stored.size);
+        // Tomorrow has the changed fields and keeps the others
+        assertEquals(500, stored.weatherIds[1]);
+        assertEquals("Rain", stored.descriptions[1]);
+        assertEquals(12.5f, stored.high[1]);
+        assertEquals(11f, stored.low[1]);
+        assertEquals(50f, stored.humidity[1]);
+        // The other days are untouched
+        assertEquals(800, stored.weatherIds[0]);
+        assertEquals(20f, stored.high[0]);
+        assertEquals(22f, stored.high[2]);
+
+        ForecastSnapshot snapshot = applier.getSnapshot();
+        assertNotNull(snapshot);
+        assertEquals("Error: The snapshot should hold the whole forecast", DAYS,
+                snapshot.days.size());
+        assertEquals(mFirstDay + 1, snapshot.days.get(1).julianDay);
+        assertEquals(500, snapshot.days.get(1).weatherId);
+        assertNotNull(snapshot.today);
+        assertEquals(20.0, snapshot.today.high);
+    }
+
+    public void testOlderDeltaDropped() {
+        ForecastDeltaApplier applier = new ForecastDeltaApplier(mContext, mPrefs);
+        assertEquals(ForecastDeltaApplier.OUTCOME_APPLIED,
+                applier.apply(format(DELTA_RAIN_TOMORROW)));
+
+        assertEquals("Error: An older delta was applied over a newer one",
+                ForecastDeltaApplier.OUTCOME_STALE, applier.apply(format(DELTA_SNOW_TOMORROW)));
+        assertNull(applier.getSnapshot());
+        assertEquals("Error: A repeated delta was applied again",
+                ForecastDeltaApplier.OUTCOME_STALE, applier.apply(format(DELTA_RAIN_TOMORROW)));
+
+        PackedForecast stored = queryStored();
+        assertEquals(500, stored.weatherIds[1]);
+        assertEquals("Rain", stored.descriptions[1]);
+        assertEquals(12.5f, stored.high[1]);
+    }
+
+    public void testUnchangedFieldsKeepPrecision() {
+        // More digits than a float holds
+        double high = 20.123456789;
+        new ForecastWriter(mContext).write(LOCATION, new ForecastResult("North Pole", 64.7488,
+                -147.353, Collections.singletonList(new ForecastDay(mFirstDay + 1, 800, "Clear",
+                        high, 11, 50, 1010, 3, 180, "owm"))));
+
+        assertEquals(ForecastDeltaApplier.OUTCOME_APPLIED,
+                new ForecastDeltaApplier(mContext, mPrefs).apply(format(DELTA_SUMMARY_TOMORROW)));
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherLocation(LOCATION),
+                new String[] {WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                        WeatherContract.WeatherEntry.COLUMN_MAX_TEMP}, null, null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToPosition(1));
+            assertEquals("Clear skies", cursor.getString(0));
+            assertEquals("Error: An unchanged field lost precision", high, cursor.getDouble(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testMissingRevisionNeedsSync() {
+        assertUnchanged(DELTA_NO_REVISION, ForecastDeltaApplier.OUTCOME_NEEDS_SYNC);
+    }
+
+    public void testUnknownVersionNeedsSync() {
+        assertUnchanged(DELTA_VERSION_2, ForecastDeltaApplier.OUTCOME_NEEDS_SYNC);
+    }
+
+    public void testOtherLocationIgnored() {
+        assertUnchanged(DELTA_OTHER_LOCATION, ForecastDeltaApplier.OUTCOME_IGNORED);
+    }
+
+    public void testIncompleteNewDayNeedsSync() {
+        // Nothing is stored for the fourth day, and the delta doesn't give all of it
+        assertUnchanged(DELTA_INCOMPLETE_NEW_DAY, ForecastDeltaApplier.OUTCOME_NEEDS_SYNC);
+    }
+
+    public void testDayOutOfRangeNeedsSync() {
+        assertUnchanged(DELTA_OUT_OF_RANGE, ForecastDeltaApplier.OUTCOME_NEEDS_SYNC);
+    }
+
+    public void testMalformedNeedsSync() {
+        assertUnchanged("{\"version\":1,\"location\":", ForecastDeltaApplier.OUTCOME_NEEDS_SYNC);
+    }
+
+    private void assertUnchanged(String delta, int expectedOutcome) {
+        ForecastDeltaApplier applier = new ForecastDeltaApplier(mContext, mPrefs);
+        assertEquals(expectedOutcome, applier.apply(format(delta)));
+        assertNull(applier.getSnapshot());
+
+        PackedForecast stored = queryStored();
+        assertEquals(DAYS, stored.size);
+        for (int i = 0; i < DAYS; i++) {
+            assertEquals("Error: Day " + i + " changed", 800, stored.weatherIds[i]);
+            assertEquals("Error: Day " + i + " changed", 20f + i, stored.high[i]);
+        }
+    }
+
+    private String format(String delta) {
+        return String.format(Locale.US, delta, toUtcSeconds(mFirstDay),
+                toUtcSeconds(mFirstDay + 1), toUtcSeconds(mFirstDay + 2),
+                toUtcSeconds(mFirstDay + 3));
+    }
+
+    private static long toUtcSeconds(int julianDay) {
+        return (julianDay - EPOCH_JULIAN_DAY) * 24L * 60 * 60;
+    }
+
+    private PackedForecast queryStored() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherLocation(LOCATION),
+                PackedForecast.COLUMNS, null, null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        assertNotNull(cursor);
+        try {
+            return PackedForecast.from(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+}
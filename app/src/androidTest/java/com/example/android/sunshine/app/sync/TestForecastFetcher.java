@@ -0,0 +1,148 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.utils.LatencyServer;
+
+import java.net.URL;
+import java.util.Random;
+
+/*
+    Exercises ForecastFetcher against a local server with a long latency tail, and reports the
+    client side p99 with and without hedging.
+ */
+public class TestForecastFetcher extends AndroidTestCase {
+    public static final String LOG_TAG = TestForecastFetcher.class.getSimpleName();
+
+    private static final String BODY = "{\"cod\":\"200\",\"list\":[]}";
+    private static final int REQUESTS = 150;
+
+    // Most responses take 20-60ms, but 3% of them stall for a second and a half.
+    private static final long FAST_MIN_MILLIS = 20;
+    private static final long FAST_MAX_MILLIS = 60;
+    private static final long SLOW_MILLIS = 1500;
+    private static final double SLOW_FRACTION = 0.03;
+
+    private LatencyServer mServer;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mServer != null) {
+            mServer.shutdown();
+        }
+        super.tearDown();
+    }
+
+    public void testHedgingCutsTailLatency() throws Throwable {
+        mServer = new LatencyServer(BODY, new TailLatencyModel(42));
+        URL url = new URL(mServer.getUrl());
+
+        ForecastFetcher plain = new ForecastFetcher(new RequestQuota(10 * REQUESTS, 60 * 1000), false);
+        LatencyHistogram withoutHedging = measure(plain, url);
+
+        ForecastFetcher hedged = new ForecastFetcher(new RequestQuota(10 * REQUESTS, 60 * 1000), true);
+        LatencyHistogram withHedging = measure(hedged, url);
+
+        Log.i(LOG_TAG, "Without hedging: " + withoutHedging);
+        Log.i(LOG_TAG, "With hedging: " + withHedging + ", hedges sent " + hedged.getHedgesSent()
+                + ", hedges won " + hedged.getHedgesWon());
+
+        assertTrue("Error: Hedging should have been triggered by the slow responses",
+                hedged.getHedgesSent() > 0);
+        assertTrue("Error: Hedging did not improve the p99 latency",
+                withHedging.getPercentile(0.99) < withoutHedging.getPercentile(0.99));
+    }
+
+    public void testSlowPrimaryIsAbandoned() throws Throwable {
+        // Only the very first request is slow, so the hedge should win.
+        mServer = new LatencyServer(BODY, new LatencyServer.LatencyModel() {
+            @Override
+            public long latencyFor(int requestNumber) {
+                return requestNumber == 0 ? 5000 : 10;
+            }
+        });
+        ForecastFetcher fetcher = new ForecastFetcher(new RequestQuota(10, 60 * 1000), true);
+        fetcher.setFixedHedgeDelay(100);
+
+        long start = SystemClock.elapsedRealtime();
+        String body = fetcher.fetch(new URL(mServer.getUrl()));
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        assertEquals("Error: Unexpected response body", BODY, body.trim());
+        assertEquals("Error: The hedge should have won", 1, fetcher.getHedgesWon());
+        assertTrue("Error: The fetch waited for the slow request (" + elapsed + "ms)",
+                elapsed < 2000);
+    }
+
+    public void testCancelledRequestIsRecorded() throws Throwable {
+        mServer = new LatencyServer(BODY, new LatencyServer.LatencyModel() {
+            @Override
+            public long latencyFor(int requestNumber) {
+                return requestNumber == 0 ? 5000 : 10;
+            }
+        });
+        ForecastFetcher fetcher = new ForecastFetcher(new RequestQuota(10, 60 * 1000), true);
+        fetcher.setFixedHedgeDelay(200);
+        fetcher.fetch(new URL(mServer.getUrl()));
+
+        // The winning hedge and the cancelled primary, which ran for at least the hedge delay
+        LatencyHistogram latencies = fetcher.getLatencies();
+        assertEquals("Error: The cancelled request wasn't recorded", 2, latencies.getCount());
+        assertTrue("Error: The cancelled request was recorded as faster than the hedge delay",
+                latencies.getPercentile(1.0) >= 200);
+    }
+
+    public void testHedgesCountAgainstQuota() throws Throwable {
+        mServer = new LatencyServer(BODY, new LatencyServer.LatencyModel() {
+            @Override
+            public long latencyFor(int requestNumber) {
+                return 500;
+            }
+        });
+        URL url = new URL(mServer.getUrl());
+
+        // Room for exactly one request: the primary uses it up, so no hedge may be sent.
+        RequestQuota quota = new RequestQuota(1, 60 * 1000);
+        ForecastFetcher fetcher = new ForecastFetcher(quota, true);
+        fetcher.setFixedHedgeDelay(50);
+        fetcher.fetch(url);
+        assertEquals("Error: A hedge was sent without quota", 0, fetcher.getHedgesSent());
+        assertEquals("Error: The server saw more than one request", 1, mServer.getRequestCount());
+
+        // With room for two, the hedge goes out and is charged.
+        quota = new RequestQuota(2, 60 * 1000);
+        fetcher = new ForecastFetcher(quota, true);
+        fetcher.setFixedHedgeDelay(50);
+        fetcher.fetch(url);
+        assertEquals("Error: The hedge was not sent", 1, fetcher.getHedgesSent());
+        assertEquals("Error: The hedge was not charged to the quota", 2, quota.getUsed());
+    }
+
+    private static LatencyHistogram measure(ForecastFetcher fetcher, URL url) throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = SystemClock.elapsedRealtime();
+            fetcher.fetch(url);
+            histogram.record(SystemClock.elapsedRealtime() - start);
+        }
+        return histogram;
+    }
+
+    private static class TailLatencyModel implements LatencyServer.LatencyModel {
+        private final Random mRandom;
+
+        TailLatencyModel(long seed) {
+            mRandom = new Random(seed);
+        }
+
+        @Override
+        public synchronized long latencyFor(int requestNumber) {
+            if (mRandom.nextDouble() < SLOW_FRACTION) {
+                return SLOW_MILLIS;
+            }
+            return FAST_MIN_MILLIS + mRandom.nextInt((int) (FAST_MAX_MILLIS - FAST_MIN_MILLIS));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Bundle;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.SyncLogEntry;
+
+/*
+    Checks which syncs lite mode applies to on a metered network, and that the deferred refresh
+    job is scheduled with its horizon and is cancelled.
+ */
+public class TestLiteSync extends AndroidTestCase {
+    private static final int ROUTINE_HORIZON = 5;
+    private static final int MAX_HORIZON = 14;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        DeferredSyncJobService.cancel(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DeferredSyncJobService.cancel(mContext);
+        super.tearDown();
+    }
+
+    public void testPeriodicSyncIsLiteOnlyWhenMetered() {
+        Bundle periodic = new Bundle();
+        assertEquals(SyncLogEntry.MODE_LITE, SunshineSyncAdapter.chooseMode(periodic, true));
+        assertEquals(SyncLogEntry.MODE_FULL, SunshineSyncAdapter.chooseMode(periodic, false));
+    }
+
+    public void testRequestedSyncsAreNeverLite() {
+        // As syncImmediately asks, from the settings or on first launch
+        Bundle immediate = new Bundle();
+        immediate.putBoolean(ContentResolver.SYNC_EXTRAS_EXPEDITED, true);
+        immediate.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
+        assertEquals("Error: A sync somebody asked for was cut down on a metered network",
+                SyncLogEntry.MODE_FULL, SunshineSyncAdapter.chooseMode(immediate, true));
+
+        Bundle extension = new Bundle();
+        extension.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
+        extension.putInt(SunshineSyncAdapter.EXTRA_HORIZON_DAYS, MAX_HORIZON);
+        assertEquals(SyncLogEntry.MODE_EXTEND, SunshineSyncAdapter.chooseMode(extension, true));
+
+        // As the deferred job asks, once it thinks the network is unmetered
+        Bundle deferred = new Bundle();
+        deferred.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
+        deferred.putBoolean(SunshineSyncAdapter.EXTRA_FULL_REFRESH, true);
+        deferred.putInt(SunshineSyncAdapter.EXTRA_HORIZON_DAYS, ROUTINE_HORIZON);
+        assertEquals(SyncLogEntry.MODE_FULL, SunshineSyncAdapter.chooseMode(deferred, true));
+    }
+
+    public void testDeferredJobScheduled() {
+        DeferredSyncJobService.schedule(mContext, ROUTINE_HORIZON);
+        DeferredSyncJobService.schedule(mContext, ROUTINE_HORIZON);
+
+        JobInfo job = getPendingJob();
+        assertNotNull("Error: The deferred refresh wasn't scheduled", job);
+        assertEquals(JobInfo.NETWORK_TYPE_UNMETERED, job.getNetworkType());
+        assertEquals(ROUTINE_HORIZON,
+                job.getExtras().getInt(SunshineSyncAdapter.EXTRA_HORIZON_DAYS));
+    }
+
+    public void testDeferredJobCancelled() {
+        DeferredSyncJobService.schedule(mContext, ROUTINE_HORIZON);
+        assertNotNull(getPendingJob());
+
+        DeferredSyncJobService.cancel(mContext);
+        assertNull("Error: The deferred refresh is still pending", getPendingJob());
+    }
+
+    private JobInfo getPendingJob() {
+        JobScheduler scheduler =
+                (JobScheduler) mContext.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo pending : scheduler.getAllPendingJobs()) {
+            if (pending.getId() == DeferredSyncJobService.JOB_ID) {
+                return pending;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Dispatches to fake consumers and checks they start in order, that one failing or running
+    over its deadline doesn't hold up or skip the others, and what the stats record.
+ */
+public class TestPostSyncDispatcher extends AndroidTestCase {
+    private static final long DEADLINE_MILLIS = 5000;
+    private static final long WAIT_MILLIS = 3000;
+
+    private static final ForecastSnapshot SNAPSHOT = new ForecastSnapshot("94043",
+            "Mountain View", Collections.<ForecastDay>emptyList(), null);
+
+    private final List<String> mStarted = Collections.synchronizedList(new ArrayList<String>());
+
+    public void testQueuedConsumersStartInOrder() throws Exception {
+        // Four consumers hold every thread, so the rest queue up
+        final CountDownLatch[] releases = new CountDownLatch[4];
+        List<PostSyncConsumer> consumers = new ArrayList<PostSyncConsumer>();
+        for (int i = 0; i < releases.length; i++) {
+            releases[i] = new CountDownLatch(1);
+            consumers.add(new BlockingConsumer("blocking" + i, DEADLINE_MILLIS, releases[i]));
+        }
+        consumers.add(new RecordingConsumer("first"));
+        consumers.add(new RecordingConsumer("second"));
+        PostSyncDispatcher dispatcher = new PostSyncDispatcher(mContext, consumers);
+
+        dispatcher.dispatch(SNAPSHOT);
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mStarted.size() == releases.length;
+            }
+        });
+        // Free one thread, which takes the queued consumers one after the other
+        releases[0].countDown();
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mStarted.size() == releases.length + 2;
+            }
+        });
+        for (int i = 1; i < releases.length; i++) {
+            releases[i].countDown();
+        }
+
+        List<String> queued = mStarted.subList(releases.length, mStarted.size());
+        assertEquals("Error: Queued consumers started out of order", "[first, second]",
+                queued.toString());
+    }
+
+    public void testFailingConsumerDoesNotSkipOthers() throws Exception {
+        List<PostSyncConsumer> consumers = new ArrayList<PostSyncConsumer>();
+        consumers.add(new RecordingConsumer("before"));
+        consumers.add(new FailingConsumer("failing"));
+        consumers.add(new RecordingConsumer("after"));
+        final PostSyncDispatcher dispatcher = new PostSyncDispatcher(mContext, consumers);
+
+        dispatcher.dispatch(SNAPSHOT);
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return dispatcher.getStats("before").getSuccesses() == 1
+                        && dispatcher.getStats("failing").getFailures() == 1
+                        && dispatcher.getStats("after").getSuccesses() == 1;
+            }
+        });
+
+        assertTrue(mStarted.contains("before"));
+        assertTrue("Error: The consumer after a failing one was skipped",
+                mStarted.contains("after"));
+        assertEquals(0, dispatcher.getStats("before").getFailures());
+        assertEquals(1, dispatcher.getStats("before").getLatencies().getCount());
+        assertNull(dispatcher.getStats("missing"));
+    }
+
+    public void testConsumerOverDeadlineIsInterrupted() throws Exception {
+        List<PostSyncConsumer> consumers = new ArrayList<PostSyncConsumer>();
+        // Never released, so only the watchdog can end it
+        final BlockingConsumer slow = new BlockingConsumer("slow", 100, new CountDownLatch(1));
+        consumers.add(slow);
+        consumers.add(new RecordingConsumer("fast"));
+        final PostSyncDispatcher dispatcher = new PostSyncDispatcher(mContext, consumers);
+
+        dispatcher.dispatch(SNAPSHOT);
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return dispatcher.getStats("slow").getTimeouts() == 1 && slow.mInterrupted;
+            }
+        });
+
+        CallStats slowStats = dispatcher.getStats("slow");
+        assertEquals("Error: A timed out consumer was counted as a success", 0,
+                slowStats.getSuccesses());
+        assertEquals("Error: A timed out consumer was counted as a failure", 0,
+                slowStats.getFailures());
+        assertEquals(1, dispatcher.getStats("fast").getSuccesses());
+    }
+
+    public void testStatsSummary() throws Exception {
+        List<PostSyncConsumer> consumers = new ArrayList<PostSyncConsumer>();
+        consumers.add(new RecordingConsumer("widgets"));
+        consumers.add(new FailingConsumer("watch"));
+        final PostSyncDispatcher dispatcher = new PostSyncDispatcher(mContext, consumers);
+
+        dispatcher.dispatch(SNAPSHOT);
+        dispatcher.dispatch(SNAPSHOT);
+        waitFor(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return dispatcher.getStats("widgets").getSuccesses() == 2
+                        && dispatcher.getStats("watch").getFailures() == 2;
+            }
+        });
+
+        String summary = dispatcher.getStatsSummary();
+        // Consumers are listed in the order they were registered
+        assertTrue("Error: Unexpected summary " + summary,
+                summary.startsWith("widgets: ok=2 failed=0 timed out=0 success rate=100%"));
+        assertTrue("Error: Unexpected summary " + summary,
+                summary.contains("; watch: ok=0 failed=2 timed out=0 success rate=0%"));
+    }
+
+    private static void waitFor(Callable<Boolean> condition) throws Exception {
+        PollingCheck.check("Error: The consumers didn't finish in time", WAIT_MILLIS, condition);
+    }
+
+    private class RecordingConsumer implements PostSyncConsumer {
+        private final String mName;
+
+        RecordingConsumer(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public long getDeadlineMillis() {
+            return DEADLINE_MILLIS;
+        }
+
+        @Override
+        public void onForecastUpdated(Context context, ForecastSnapshot snapshot) {
+            mStarted.add(mName);
+        }
+    }
+
+    private class FailingConsumer extends RecordingConsumer {
+        FailingConsumer(String name) {
+            super(name);
+        }
+
+        @Override
+        public void onForecastUpdated(Context context, ForecastSnapshot snapshot) {
+            super.onForecastUpdated(context, snapshot);
+            throw new IllegalStateException("Consumer failed on purpose");
+        }
+    }
+
+    private class BlockingConsumer extends RecordingConsumer {
+        private final long mDeadlineMillis;
+        private final CountDownLatch mRelease;
+        volatile boolean mInterrupted;
+
+        BlockingConsumer(String name, long deadlineMillis, CountDownLatch release) {
+            super(name);
+            mDeadlineMillis = deadlineMillis;
+            mRelease = release;
+        }
+
+        @Override
+        public long getDeadlineMillis() {
+            return mDeadlineMillis;
+        }
+
+        @Override
+        public void onForecastUpdated(Context context, ForecastSnapshot snapshot) {
+            super.onForecastUpdated(context, snapshot);
+            try {
+                mRelease.await(WAIT_MILLIS * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                mInterrupted = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.MainActivity;
+
+/*
+    Plays scripted push timelines against the policy, with the periodic sync firing every
+    SYNC_INTERVAL, and checks which syncs it lets through.
+ */
+public class TestPushHealthPolicy extends AndroidTestCase {
+    public static final String LOG_TAG = TestPushHealthPolicy.class.getSimpleName();
+
+    private static final String PREFS_NAME = "test_push_health";
+    private static final long HOUR_IN_MILLIS = 60 * 60 * 1000;
+    private static final long HEALTHY_WINDOW_MILLIS = 6 * HOUR_IN_MILLIS;
+    private static final long SAFETY_SYNC_MILLIS = 12 * HOUR_IN_MILLIS;
+    private static final long SYNC_INTERVAL_MILLIS = SunshineSyncAdapter.SYNC_INTERVAL * 1000L;
+    // An arbitrary wall clock start, well after the epoch
+    private static final long START_MILLIS = 1457049600000L;
+
+    private SharedPreferences mPrefs;
+    private PushHealthPolicy mPolicy;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+        mPolicy = new PushHealthPolicy(mPrefs, HEALTHY_WINDOW_MILLIS, SAFETY_SYNC_MILLIS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPrefs.edit().clear().commit();
+        super.tearDown();
+    }
+
+    public void testHeartbeatsThenSilence() {
+        mPrefs.edit().putBoolean(MainActivity.SENT_TOKEN_TO_SERVER, true).commit();
+        // Heartbeats every two hours for the first day, then the server goes quiet
+        long[] pushHours = {1, 3, 5, 7, 9, 11, 13, 15, 17, 19, 21, 23};
+        String decisions = simulate(pushHours, 48);
+
+        // Polls until the first push, skips but for a safety sync every 12 hours while
+        // heartbeats arrive, and polls again from 7 hours after the last one
+        assertEquals("P S S S F S S S F S P P P P P P P", decisions);
+        assertEquals(7, mPolicy.getSyncsAvoided());
+        assertEquals(10, mPolicy.getSyncsRun());
+    }
+
+    public void testPushResumes() {
+        mPrefs.edit().putBoolean(MainActivity.SENT_TOKEN_TO_SERVER, true).commit();
+        // A push, a day of silence, then heartbeats again
+        long[] pushHours = {1, 26, 28, 30, 32};
+        String decisions = simulate(pushHours, 33);
+
+        assertEquals("P S S P P P P P P S S S", decisions);
+        assertEquals(5, mPolicy.getSyncsAvoided());
+    }
+
+    public void testNeverHealthyWithoutToken() {
+        long[] pushHours = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+        String decisions = simulate(pushHours, 12);
+
+        assertEquals("P P P P P", decisions);
+        assertEquals(0, mPolicy.getSyncsAvoided());
+    }
+
+    public void testClockTurnedBack() {
+        mPrefs.edit().putBoolean(MainActivity.SENT_TOKEN_TO_SERVER, true).commit();
+        mPolicy.onPushReceived(START_MILLIS, false);
+        assertTrue(mPolicy.isPushHealthy(START_MILLIS + HOUR_IN_MILLIS));
+        assertFalse("Error: A push from the future counted as healthy",
+                mPolicy.isPushHealthy(START_MILLIS - HOUR_IN_MILLIS));
+        assertEquals(PushHealthPolicy.DECISION_POLL,
+                mPolicy.decidePeriodicSync(START_MILLIS - HOUR_IN_MILLIS));
+    }
+
+    /**
+     * Runs the timeline from hour 0 to the last hour, delivering each push before any sync due
+     * at the same time.
+     *
+     * @return the decision of every periodic sync, in order: P for a poll, F for a safety sync
+     * and S for a skipped one
+     */
+    private String simulate(long[] pushHours, long lastHour) {
+        StringBuilder decisions = new StringBuilder();
+        int nextPush = 0;
+        for (long sync = 0; sync <= lastHour * HOUR_IN_MILLIS; sync += SYNC_INTERVAL_MILLIS) {
+            while (nextPush < pushHours.length
+                    && pushHours[nextPush] * HOUR_IN_MILLIS <= sync) {
+                mPolicy.onPushReceived(START_MILLIS + pushHours[nextPush] * HOUR_IN_MILLIS,
+                        true);
+                nextPush++;
+            }
+            if (decisions.length() > 0) {
+                decisions.append(' ');
+            }
+            switch (mPolicy.decidePeriodicSync(START_MILLIS + sync)) {
+                case PushHealthPolicy.DECISION_POLL:
+                    decisions.append('P');
+                    break;
+                case PushHealthPolicy.DECISION_SAFETY_SYNC:
+                    decisions.append('F');
+                    break;
+                case PushHealthPolicy.DECISION_SKIP:
+                    decisions.append('S');
+                    break;
+            }
+        }
+        Log.i(LOG_TAG, decisions + ": " + mPolicy.getStatsSummary());
+        return decisions.toString();
+    }
+}
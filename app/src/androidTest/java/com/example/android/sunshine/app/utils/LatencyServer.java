@@ -0,0 +1,108 @@
+package com.example.android.sunshine.app.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A tiny HTTP server on the loopback interface that answers every request with the same body after
+ * a delay chosen by a {@link LatencyModel}.  Used to measure how our HTTP code behaves on a network
+ * with a long latency tail.
+ */
+public class LatencyServer {
+
+    public interface LatencyModel {
+        /**
+         * @param requestNumber zero based count of requests served so far
+         * @return how long to wait before answering, in milliseconds
+         */
+        long latencyFor(int requestNumber);
+    }
+
+    private final ServerSocket mServerSocket;
+    private final String mBody;
+    private final LatencyModel mLatencyModel;
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private volatile boolean mRunning = true;
+
+    public LatencyServer(String body, LatencyModel latencyModel) throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mBody = body;
+        mLatencyModel = latencyModel;
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        }, "LatencyServer");
+        acceptThread.start();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/forecast";
+    }
+
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public void shutdown() {
+        mRunning = false;
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            // We're done with it either way
+        }
+    }
+
+    private void acceptLoop() {
+        while (mRunning) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                final int requestNumber = mRequestCount.getAndIncrement();
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket, mLatencyModel.latencyFor(requestNumber));
+                    }
+                }).start();
+            } catch (IOException e) {
+                // Thrown when the server socket is closed
+            }
+        }
+    }
+
+    private void serve(Socket socket, long latencyMillis) {
+        try {
+            BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            String line;
+            // Skip the request line and headers
+            while ((line = reader.readLine()) != null && line.length() > 0) {
+            }
+            Thread.sleep(latencyMillis);
+
+            byte[] body = mBody.getBytes("UTF-8");
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes("UTF-8"));
+            out.write(body);
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            // The client gave up on this request, which is expected for cancelled hedges
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+    }
+}
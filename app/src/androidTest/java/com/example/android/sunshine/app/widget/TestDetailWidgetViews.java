@@ -0,0 +1,126 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.ScaledArtCache;
+
+/*
+    Checks the detail widget's rows carry icons scaled to the list icon, and measures what a row
+    costs to build and to send to the launcher, against a row carrying the full size art as the
+    widget used to.
+ */
+public class TestDetailWidgetViews extends AndroidTestCase {
+    public static final String LOG_TAG = TestDetailWidgetViews.class.getSimpleName();
+
+    private static final int ROWS = 200;
+    private static final int[] WEATHER_IDS = {200, 300, 500, 511, 600, 701, 800, 801, 802};
+
+    private String mSavedArtPack;
+    private DetailWidgetRemoteViewsService.DetailWidgetViewsFactory mFactory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // A downloaded pack, so rows carry bitmaps.  Its cache is filled with the bundled art so
+        // the test doesn't depend on the network.
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        mSavedArtPack = prefs.getString(key, null);
+        String artPack = mContext.getString(R.string.pref_art_pack_cute_dogs);
+        prefs.edit().putString(key, artPack).commit();
+        // Committed off the main thread, so the snapshot's listener hasn't run yet
+        PreferencesSnapshot.refresh(mContext);
+        DetailWidgetRemoteViewsService.getIconCache(mContext).fill(artPack, true);
+        mFactory = new DetailWidgetRemoteViewsService.DetailWidgetViewsFactory(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        if (mSavedArtPack == null) {
+            prefs.edit().remove(key).commit();
+        } else {
+            prefs.edit().putString(key, mSavedArtPack).commit();
+        }
+        PreferencesSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testParcelledSize() {
+        ScaledArtCache icons = DetailWidgetRemoteViewsService.getIconCache(mContext);
+        // A bitmap at most the icon's size, plus the text and the intent
+        int maxBytes = icons.getWidth() * icons.getHeight() * 4 + 4 * 1024;
+        for (int weatherId : WEATHER_IDS) {
+            int size = getParcelledSize(buildRow(weatherId));
+            assertTrue("Error: The row for " + weatherId + " is " + size + " bytes, more than "
+                    + maxBytes, size <= maxBytes);
+        }
+
+        int scaledSize = getParcelledSize(buildRow(800));
+        int fullSize = getParcelledSize(buildFullSizeRow(800));
+        Log.i(LOG_TAG, "Parcelled row: " + scaledSize + " bytes scaled, " + fullSize
+                + " bytes with the full size art");
+        assertTrue("Error: The scaled row was not smaller", scaledSize < fullSize);
+    }
+
+    public void testBenchmarkGetViewAt() {
+        // Warm up both paths, so class loading and the first decode from disk don't count
+        buildRow(800);
+        buildFullSizeRow(800);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ROWS; i++) {
+            getParcelledSize(buildFullSizeRow(WEATHER_IDS[i % WEATHER_IDS.length]));
+        }
+        long fullSizeNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ROWS; i++) {
+            getParcelledSize(buildRow(WEATHER_IDS[i % WEATHER_IDS.length]));
+        }
+        long scaledNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(LOG_TAG, "Full size art: " + (fullSizeNanos / ROWS / 1000) + "us per row");
+        Log.i(LOG_TAG, "Scaled icons: " + (scaledNanos / ROWS / 1000) + "us per row");
+    }
+
+    private RemoteViews buildRow(int weatherId) {
+        return mFactory.buildViews(System.currentTimeMillis(), weatherId, "Clear", 20, 10);
+    }
+
+    /**
+     * A row with the full size art decoded into it, as getViewAt used to build them.
+     */
+    private RemoteViews buildFullSizeRow(int weatherId) {
+        RemoteViews views = buildRow(weatherId);
+        Bitmap art = BitmapFactory.decodeResource(mContext.getResources(),
+                Utility.getArtResourceForWeatherCondition(weatherId));
+        views.setImageViewBitmap(R.id.widget_icon, art);
+        return views;
+    }
+
+    /**
+     * @return how many bytes the views take in the binder transaction to the launcher
+     */
+    private static int getParcelledSize(RemoteViews views) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            views.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
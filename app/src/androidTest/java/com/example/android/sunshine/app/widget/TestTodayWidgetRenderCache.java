@@ -0,0 +1,63 @@
+package com.example.android.sunshine.app.widget;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+
+/*
+    Checks that a widget is only skipped while its layout and values are what was last pushed.
+ */
+public class TestTodayWidgetRenderCache extends AndroidTestCase {
+    private static final int WIDGET_ID = 42;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TodayWidgetRenderCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TodayWidgetRenderCache.clear();
+        super.tearDown();
+    }
+
+    public void testSkipsOnlyWhatWasPushed() {
+        TodayWidgetRenderCache.Rendered shown = render(R.layout.widget_today, "Clear", "20°");
+        assertFalse(TodayWidgetRenderCache.isPushed(WIDGET_ID, shown));
+
+        TodayWidgetRenderCache.setPushed(WIDGET_ID, shown);
+        assertTrue(TodayWidgetRenderCache.isPushed(WIDGET_ID, shown));
+        assertTrue("Error: Equal values weren't recognised",
+                TodayWidgetRenderCache.isPushed(WIDGET_ID,
+                        render(R.layout.widget_today, "Clear", "20°")));
+        assertFalse("Error: Another widget was skipped",
+                TodayWidgetRenderCache.isPushed(WIDGET_ID + 1, shown));
+
+        assertFalse("Error: A new high was skipped", TodayWidgetRenderCache.isPushed(WIDGET_ID,
+                render(R.layout.widget_today, "Clear", "21°")));
+        assertFalse("Error: A new layout was skipped", TodayWidgetRenderCache.isPushed(WIDGET_ID,
+                render(R.layout.widget_today_large, "Clear", "20°")));
+
+        TodayWidgetRenderCache.forget(new int[]{WIDGET_ID});
+        assertFalse("Error: A forgotten widget was skipped",
+                TodayWidgetRenderCache.isPushed(WIDGET_ID, shown));
+    }
+
+    public void testHashCollisionIsNotSkipped() {
+        // "Aa" and "BB" have the same String hash, so these two hash the same
+        TodayWidgetRenderCache.Rendered shown = render(R.layout.widget_today, "Aa", "20°");
+        TodayWidgetRenderCache.Rendered colliding = render(R.layout.widget_today, "BB", "20°");
+        assertEquals(shown.hashCode(), colliding.hashCode());
+
+        TodayWidgetRenderCache.setPushed(WIDGET_ID, shown);
+        assertFalse("Error: A forecast with a colliding hash was skipped",
+                TodayWidgetRenderCache.isPushed(WIDGET_ID, colliding));
+    }
+
+    private static TodayWidgetRenderCache.Rendered render(int layoutId, String description,
+                                                          String high) {
+        return new TodayWidgetRenderCache.Rendered(layoutId, R.drawable.art_clear, description,
+                high, "10°");
+    }
+}
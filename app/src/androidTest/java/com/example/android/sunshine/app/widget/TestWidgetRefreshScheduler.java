@@ -0,0 +1,211 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.sync.ForecastDay;
+import com.example.android.sunshine.app.sync.ForecastSnapshot;
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/*
+    Checks the scheduler tells a forecast that looks the same in the widgets from one that
+    doesn't, and plays bursts of syncs against a scheduler with a short debounce and a screen the
+    test switches on and off.
+ */
+public class TestWidgetRefreshScheduler extends AndroidTestCase {
+    private static final String PREFS_NAME = "test_widget_refresh";
+    private static final int JULIAN_DAY = 2457000;
+    private static final long DEBOUNCE_MILLIS = 200;
+    private static final long WAIT_MILLIS = 3000;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private SharedPreferences mPrefs;
+    private String mLocation;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+        mLocation = PreferencesSnapshot.get(mContext).location;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Cancels the alarm a test may have left behind
+        final FakeScreenScheduler scheduler = new FakeScreenScheduler();
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.onRefreshAlarm();
+            }
+        });
+        mPrefs.edit().clear().commit();
+        super.tearDown();
+    }
+
+    public void testRenderedFollowsWhatWidgetsShow() {
+        WidgetRefreshScheduler.Rendered rendered = WidgetRefreshScheduler.Rendered.of(mContext,
+                createSnapshot(mLocation, 20, "Clear"));
+        assertEquals("Error: The same forecast compared as changed", rendered,
+                WidgetRefreshScheduler.Rendered.of(mContext,
+                        createSnapshot(mLocation, 20, "Clear")));
+        assertFalse("Error: A new high compared as unchanged", rendered.equals(
+                WidgetRefreshScheduler.Rendered.of(mContext,
+                        createSnapshot(mLocation, 21, "Clear"))));
+        assertFalse("Error: A new description compared as unchanged", rendered.equals(
+                WidgetRefreshScheduler.Rendered.of(mContext,
+                        createSnapshot(mLocation, 20, "Clouds"))));
+    }
+
+    public void testBurstIsCoalesced() throws Exception {
+        final FakeScreenScheduler scheduler = new FakeScreenScheduler();
+        scheduler.onForecastUpdated(createSnapshot(mLocation, 20, "Clear"));
+        scheduler.onForecastUpdated(createSnapshot(mLocation, 21, "Clear"));
+        scheduler.onForecastUpdated(createSnapshot(mLocation, 22, "Clear"));
+
+        waitFor(scheduler, 1, 2);
+        Thread.sleep(DEBOUNCE_MILLIS * 2);
+        assertEquals("Error: A burst of syncs refreshed more than once", 1, scheduler.mRenders);
+        assertFalse(scheduler.isPendingPersisted());
+
+        // The same forecast again, once the burst is over
+        scheduler.onForecastUpdated(createSnapshot(mLocation, 22, "Clear"));
+        waitFor(scheduler, 1, 3);
+    }
+
+    public void testOtherLocationDropped() throws Exception {
+        FakeScreenScheduler scheduler = new FakeScreenScheduler();
+        scheduler.onForecastUpdated(createSnapshot(mLocation + "0", 20, "Clear"));
+
+        waitFor(scheduler, 0, 1);
+        assertFalse("Error: A dropped refresh is still waiting", scheduler.isPendingPersisted());
+    }
+
+    public void testWaitsForScreen() throws Exception {
+        final FakeScreenScheduler scheduler = new FakeScreenScheduler();
+        scheduler.mScreenOn = false;
+        scheduler.onForecastUpdated(createSnapshot(mLocation, 20, "Clear"));
+
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+        assertEquals("Error: The widgets were refreshed with the screen off", 0,
+                scheduler.mRenders);
+        assertTrue("Error: The waiting refresh wasn't stored", scheduler.isPendingPersisted());
+
+        // Joins the refresh waiting for the screen
+        scheduler.onForecastUpdated(createSnapshot(mLocation, 21, "Clear"));
+        scheduler.mScreenOn = true;
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.onScreenOn();
+            }
+        });
+        waitFor(scheduler, 1, 1);
+        assertFalse(scheduler.isPendingPersisted());
+    }
+
+    public void testRecoversRefreshLostWithProcess() throws Exception {
+        final FakeScreenScheduler dead = new FakeScreenScheduler();
+        dead.mScreenOn = false;
+        dead.onForecastUpdated(createSnapshot(mLocation, 20, "Clear"));
+        Thread.sleep(DEBOUNCE_MILLIS * 3);
+        assertEquals(0, dead.mRenders);
+
+        // A new process, started by the alarm once the device is awake
+        final FakeScreenScheduler revived = new FakeScreenScheduler();
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                revived.onRefreshAlarm();
+            }
+        });
+        waitFor(revived, 1, 0);
+        assertFalse(revived.isPendingPersisted());
+
+        // Nothing is waiting any more, so a later alarm does nothing
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                revived.onRefreshAlarm();
+                // Lets go of the screen receiver the first scheduler registered
+                dead.onScreenOn();
+            }
+        });
+        assertEquals(1, revived.mRenders);
+    }
+
+    private static void waitFor(final FakeScreenScheduler scheduler, final int renders,
+                                final long avoided) throws Exception {
+        PollingCheck.check("Error: Expected " + renders + " refreshes and " + avoided
+                + " avoided", WAIT_MILLIS, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return scheduler.getRenders() == renders
+                        && scheduler.getRendersAvoided() == avoided;
+            }
+        });
+    }
+
+    private void runOnMainThread(final Runnable runnable) throws Exception {
+        final boolean[] done = new boolean[1];
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                runnable.run();
+                synchronized (done) {
+                    done[0] = true;
+                }
+            }
+        });
+        PollingCheck.check("Error: The main thread didn't run the task", WAIT_MILLIS,
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        synchronized (done) {
+                            return done[0];
+                        }
+                    }
+                });
+    }
+
+    private static ForecastSnapshot createSnapshot(String location, double high,
+                                                   String description) {
+        List<ForecastDay> days = new ArrayList<ForecastDay>();
+        for (int i = 0; i < 5; i++) {
+            days.add(new ForecastDay(JULIAN_DAY + i, 800, description, high + i, 10, 50, 1013,
+                    5, 90, "owm"));
+        }
+        return new ForecastSnapshot(location, "Mountain View", days, days.get(0));
+    }
+
+    /*
+        Counts refreshes instead of drawing the widgets, with a screen the test controls.
+     */
+    private class FakeScreenScheduler extends WidgetRefreshScheduler {
+        volatile boolean mScreenOn = true;
+        volatile int mRenders;
+
+        FakeScreenScheduler() {
+            super(mContext, mPrefs, DEBOUNCE_MILLIS);
+        }
+
+        @Override
+        void render() {
+            mRenders++;
+        }
+
+        @Override
+        boolean isScreenOn() {
+            return mScreenOn;
+        }
+    }
+}
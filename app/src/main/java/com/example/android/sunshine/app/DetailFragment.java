@@ -15,6 +15,7 @@
  */
 package com.example.android.sunshine.app;
 
+import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
@@ -38,6 +39,10 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.example.android.sunshine.app.art.ArtPackManager;
+import com.example.android.sunshine.app.data.PackedForecastCache;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
@@ -173,14 +178,7 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
         if ( null != mUri ) {
             // Now create and return a CursorLoader that will take care of
             // creating a Cursor for the data being displayed.
-            return new CursorLoader(
-                    getActivity(),
-                    mUri,
-                    DETAIL_COLUMNS,
-                    null,
-                    null,
-                    null
-            );
+            return new DetailLoader(getActivity(), mUri);
         }
         ViewParent vp = getView().getParent();
         if ( vp instanceof CardView ) {
@@ -204,8 +202,12 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
                 mIconView.setImageResource(Utility.getArtResourceForWeatherCondition(weatherId));
             } else {
                 // Use weather art image
+                String artUrl = Utility.getArtUrlForWeatherCondition(getActivity(), weatherId);
                 Glide.with(this)
-                        .load(Utility.getArtUrlForWeatherCondition(getActivity(), weatherId))
+                        .load(artUrl)
+                        .diskCacheStrategy(DiskCacheStrategy.ALL)
+                        .listener(ArtPackManager.getInstance(getActivity())
+                                .<GlideDrawable>newBindListener(artUrl))
                         .error(Utility.getArtResourceForWeatherCondition(weatherId))
                         .crossFade()
                         .into(mIconView);
@@ -231,13 +233,13 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
             boolean isMetric = Utility.isMetric(getActivity());
 
             double high = data.getDouble(COL_WEATHER_MAX_TEMP);
-            String highString = Utility.formatTemperature(getActivity(), high);
+            String highString = Utility.formatTemperature(getActivity(), high, isMetric);
             mHighTempView.setText(highString);
             mHighTempView.setContentDescription(getString(R.string.a11y_high_temp, highString));
 
             // Read low temperature from cursor and update view
             double low = data.getDouble(COL_WEATHER_MIN_TEMP);
-            String lowString = Utility.formatTemperature(getActivity(), low);
+            String lowString = Utility.formatTemperature(getActivity(), low, isMetric);
             mLowTempView.setText(lowString);
             mLowTempView.setContentDescription(getString(R.string.a11y_low_temp, lowString));
 
@@ -289,4 +291,27 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) { }
-}
\ No newline at end of file
+
+    /**
+     * Reads the day from the forecast the list has already loaded, and only queries the provider
+     * when it isn't there, e.g. when the detail view is opened from a widget.
+     */
+    static class DetailLoader extends CursorLoader {
+        private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+
+        DetailLoader(Context context, Uri uri) {
+            super(context, uri, DETAIL_COLUMNS, null, null, null);
+        }
+
+        @Override
+        public Cursor loadInBackground() {
+            Cursor cursor = PackedForecastCache.query(getContext(), getUri(), getProjection());
+            if (cursor == null) {
+                return super.loadInBackground();
+            }
+            // CursorLoader only watches the cursors it queries itself
+            cursor.registerContentObserver(mObserver);
+            return cursor;
+        }
+    }
+}
@@ -16,35 +16,39 @@
 package com.example.android.sunshine.app;
 
 import android.content.Context;
-import android.database.Cursor;
-import android.os.Build;
 import android.os.Bundle;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.RecyclerView;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Checkable;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.example.android.sunshine.app.art.ArtPackManager;
+
+import java.util.List;
 
 /**
  * {@link ForecastAdapter} exposes a list of weather forecasts
- * from a {@link android.database.Cursor} to a {@link android.support.v7.widget.RecyclerView}.
+ * from a {@link ForecastList} to a {@link android.support.v7.widget.RecyclerView}.
  */
 public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
 
     private static final int VIEW_TYPE_TODAY = 0;
     private static final int VIEW_TYPE_FUTURE_DAY = 1;
 
+    private static final int ALL_FIELDS = ForecastDiff.CHANGED_ICON | ForecastDiff.CHANGED_DATE
+            | ForecastDiff.CHANGED_DESCRIPTION | ForecastDiff.CHANGED_HIGH
+            | ForecastDiff.CHANGED_LOW;
+
     // Flag to determine if we want to use a separate view for "today".
     private boolean mUseTodayLayout = true;
 
-    private Cursor mCursor;
+    private ForecastList mForecast;
     final private Context mContext;
     final private ForecastAdapterOnClickHandler mClickHandler;
     final private View mEmptyView;
@@ -73,9 +77,7 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
-            int dateColumnIndex = mCursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
-            mClickHandler.onClick(mCursor.getLong(dateColumnIndex), this);
+            mClickHandler.onClick(mForecast.get(adapterPosition).date, this);
             mICM.onClick(this);
         }
     }
@@ -124,67 +126,82 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
-        int weatherId = mCursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
-        int defaultImage;
-        boolean useLongToday;
-
-        switch (getItemViewType(position)) {
-            case VIEW_TYPE_TODAY:
-                defaultImage = Utility.getArtResourceForWeatherCondition(weatherId);
-                useLongToday = true;
-                break;
-            default:
-                defaultImage = Utility.getIconResourceForWeatherCondition(weatherId);
-                useLongToday = false;
-        }
+        bind(forecastAdapterViewHolder, position, ALL_FIELDS);
+    }
 
-        if ( Utility.usingLocalGraphics(mContext) ) {
-            forecastAdapterViewHolder.mIconView.setImageResource(defaultImage);
-        } else {
-            Glide.with(mContext)
-                    .load(Utility.getArtUrlForWeatherCondition(mContext, weatherId))
-                    .error(defaultImage)
-                    .crossFade()
-                    .into(forecastAdapterViewHolder.mIconView);
+    @Override
+    public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                                 List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            bind(forecastAdapterViewHolder, position, ALL_FIELDS);
+            return;
         }
+        // Payloads from ForecastDiff, which may have been merged by RecyclerView
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        bind(forecastAdapterViewHolder, position, changes);
+    }
 
-        // this enables better animations. even if we lose state due to a device rotation,
-        // the animator can use this to re-find the original view
-        ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, "iconView" + position);
-
-        // Read date from cursor
-        long dateInMillis = mCursor.getLong(ForecastFragment.COL_WEATHER_DATE);
-
-        // Find TextView and set formatted date on it
-        forecastAdapterViewHolder.mDateView.setText(Utility.getFriendlyDayString(mContext, dateInMillis, useLongToday));
-
-        // Read weather forecast from cursor
-        String description = Utility.getStringForWeatherCondition(mContext, weatherId);
+    /**
+     * Sets the given {@code ForecastDiff.CHANGED_*} fields of a row on its views.  Everything
+     * was resolved by ForecastLoader, so this only sets fields.
+     */
+    private void bind(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                      int fields) {
+        ForecastRow row = mForecast.get(position);
+        boolean today = getItemViewType(position) == VIEW_TYPE_TODAY;
 
-        // Find TextView and set weather forecast on it
-        forecastAdapterViewHolder.mDescriptionView.setText(description);
-        forecastAdapterViewHolder.mDescriptionView.setContentDescription(mContext.getString(R.string.a11y_forecast, description));
+        if ((fields & ForecastDiff.CHANGED_ICON) != 0) {
+            bindIcon(forecastAdapterViewHolder, row, today);
+        }
+        if ((fields & ForecastDiff.CHANGED_DATE) != 0) {
+            forecastAdapterViewHolder.mDateView.setText(today ? row.longDateText : row.dateText);
+        }
+        if ((fields & ForecastDiff.CHANGED_DESCRIPTION) != 0) {
+            forecastAdapterViewHolder.mDescriptionView.setText(row.description);
+            forecastAdapterViewHolder.mDescriptionView.setContentDescription(
+                    row.descriptionContentDescription);
+        }
 
         // For accessibility, we don't want a content description for the icon field
         // because the information is repeated in the description view and the icon
         // is not individually selectable
 
-        // Read high temperature from cursor
-        double high = mCursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
-        String highString = Utility.formatTemperature(mContext, high);
-        forecastAdapterViewHolder.mHighTempView.setText(highString);
-        forecastAdapterViewHolder.mHighTempView.setContentDescription(mContext.getString(R.string.a11y_high_temp, highString));
-
-        // Read low temperature from cursor
-        double low = mCursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
-        String lowString = Utility.formatTemperature(mContext, low);
-        forecastAdapterViewHolder.mLowTempView.setText(lowString);
-        forecastAdapterViewHolder.mLowTempView.setContentDescription(mContext.getString(R.string.a11y_low_temp, lowString));
+        if ((fields & ForecastDiff.CHANGED_HIGH) != 0) {
+            forecastAdapterViewHolder.mHighTempView.setText(row.highText);
+            forecastAdapterViewHolder.mHighTempView.setContentDescription(
+                    row.highContentDescription);
+        }
+        if ((fields & ForecastDiff.CHANGED_LOW) != 0) {
+            forecastAdapterViewHolder.mLowTempView.setText(row.lowText);
+            forecastAdapterViewHolder.mLowTempView.setContentDescription(
+                    row.lowContentDescription);
+        }
 
         mICM.onBindViewHolder(forecastAdapterViewHolder, position);
     }
 
+    private void bindIcon(ForecastAdapterViewHolder forecastAdapterViewHolder, ForecastRow row,
+                          boolean today) {
+        int defaultImage = today ? row.artResource : row.iconResource;
+        if ( row.artUrl == null ) {
+            forecastAdapterViewHolder.mIconView.setImageResource(defaultImage);
+        } else {
+            // The prefetched source is on disk, and the scaled icon is kept next to it
+            Glide.with(mContext)
+                    .load(row.artUrl)
+                    .diskCacheStrategy(DiskCacheStrategy.ALL)
+                    .listener(ArtPackManager.getInstance(mContext)
+                            .<GlideDrawable>newBindListener(row.artUrl))
+                    .error(defaultImage)
+                    .crossFade()
+                    .into(forecastAdapterViewHolder.mIconView);
+        }
+        ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, row.iconTransitionName);
+    }
+
     public void onRestoreInstanceState(Bundle savedInstanceState) {
         mICM.onRestoreInstanceState(savedInstanceState);
     }
@@ -208,18 +225,32 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     @Override
     public int getItemCount() {
-        if ( null == mCursor ) return 0;
-        return mCursor.getCount();
+        if ( null == mForecast ) return 0;
+        return mForecast.size();
     }
 
-    public void swapCursor(Cursor newCursor) {
-        mCursor = newCursor;
-        notifyDataSetChanged();
+    public void swapForecast(ForecastList newForecast) {
+        ForecastList oldForecast = mForecast;
+        mForecast = newForecast;
+        if (oldForecast == newForecast) {
+            // Redelivered by the loader, nothing has changed
+        } else if (oldForecast != null && newForecast != null && newForecast.diff != null
+                && newForecast.diff.appliesTo(oldForecast)) {
+            // Only rebind what changed, and only the fields that changed
+            newForecast.diff.dispatchTo(this);
+            if (mUseTodayLayout && newForecast.size() > 0 && (oldForecast.size() == 0
+                    || oldForecast.get(0).date != newForecast.get(0).date)) {
+                // A different day is first now, and it needs the today layout
+                notifyItemChanged(0);
+            }
+        } else {
+            notifyDataSetChanged();
+        }
         mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
     }
 
-    public Cursor getCursor() {
-        return mCursor;
+    public ForecastList getForecast() {
+        return mForecast;
     }
 
     public void selectView(RecyclerView.ViewHolder viewHolder) {
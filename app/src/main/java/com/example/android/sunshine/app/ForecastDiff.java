@@ -0,0 +1,159 @@
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The difference between two {@link ForecastList}s, as the insert, remove and change events that
+ * turn the old list into the new one.  Rows are matched by date, and a changed row carries a
+ * payload of {@code CHANGED_*} flags so that only the views showing those fields are rebound.
+ *
+ * Both lists are sorted by date with one row per date, so rows never move relative to each other
+ * and a single merge pass finds every difference.
+ */
+public class ForecastDiff {
+    public static final int CHANGED_ICON = 1;
+    public static final int CHANGED_DATE = 1 << 1;
+    public static final int CHANGED_DESCRIPTION = 1 << 2;
+    public static final int CHANGED_HIGH = 1 << 3;
+    public static final int CHANGED_LOW = 1 << 4;
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    // Only the old list's id is kept: holding the list itself would keep every list loaded
+    // before it alive, each through its own diff
+    private final long mOldListId;
+    // Each op is {type, position, count, payload}, with positions as they are when it is applied
+    private final List<int[]> mOps = new ArrayList<int[]>();
+
+    private ForecastDiff(ForecastList oldList) {
+        mOldListId = oldList.id;
+    }
+
+    /**
+     * Compares two lists.  Does the work of comparing every row, so call it off the main thread.
+     */
+    public static ForecastDiff compute(ForecastList oldList, ForecastList newList) {
+        ForecastDiff diff = new ForecastDiff(oldList);
+        int oldIndex = 0;
+        int newIndex = 0;
+        // Position in the list as it is after the ops so far
+        int position = 0;
+        while (oldIndex < oldList.size() && newIndex < newList.size()) {
+            ForecastRow oldRow = oldList.get(oldIndex);
+            ForecastRow newRow = newList.get(newIndex);
+            if (oldRow.date < newRow.date) {
+                diff.add(REMOVE, position, 0);
+                oldIndex++;
+            } else if (oldRow.date > newRow.date) {
+                diff.add(INSERT, position, 0);
+                newIndex++;
+                position++;
+            } else {
+                int changes = compareRows(oldRow, newRow);
+                if (changes != 0) {
+                    diff.add(CHANGE, position, changes);
+                }
+                oldIndex++;
+                newIndex++;
+                position++;
+            }
+        }
+        for (; oldIndex < oldList.size(); oldIndex++) {
+            diff.add(REMOVE, position, 0);
+        }
+        for (; newIndex < newList.size(); newIndex++) {
+            diff.add(INSERT, position, 0);
+            position++;
+        }
+        return diff;
+    }
+
+    /**
+     * @return the {@code CHANGED_*} flags for the fields that differ between two rows of a date
+     */
+    static int compareRows(ForecastRow oldRow, ForecastRow newRow) {
+        int changes = 0;
+        if (oldRow.iconResource != newRow.iconResource || oldRow.artResource != newRow.artResource
+                || !TextUtils.equals(oldRow.artUrl, newRow.artUrl)) {
+            changes |= CHANGED_ICON;
+        }
+        if (!TextUtils.equals(oldRow.dateText, newRow.dateText)
+                || !TextUtils.equals(oldRow.longDateText, newRow.longDateText)) {
+            changes |= CHANGED_DATE;
+        }
+        if (!TextUtils.equals(oldRow.description, newRow.description)) {
+            changes |= CHANGED_DESCRIPTION;
+        }
+        if (!TextUtils.equals(oldRow.highText, newRow.highText)) {
+            changes |= CHANGED_HIGH;
+        }
+        if (!TextUtils.equals(oldRow.lowText, newRow.lowText)) {
+            changes |= CHANGED_LOW;
+        }
+        return changes;
+    }
+
+    private void add(int type, int position, int payload) {
+        // Merge with the previous op when they form a range
+        if (!mOps.isEmpty()) {
+            int[] last = mOps.get(mOps.size() - 1);
+            if (last[0] == type && last[3] == payload) {
+                boolean contiguous = type == REMOVE
+                        ? last[1] == position
+                        : last[1] + last[2] == position;
+                if (contiguous) {
+                    last[2]++;
+                    return;
+                }
+            }
+        }
+        mOps.add(new int[]{type, position, 1, payload});
+    }
+
+    /**
+     * @return true if this diff was computed from the given list, so it can be applied to it
+     */
+    public boolean appliesTo(ForecastList list) {
+        return list.id == mOldListId;
+    }
+
+    public boolean isEmpty() {
+        return mOps.isEmpty();
+    }
+
+    /**
+     * @return the number of rows inserted, removed or changed
+     */
+    public int getRowCount() {
+        int rows = 0;
+        for (int[] op : mOps) {
+            rows += op[2];
+        }
+        return rows;
+    }
+
+    /**
+     * Notifies the adapter of every event, in order.  The adapter must already return the new
+     * list's rows.
+     */
+    public void dispatchTo(RecyclerView.Adapter adapter) {
+        for (int[] op : mOps) {
+            switch (op[0]) {
+                case INSERT:
+                    adapter.notifyItemRangeInserted(op[1], op[2]);
+                    break;
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(op[1], op[2]);
+                    break;
+                default:
+                    adapter.notifyItemRangeChanged(op[1], op[2], op[3]);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.format.DateUtils;
+import android.text.format.Time;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Formats the dates and temperatures the forecast surfaces show.
+ *
+ * The day labels of the next few days are formatted once and kept, so the list, the detail
+ * view, the widgets and the notification look them up instead of building calendars and date
+ * formats for every row.  Whole-degree temperatures are kept the same way.  Everything is
+ * rebuilt at local midnight, and when the locale, time zone or clock changes.  Dates outside the
+ * cached days are formatted with per-thread formatters.
+ *
+ * Utility's date and temperature helpers go through here, so callers don't use it directly.
+ */
+public class ForecastFormatter {
+    private static final int MIN_CACHED_TEMPERATURE = -128;
+    private static final int MAX_CACHED_TEMPERATURE = 127;
+
+    private static ForecastFormatter sInstance;
+
+    private final Context mContext;
+    private final int mCachedDays;
+    // Replaced whole, never changed, so readers on any thread see a consistent set of labels
+    private volatile Labels mLabels;
+
+    public static synchronized ForecastFormatter getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ForecastFormatter(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ForecastFormatter(Context context) {
+        mContext = context;
+        mCachedDays = context.getResources().getInteger(R.integer.date_label_cache_days);
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+
+    /**
+     * @see Utility#getFriendlyDayString(Context, long, boolean)
+     */
+    public String getFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        Labels labels = getLabels();
+        int index = labels.indexOf(dateInMillis);
+        if (index >= 0) {
+            return displayLongToday ? labels.longFriendly[index] : labels.friendly[index];
+        }
+        return labels.formatFriendlyDay(dateInMillis, displayLongToday);
+    }
+
+    /**
+     * @see Utility#getFullFriendlyDayString(Context, long)
+     */
+    public String getFullFriendlyDayString(long dateInMillis) {
+        Labels labels = getLabels();
+        int index = labels.indexOf(dateInMillis);
+        if (index >= 0) {
+            return labels.fullFriendly[index];
+        }
+        return labels.formatFullFriendlyDay(dateInMillis);
+    }
+
+    /**
+     * @see Utility#getDayName(Context, long)
+     */
+    public String getDayName(long dateInMillis) {
+        Labels labels = getLabels();
+        int index = labels.indexOf(dateInMillis);
+        if (index >= 0) {
+            return labels.dayNames[index];
+        }
+        return labels.formatDayName(dateInMillis);
+    }
+
+    /**
+     * @see Utility#getFormattedMonthDay(Context, long)
+     */
+    public String getFormattedMonthDay(long dateInMillis) {
+        Labels labels = getLabels();
+        int index = labels.indexOf(dateInMillis);
+        if (index >= 0) {
+            return labels.monthDays[index];
+        }
+        return labels.monthDayFormat.get().format(dateInMillis);
+    }
+
+    /**
+     * Formats a temperature that is already in the units to show, to the nearest degree.
+     */
+    public String formatTemperature(double temperature) {
+        Labels labels = getLabels();
+        // Rounded half away from zero, as the format does
+        double rounded = temperature < 0 ? -Math.floor(0.5 - temperature)
+                : Math.floor(temperature + 0.5);
+        // The format keeps the sign of temperatures that round to zero from below
+        if (rounded < MIN_CACHED_TEMPERATURE || rounded > MAX_CACHED_TEMPERATURE
+                || (rounded == 0 && temperature < 0)) {
+            return labels.formatTemperature(temperature);
+        }
+        int index = (int) rounded - MIN_CACHED_TEMPERATURE;
+        String formatted = labels.temperatures[index];
+        if (formatted == null) {
+            // Racing threads format the same string, so there's no need to lock
+            formatted = labels.formatTemperature(rounded);
+            labels.temperatures[index] = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * Drops the cached labels, so the next call rebuilds them.
+     */
+    void invalidate() {
+        mLabels = null;
+    }
+
+    private Labels getLabels() {
+        Labels labels = mLabels;
+        long now = System.currentTimeMillis();
+        if (labels == null || now < labels.validFrom || now >= labels.validUntil
+                || !labels.locale.equals(Locale.getDefault())) {
+            labels = new Labels(mContext, now, mCachedDays);
+            mLabels = labels;
+        }
+        return labels;
+    }
+
+    /**
+     * The labels for one local day, locale and time zone.
+     */
+    private static class Labels {
+        final Locale locale;
+        // The local day these labels are for, from its midnight to the next
+        final long validFrom;
+        final long validUntil;
+        final int gmtoff;
+        final int currentJulianDay;
+
+        final String[] friendly;
+        final String[] longFriendly;
+        final String[] fullFriendly;
+        final String[] dayNames;
+        final String[] monthDays;
+        final String[] temperatures =
+                new String[MAX_CACHED_TEMPERATURE - MIN_CACHED_TEMPERATURE + 1];
+
+        // SimpleDateFormat isn't thread-safe, and these capture the locale and time zone
+        final ThreadLocal<SimpleDateFormat> shortDateFormat =
+                new FormatThreadLocal("EEE MMM dd");
+        final ThreadLocal<SimpleDateFormat> dayNameFormat = new FormatThreadLocal("EEEE");
+        final ThreadLocal<SimpleDateFormat> monthDayFormat = new FormatThreadLocal("MMMM dd");
+
+        private final Context mContext;
+        private final String mTemperatureFormat;
+
+        Labels(Context context, long now, int days) {
+            mContext = context;
+            mTemperatureFormat = context.getString(R.string.format_temperature);
+            locale = Locale.getDefault();
+
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(now);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            validFrom = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_YEAR, 1);
+            validUntil = calendar.getTimeInMillis();
+
+            // Days are counted as the old Time-based helpers counted them, with today's offset
+            Time time = new Time();
+            time.set(now);
+            gmtoff = (int) time.gmtoff;
+            currentJulianDay = Time.getJulianDay(now, gmtoff);
+
+            friendly = new String[days];
+            longFriendly = new String[days];
+            fullFriendly = new String[days];
+            dayNames = new String[days];
+            monthDays = new String[days];
+            for (int i = 0; i < days; i++) {
+                // Noon of each day, clear of any daylight saving shift
+                long date = (currentJulianDay + i - Time.EPOCH_JULIAN_DAY) * DateUtils.DAY_IN_MILLIS
+                        - gmtoff * DateUtils.SECOND_IN_MILLIS + DateUtils.DAY_IN_MILLIS / 2;
+                friendly[i] = formatFriendlyDay(date, false);
+                longFriendly[i] = formatFriendlyDay(date, true);
+                fullFriendly[i] = formatFullFriendlyDay(date);
+                dayNames[i] = formatDayName(date);
+                monthDays[i] = monthDayFormat.get().format(date);
+            }
+        }
+
+        /**
+         * @return the index of the cached labels for a date, or -1 if it isn't cached
+         */
+        int indexOf(long dateInMillis) {
+            int index = Time.getJulianDay(dateInMillis, gmtoff) - currentJulianDay;
+            return index >= 0 && index < friendly.length ? index : -1;
+        }
+
+        String formatFriendlyDay(long dateInMillis, boolean displayLongToday) {
+            // The day string for forecast uses the following logic:
+            // For today: "Today, June 8"
+            // For tomorrow:  "Tomorrow"
+            // For the next 5 days: "Wednesday" (just the day name)
+            // For all days after that: "Mon Jun 8"
+            int julianDay = Time.getJulianDay(dateInMillis, gmtoff);
+
+            // If the date we're building the String for is today's date, the format
+            // is "Today, June 24"
+            if (displayLongToday && julianDay == currentJulianDay) {
+                return mContext.getString(R.string.format_full_friendly_date,
+                        mContext.getString(R.string.today),
+                        monthDayFormat.get().format(dateInMillis));
+            } else if (julianDay < currentJulianDay + 7) {
+                // If the input date is less than a week in the future, just return the day name.
+                return formatDayName(dateInMillis);
+            } else {
+                // Otherwise, use the form "Mon Jun 3"
+                return shortDateFormat.get().format(dateInMillis);
+            }
+        }
+
+        String formatFullFriendlyDay(long dateInMillis) {
+            return mContext.getString(R.string.format_full_friendly_date,
+                    formatDayName(dateInMillis), monthDayFormat.get().format(dateInMillis));
+        }
+
+        String formatDayName(long dateInMillis) {
+            // If the date is today, return the localized version of "Today" instead of the actual
+            // day name.
+            int julianDay = Time.getJulianDay(dateInMillis, gmtoff);
+            if (julianDay == currentJulianDay) {
+                return mContext.getString(R.string.today);
+            } else if (julianDay == currentJulianDay + 1) {
+                return mContext.getString(R.string.tomorrow);
+            } else {
+                // Otherwise, the format is just the day of the week (e.g "Wednesday".
+                return dayNameFormat.get().format(dateInMillis);
+            }
+        }
+
+        String formatTemperature(double temperature) {
+            return String.format(mTemperatureFormat, temperature);
+        }
+    }
+
+    private static class FormatThreadLocal extends ThreadLocal<SimpleDateFormat> {
+        private final String mPattern;
+
+        FormatThreadLocal(String pattern) {
+            mPattern = pattern;
+        }
+
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(mPattern);
+        }
+    }
+}
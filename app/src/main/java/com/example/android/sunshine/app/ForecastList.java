@@ -0,0 +1,72 @@
+package com.example.android.sunshine.app;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rows of the forecast list, with the location they are for.  Immutable, so it can be built
+ * on the loader's thread and handed to the adapter as is.
+ */
+public class ForecastList {
+    private static final AtomicLong sNextId = new AtomicLong();
+
+    private final ForecastRow[] mRows;
+    // Tells this list apart from every other, for diffs to name the list they apply to without
+    // holding on to it
+    public final long id;
+    public final String latitude;
+    public final String longitude;
+    // How this list differs from the one loaded before it, or null if there was none
+    public final ForecastDiff diff;
+    // Set when this list is only shown until the loader delivers the live one: today's row on
+    // its own, or the last list shown, read back from disk
+    public final boolean provisional;
+
+    public ForecastList(ForecastRow[] rows, String latitude, String longitude) {
+        this(rows, latitude, longitude, null, false);
+    }
+
+    private ForecastList(ForecastRow[] rows, String latitude, String longitude,
+                         ForecastDiff diff, boolean provisional) {
+        mRows = rows;
+        this.id = sNextId.getAndIncrement();
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.diff = diff;
+        this.provisional = provisional;
+    }
+
+    /**
+     * @return the same rows, carrying their diff from the previous list
+     */
+    public ForecastList withDiffFrom(ForecastList previous) {
+        return new ForecastList(mRows, latitude, longitude, ForecastDiff.compute(previous, this),
+                provisional);
+    }
+
+    /**
+     * @return the same rows, marked as provisional
+     */
+    public ForecastList asProvisional() {
+        return new ForecastList(mRows, latitude, longitude, diff, true);
+    }
+
+    public int size() {
+        return mRows.length;
+    }
+
+    public ForecastRow get(int position) {
+        return mRows[position];
+    }
+
+    /**
+     * @return the position of the row for the given date, or -1 if there is none
+     */
+    public int findPosition(long date) {
+        for (int i = 0; i < mRows.length; i++) {
+            if (mRows[i].date == date) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Keeps the last forecast list the loader built on disk, rows already formatted, so a cold start
+ * can show it straight away instead of waiting for the database and formatting every row.
+ *
+ * The rows are only good for what they were formatted with.  A list is read back only if it was
+ * written today, by this build, for the same location, units, art pack and locale; otherwise
+ * there is nothing to show until the loader delivers.
+ */
+public class ForecastListStore {
+    private static final String LOG_TAG = ForecastListStore.class.getSimpleName();
+
+    private static final String FILE_NAME = "forecast_list";
+    // Bump when the layout below changes
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * @return the stored list as a {@link ForecastList#provisional} list, or null if there is
+     * none that is still good
+     */
+    public static ForecastList read(Context context) {
+        AtomicFile file = getFile(context);
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(file.openRead()));
+        } catch (IOException e) {
+            // Nothing stored yet
+            return null;
+        }
+        try {
+            PreferencesSnapshot prefs = PreferencesSnapshot.get(context);
+            if (in.readInt() != FORMAT_VERSION
+                    || in.readInt() != BuildConfig.VERSION_CODE
+                    || !in.readUTF().equals(prefs.location)
+                    || in.readBoolean() != prefs.metric
+                    || !in.readUTF().equals(prefs.artPack)
+                    || !in.readUTF().equals(Locale.getDefault().toString())
+                    // "Today" and "Tomorrow" are only right on the day they were written
+                    || !DateUtils.isToday(in.readLong())) {
+                return null;
+            }
+            String latitude = readNullableString(in);
+            String longitude = readNullableString(in);
+            int size = in.readInt();
+            if (size <= 0) {
+                return null;
+            }
+            ForecastRow[] rows = new ForecastRow[size];
+            for (int i = 0; i < size; i++) {
+                long date = in.readLong();
+                int weatherId = in.readInt();
+                rows[i] = new ForecastRow(date, weatherId,
+                        Utility.getIconResourceForWeatherCondition(weatherId),
+                        Utility.getArtResourceForWeatherCondition(weatherId),
+                        readNullableString(in), in.readUTF(), in.readUTF(), in.readUTF(),
+                        in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                        in.readUTF());
+            }
+            return new ForecastList(rows, latitude, longitude).asProvisional();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Couldn't read the stored forecast list", e);
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Already read
+            }
+        }
+    }
+
+    /**
+     * Replaces the stored list.  Does disk I/O, so call it off the main thread.
+     */
+    public static void write(Context context, ForecastList forecast) {
+        PreferencesSnapshot prefs = PreferencesSnapshot.get(context);
+        AtomicFile file = getFile(context);
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(BuildConfig.VERSION_CODE);
+            out.writeUTF(prefs.location);
+            out.writeBoolean(prefs.metric);
+            out.writeUTF(prefs.artPack);
+            out.writeUTF(Locale.getDefault().toString());
+            out.writeLong(System.currentTimeMillis());
+            writeNullableString(out, forecast.latitude);
+            writeNullableString(out, forecast.longitude);
+            out.writeInt(forecast.size());
+            for (int i = 0; i < forecast.size(); i++) {
+                ForecastRow row = forecast.get(i);
+                out.writeLong(row.date);
+                // Not the drawables, whose ids can change between builds of the same version
+                out.writeInt(row.weatherId);
+                writeNullableString(out, row.artUrl);
+                out.writeUTF(row.dateText);
+                out.writeUTF(row.longDateText);
+                out.writeUTF(row.description);
+                out.writeUTF(row.descriptionContentDescription);
+                out.writeUTF(row.highText);
+                out.writeUTF(row.highContentDescription);
+                out.writeUTF(row.lowText);
+                out.writeUTF(row.lowContentDescription);
+                out.writeUTF(row.iconTransitionName);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Couldn't store the forecast list", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    /**
+     * Drops the stored list.
+     */
+    public static void clear(Context context) {
+        getFile(context).delete();
+    }
+
+    private static AtomicFile getFile(Context context) {
+        // Only ever a copy of what the database holds, so it can go with the cache
+        return new AtomicFile(new File(context.getCacheDir(), FILE_NAME));
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
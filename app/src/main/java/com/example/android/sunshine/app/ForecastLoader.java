@@ -0,0 +1,216 @@
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.example.android.sunshine.app.data.PackedForecast;
+import com.example.android.sunshine.app.data.PackedForecastCache;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Loads the forecast for the preferred location and turns it into {@link ForecastRow}s on the
+ * loader's thread, so the list does no formatting, preference reads or resource lookups while
+ * binding.  Reloads whenever the weather table changes, which includes the units and art pack
+ * changing, and when the date, clock, time zone or locale changes, since the rows hold labels
+ * like "Today" that are formatted for them.
+ *
+ * The first load delivers today's row on its own as soon as it is read, as a
+ * {@link ForecastList#provisional} list, so the today card shows before the rest of the days are
+ * queried and formatted.  When the fragment already shows a list from {@link ForecastListStore}
+ * it is passed in instead, and the live list is diffed against it, so only the rows that changed
+ * since it was stored are rebound.  Every live list is stored for the next start.
+ */
+public class ForecastLoader extends AsyncTaskLoader<ForecastList> {
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private final BroadcastReceiver mDayReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // The formatter's own receiver may not have run yet
+            ForecastFormatter.getInstance(context).invalidate();
+            onContentChanged();
+        }
+    };
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private boolean mObserving;
+    // Read on the loader thread to diff against, so volatile
+    private volatile ForecastList mForecast;
+
+    /**
+     * @param initial a {@link ForecastList#provisional} list already on screen, or null
+     */
+    public ForecastLoader(Context context, ForecastList initial) {
+        super(context);
+        mForecast = initial;
+    }
+
+    @Override
+    public ForecastList loadInBackground() {
+        // To only show current and future dates, filter the query to return weather only for
+        // dates after or including today.
+
+        // Sort order:  Ascending, by date.
+        String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
+
+        Context context = getContext();
+        String locationSetting = PreferencesSnapshot.get(context).location;
+        if (mForecast == null) {
+            deliverToday(context, locationSetting);
+        }
+
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                locationSetting, System.currentTimeMillis());
+        // Taken before the query, so a forecast that a sync overwrites meanwhile isn't shared
+        long generation = PackedForecastCache.getGeneration();
+        Cursor cursor = context.getContentResolver().query(weatherForLocationUri,
+                PackedForecast.COLUMNS, null, null, sortOrder);
+        ForecastList forecast;
+        if (cursor == null) {
+            forecast = new ForecastList(new ForecastRow[0], null, null);
+        } else {
+            PackedForecast packed;
+            try {
+                packed = PackedForecast.from(cursor);
+            } finally {
+                cursor.close();
+            }
+            // The detail view reads its day from here rather than querying again
+            PackedForecastCache.put(packed, generation);
+            forecast = buildList(context, packed);
+        }
+
+        // Diffing here lets the list update only the rows that changed, without comparing them
+        // on the main thread.
+        ForecastList previous = mForecast;
+        if (previous != null) {
+            forecast = forecast.withDiffFrom(previous);
+        }
+        if (forecast.diff == null || !forecast.diff.isEmpty()) {
+            ForecastListStore.write(context, forecast);
+        }
+        return forecast;
+    }
+
+    /**
+     * Reads today's row and delivers it, ahead of the whole list.
+     */
+    private void deliverToday(Context context, String locationSetting) {
+        Uri todayUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                locationSetting, System.currentTimeMillis());
+        Cursor cursor = context.getContentResolver().query(todayUri, PackedForecast.COLUMNS,
+                null, null, null);
+        if (cursor == null) {
+            return;
+        }
+        final ForecastList today;
+        try {
+            if (cursor.getCount() == 0) {
+                // Not synced since yesterday, so there is no today card to show early
+                return;
+            }
+            today = buildList(context, PackedForecast.from(cursor)).asProvisional();
+        } finally {
+            cursor.close();
+        }
+        // Posted before the whole list can be, so it is always delivered first
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mForecast == null && !isAbandoned()) {
+                    deliverResult(today);
+                }
+            }
+        });
+    }
+
+    /**
+     * Resolves every row of a packed forecast.
+     */
+    static ForecastList buildList(Context context, PackedForecast packed) {
+        // Read the settings once for the whole list
+        PreferencesSnapshot prefs = PreferencesSnapshot.get(context);
+        ForecastRow[] rows = new ForecastRow[packed.size];
+        for (int i = 0; i < packed.size; i++) {
+            int weatherId = packed.weatherIds[i];
+            long date = packed.dates[i];
+            String description = Utility.getStringForWeatherCondition(context, weatherId);
+            String high = Utility.formatTemperature(context, packed.high[i], prefs.metric);
+            String low = Utility.formatTemperature(context, packed.low[i], prefs.metric);
+            rows[i] = new ForecastRow(date, weatherId,
+                    Utility.getIconResourceForWeatherCondition(weatherId),
+                    Utility.getArtResourceForWeatherCondition(weatherId),
+                    prefs.localGraphics
+                            ? null : Utility.getArtUrlForWeatherCondition(prefs.artPack, weatherId),
+                    Utility.getFriendlyDayString(context, date, false),
+                    Utility.getFriendlyDayString(context, date, true),
+                    description,
+                    context.getString(R.string.a11y_forecast, description),
+                    high,
+                    context.getString(R.string.a11y_high_temp, high),
+                    low,
+                    context.getString(R.string.a11y_low_temp, low),
+                    // this enables better animations. even if we lose state due to a device
+                    // rotation, the animator can use this to re-find the original view.  Keyed
+                    // by date, so it stays with the row when days are added or dropped.
+                    "iconView" + date);
+        }
+        return new ForecastList(rows, packed.latitude, packed.longitude);
+    }
+
+    @Override
+    public void deliverResult(ForecastList forecast) {
+        if (isReset()) {
+            return;
+        }
+        mForecast = forecast;
+        if (isStarted()) {
+            super.deliverResult(forecast);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            // Provider changes to any weather row, and the units and art pack settings, are
+            // all notified on the weather table's URI.
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_DATE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+            getContext().registerReceiver(mDayReceiver, filter);
+            mObserving = true;
+        }
+        if (mForecast != null) {
+            deliverResult(mForecast);
+        }
+        if (takeContentChanged() || mForecast == null || mForecast.provisional) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            getContext().unregisterReceiver(mDayReceiver);
+            mObserving = false;
+        }
+        mForecast = null;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.sunshine.app;
+
+/**
+ * Everything a forecast list item shows, resolved ahead of time so that binding a row is only a
+ * matter of setting fields on its views.
+ */
+public class ForecastRow {
+    public final long date;
+    public final int weatherId;
+    // Icon for the small layout, art for the today layout; either is used while the art loads
+    public final int iconResource;
+    public final int artResource;
+    // null when the bundled art is used
+    public final String artUrl;
+    public final String dateText;
+    // The date as the today layout shows it, "Today, June 8"
+    public final String longDateText;
+    public final String description;
+    public final String descriptionContentDescription;
+    public final String highText;
+    public final String highContentDescription;
+    public final String lowText;
+    public final String lowContentDescription;
+    public final String iconTransitionName;
+
+    public ForecastRow(long date, int weatherId, int iconResource, int artResource, String artUrl,
+                       String dateText, String longDateText, String description,
+                       String descriptionContentDescription, String highText,
+                       String highContentDescription, String lowText,
+                       String lowContentDescription, String iconTransitionName) {
+        this.date = date;
+        this.weatherId = weatherId;
+        this.iconResource = iconResource;
+        this.artResource = artResource;
+        this.artUrl = artUrl;
+        this.dateText = dateText;
+        this.longDateText = longDateText;
+        this.description = description;
+        this.descriptionContentDescription = descriptionContentDescription;
+        this.highText = highText;
+        this.highContentDescription = highContentDescription;
+        this.lowText = lowText;
+        this.lowContentDescription = lowContentDescription;
+        this.iconTransitionName = iconTransitionName;
+    }
+}
@@ -44,6 +44,26 @@ public class ItemChoiceManager {
             if (mAdapter != null && mAdapter.hasStableIds())
                 confirmCheckedPositionsById(mAdapter.getItemCount());
         }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            shiftCheckedPositions(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            // Removed items lose their check, the ones after them move up
+            for (int position = positionStart; position < positionStart + itemCount; position++) {
+                mCheckStates.delete(position);
+            }
+            for (int i = mCheckedIdStates.size() - 1; i >= 0; i--) {
+                int position = mCheckedIdStates.valueAt(i);
+                if (position >= positionStart && position < positionStart + itemCount) {
+                    mCheckedIdStates.removeAt(i);
+                }
+            }
+            shiftCheckedPositions(positionStart + itemCount, -itemCount);
+        }
     };
 
     private ItemChoiceManager() {
@@ -53,6 +73,9 @@ public class ItemChoiceManager {
 
     public ItemChoiceManager(RecyclerView.Adapter adapter) {
         mAdapter = adapter;
+        // Keeps checked positions in step with item range updates, so those don't lose the
+        // selection the way a full data set change would.
+        mAdapter.registerAdapterDataObserver(mAdapterDataObserver);
     }
 
     /**
@@ -149,6 +172,25 @@ public class ItemChoiceManager {
         return mCheckStates.get(position);
     }
 
+    /**
+     * Moves the checked positions at or after positionStart by delta.
+     */
+    private void shiftCheckedPositions(int positionStart, int delta) {
+        SparseBooleanArray shifted = new SparseBooleanArray(mCheckStates.size());
+        for (int i = 0; i < mCheckStates.size(); i++) {
+            int position = mCheckStates.keyAt(i);
+            shifted.put(position >= positionStart ? position + delta : position,
+                    mCheckStates.valueAt(i));
+        }
+        mCheckStates = shifted;
+        for (int i = 0; i < mCheckedIdStates.size(); i++) {
+            int position = mCheckedIdStates.valueAt(i);
+            if (position >= positionStart) {
+                mCheckedIdStates.setValueAt(i, position + delta);
+            }
+        }
+    }
+
     void clearSelections() {
         mCheckStates.clear();
         mCheckedIdStates.clear();
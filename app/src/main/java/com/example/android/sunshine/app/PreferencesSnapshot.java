@@ -0,0 +1,119 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable copy of the settings the rest of the app reads, so hot paths like binding list
+ * rows, widget rows and syncs don't look up the preference keys and parse the values on every
+ * read.
+ *
+ * There is one snapshot per process.  It is rebuilt whenever one of its preferences changes and
+ * swapped in through a volatile reference, so {@link #get(Context)} never locks and never sees
+ * a half-built snapshot.
+ *
+ * Change listeners are called on the main thread, in no particular order, and after the write
+ * when it was made on another thread.  Code that writes one of these preferences and reads it
+ * back straight away, or that reads them from its own change listener, calls
+ * {@link #refresh(Context)} first.
+ */
+public class PreferencesSnapshot {
+    private static volatile PreferencesSnapshot sSnapshot;
+    // Held here because SharedPreferences only keeps a weak reference to its listeners
+    private static SharedPreferences.OnSharedPreferenceChangeListener sListener;
+
+    public final String location;
+    public final boolean metric;
+    public final String artPack;
+    public final boolean localGraphics;
+    public final boolean latLonAvailable;
+    public final float latitude;
+    public final float longitude;
+    public final @SunshineSyncAdapter.LocationStatus int locationStatus;
+    public final boolean notificationsEnabled;
+
+    /**
+     * @return the current settings.  Cheap enough to call per bind.
+     */
+    public static PreferencesSnapshot get(Context context) {
+        PreferencesSnapshot snapshot = sSnapshot;
+        if (snapshot == null) {
+            snapshot = init(context.getApplicationContext());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds the snapshot from the stored preferences right away, without waiting for the
+     * change listener.
+     */
+    public static void refresh(Context context) {
+        Context appContext = context.getApplicationContext();
+        init(appContext);
+        rebuild(appContext);
+    }
+
+    private static synchronized PreferencesSnapshot init(final Context context) {
+        if (sListener == null) {
+            final Set<String> keys = new HashSet<String>();
+            keys.add(context.getString(R.string.pref_location_key));
+            keys.add(context.getString(R.string.pref_units_key));
+            keys.add(context.getString(R.string.pref_art_pack_key));
+            keys.add(context.getString(R.string.pref_location_latitude));
+            keys.add(context.getString(R.string.pref_location_longitude));
+            keys.add(context.getString(R.string.pref_location_status_key));
+            keys.add(context.getString(R.string.pref_enable_notifications_key));
+            sListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                    if (keys.contains(key)) {
+                        rebuild(context);
+                    }
+                }
+            };
+            PreferenceManager.getDefaultSharedPreferences(context)
+                    .registerOnSharedPreferenceChangeListener(sListener);
+            rebuild(context);
+        }
+        return sSnapshot;
+    }
+
+    // Synchronized so a rebuild that started before a write can't replace one that started after
+    private static synchronized void rebuild(Context context) {
+        sSnapshot = new PreferencesSnapshot(context,
+                PreferenceManager.getDefaultSharedPreferences(context));
+    }
+
+    @SuppressWarnings("ResourceType")
+    private PreferencesSnapshot(Context context, SharedPreferences prefs) {
+        location = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+
+        String metricUnits = context.getString(R.string.pref_units_metric);
+        metric = prefs.getString(context.getString(R.string.pref_units_key), metricUnits)
+                .equals(metricUnits);
+
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        artPack = prefs.getString(context.getString(R.string.pref_art_pack_key), sunshineArtPack);
+        localGraphics = artPack.equals(sunshineArtPack);
+
+        String latitudeKey = context.getString(R.string.pref_location_latitude);
+        String longitudeKey = context.getString(R.string.pref_location_longitude);
+        latLonAvailable = prefs.contains(latitudeKey) && prefs.contains(longitudeKey);
+        latitude = prefs.getFloat(latitudeKey, Utility.DEFAULT_LATLONG);
+        longitude = prefs.getFloat(longitudeKey, Utility.DEFAULT_LATLONG);
+
+        locationStatus = prefs.getInt(context.getString(R.string.pref_location_status_key),
+                SunshineSyncAdapter.LOCATION_STATUS_UNKNOWN);
+
+        notificationsEnabled = prefs.getBoolean(
+                context.getString(R.string.pref_enable_notifications_key),
+                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.sunshine.app;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Times how long the forecast takes to show after MainActivity is created: to the first frame
+ * with weather in it, usually just the today card, and to the frame with the whole list.
+ *
+ * The whole list is also reported to the system with {@link Activity#reportFullyDrawn()}, so
+ * it shows up as "Fully drawn" in the activity manager's log next to the launch time.
+ *
+ * Only used from the main thread.
+ */
+public class StartupMetrics {
+    private static final String LOG_TAG = StartupMetrics.class.getSimpleName();
+
+    private static long sStartMillis = -1;
+    private static boolean sFirstFrameReported;
+    private static boolean sFullyDrawnReported;
+
+    /**
+     * Starts timing.  Call when MainActivity is created.
+     */
+    public static void onActivityCreated() {
+        sStartMillis = SystemClock.elapsedRealtime();
+        sFirstFrameReported = false;
+        sFullyDrawnReported = false;
+    }
+
+    /**
+     * Call when a frame with the first forecast rows in it is about to draw.
+     */
+    public static void reportFirstMeaningfulFrame() {
+        if (sStartMillis < 0 || sFirstFrameReported) {
+            return;
+        }
+        sFirstFrameReported = true;
+        long millis = SystemClock.elapsedRealtime() - sStartMillis;
+        Log.i(LOG_TAG, "First meaningful frame: " + millis + "ms");
+    }
+
+    /**
+     * Call when a frame with the whole list, or the empty view, is about to draw.
+     */
+    public static void reportFullyDrawn(Activity activity) {
+        if (sStartMillis < 0 || sFullyDrawnReported) {
+            return;
+        }
+        sFullyDrawnReported = true;
+        long millis = SystemClock.elapsedRealtime() - sStartMillis;
+        Log.i(LOG_TAG, "Fully drawn: " + millis + "ms");
+        activity.reportFullyDrawn();
+    }
+
+    /**
+     * @return true once the whole list has been reported since the activity was created
+     */
+    static boolean isFullyDrawn() {
+        return sFullyDrawnReported;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.sync.LatencyHistogram;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the art of the selected art pack on disk before anything needs to show it.
+ *
+ * The art for every weather condition is downloaded into Glide's disk cache by
+ * {@link ArtPrefetchJobService} once the device is on an unmetered network, so the list, the
+ * detail view and the widgets decode it from disk instead of waiting on the network when they
+ * first bind.  Surfaces report their binds through {@link #newBindListener(String)}, which keeps
+ * the cache hit ratio and the first bind latency of each URL.
+ */
+public class ArtPackManager {
+    private static final String LOG_TAG = ArtPackManager.class.getSimpleName();
+
+    // Every art name Utility.getArtNameForWeatherCondition can return
+    static final String[] ART_NAMES = {
+            "clear", "clouds", "fog", "light_clouds", "light_rain", "rain", "snow", "storm"
+    };
+
+    private static final long DOWNLOAD_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static ArtPackManager sInstance;
+
+    private final Context mContext;
+    // URLs known to be in the disk cache, or in flight to it, for the current pack
+    private final Set<String> mPrefetchedUrls = new HashSet<String>();
+    // URLs that have been bound at least once since the process started
+    private final Set<String> mBoundUrls = new HashSet<String>();
+    private final LatencyHistogram mFirstBindLatencies = new LatencyHistogram();
+    private long mHits;
+    private long mMisses;
+
+    public static synchronized ArtPackManager getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArtPackManager(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ArtPackManager(Context context) {
+        mContext = context;
+        if (isPrefetched()) {
+            mPrefetchedUrls.addAll(getArtUrls(Utility.getArtPack(context)));
+        }
+    }
+
+    /**
+     * @return the art URL of every weather condition in the given pack
+     */
+    public static Set<String> getArtUrls(String artPack) {
+        Set<String> urls = new HashSet<String>(ART_NAMES.length);
+        for (String artName : ART_NAMES) {
+            urls.add(String.format(Locale.US, artPack, artName));
+        }
+        return urls;
+    }
+
+    /**
+     * Schedules a prefetch of the current pack, unless it has been done already or the pack is
+     * bundled with the app.  Cheap enough to call whenever the app starts.
+     */
+    public void ensurePrefetched() {
+        if (!Utility.usingLocalGraphics(mContext) && !isPrefetched()) {
+            ArtPrefetchJobService.schedule(mContext);
+        }
+    }
+
+    /**
+     * Forgets the old pack and starts getting the new one ready.  Call after the art pack
+     * preference has changed, from the main thread.
+     */
+    public void onArtPackChanged() {
+        synchronized (this) {
+            mPrefetchedUrls.clear();
+        }
+        getPreferences().edit().remove(mContext.getString(R.string.pref_art_prefetched_pack))
+                .apply();
+        // The old pack's art is left in the disk cache for its size cap to evict.
+        Glide.get(mContext).clearMemory();
+        NotificationIconService.startFill(mContext);
+        if (Utility.usingLocalGraphics(mContext)) {
+            ArtPrefetchJobService.cancel(mContext);
+        } else {
+            ArtPrefetchJobService.schedule(mContext);
+        }
+    }
+
+    /**
+     * Downloads every art URL of the current pack into the disk cache.  Blocks, so it must not
+     * run on the main thread.
+     *
+     * @return true if the whole pack is on disk
+     */
+    public boolean prefetch() {
+        String artPack = Utility.getArtPack(mContext);
+        boolean complete = true;
+        for (String url : getArtUrls(artPack)) {
+            synchronized (this) {
+                if (mPrefetchedUrls.contains(url)) {
+                    continue;
+                }
+            }
+            // Only the source is kept, the surfaces cache their own sizes when they first bind.
+            FutureTarget<File> target = Glide.with(mContext)
+                    .load(url)
+                    .downloadOnly(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL);
+            try {
+                target.get(DOWNLOAD_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                synchronized (this) {
+                    mPrefetchedUrls.add(url);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException | TimeoutException e) {
+                Log.e(LOG_TAG, "Error prefetching " + url, e);
+                complete = false;
+            } finally {
+                Glide.clear(target);
+            }
+        }
+
+        // The pack may have changed while we were downloading; then the new one still needs doing.
+        if (complete && artPack.equals(Utility.getArtPack(mContext))) {
+            getPreferences().edit()
+                    .putString(mContext.getString(R.string.pref_art_prefetched_pack), artPack)
+                    .apply();
+        }
+        Log.d(LOG_TAG, "Prefetched art pack, complete: " + complete + ", " + getMetricsSummary());
+        return complete;
+    }
+
+    /**
+     * Returns a Glide listener that records a bind of the given art URL in the metrics.  Create
+     * it when the bind starts, so the latency covers the whole load.
+     */
+    public <R> RequestListener<String, R> newBindListener(final String url) {
+        final long start = SystemClock.elapsedRealtime();
+        final boolean firstBind;
+        synchronized (this) {
+            firstBind = mBoundUrls.add(url);
+            if (mPrefetchedUrls.contains(url)) {
+                mHits++;
+            } else {
+                mMisses++;
+            }
+        }
+        return new RequestListener<String, R>() {
+            @Override
+            public boolean onException(Exception e, String model, Target<R> target,
+                                       boolean isFirstResource) {
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(R resource, String model, Target<R> target,
+                                           boolean isFromMemoryCache, boolean isFirstResource) {
+                if (firstBind) {
+                    mFirstBindLatencies.record(SystemClock.elapsedRealtime() - start);
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the share of binds whose art was already prefetched, or 0 if nothing was bound yet
+     */
+    public synchronized double getHitRatio() {
+        long binds = mHits + mMisses;
+        return binds == 0 ? 0 : (double) mHits / binds;
+    }
+
+    /**
+     * @return the time from bind to art on screen, for the first bind of each URL
+     */
+    public LatencyHistogram getFirstBindLatencies() {
+        return mFirstBindLatencies;
+    }
+
+    public synchronized String getMetricsSummary() {
+        return String.format(Locale.US, "hit ratio %.2f over %d binds, first bind %s",
+                getHitRatio(), mHits + mMisses, mFirstBindLatencies);
+    }
+
+    private boolean isPrefetched() {
+        String prefetchedPack = getPreferences().getString(
+                mContext.getString(R.string.pref_art_prefetched_pack), null);
+        return Utility.getArtPack(mContext).equals(prefetchedPack);
+    }
+
+    private SharedPreferences getPreferences() {
+        return PreferenceManager.getDefaultSharedPreferences(mContext);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.sunshine.app.art;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.AsyncTask;
+
+/**
+ * Prefetches the current art pack through {@link ArtPackManager} once the device is on an
+ * unmetered network.  An incomplete prefetch is retried with the scheduler's back-off.
+ */
+public class ArtPrefetchJobService extends JobService {
+
+    static final int JOB_ID = 3006;
+
+    private AsyncTask<Void, Void, Boolean> mTask;
+
+    /**
+     * Schedules a prefetch, replacing any pending one.
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, ArtPrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    /**
+     * Drops the pending prefetch, if any.  Called when the user switches to the bundled art.
+     */
+    public static void cancel(Context context) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.cancel(JOB_ID);
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        mTask = new AsyncTask<Void, Void, Boolean>() {
+            @Override
+            protected Boolean doInBackground(Void... voids) {
+                return ArtPackManager.getInstance(ArtPrefetchJobService.this).prefetch();
+            }
+
+            @Override
+            protected void onPostExecute(Boolean complete) {
+                jobFinished(params, !complete);
+            }
+        };
+        mTask.execute();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Lost the unmetered network; whatever was downloaded stays in the cache.
+        if (mTask != null) {
+            mTask.cancel(true);
+        }
+        return true;
+    }
+}
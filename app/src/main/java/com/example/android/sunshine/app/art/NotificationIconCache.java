@@ -0,0 +1,95 @@
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.Utility;
+
+/**
+ * Notification large icons for every weather condition, already scaled to the size the system
+ * shows them at.  Icons are kept in memory and in the app's cache directory, one directory per art
+ * pack, so posting a notification doesn't have to download or decode full size art.
+ *
+ * The cache is filled by {@link #fill()}, which {@link NotificationIconService} runs in the
+ * background whenever the art pack changes.  Until then {@link #getLargeIcon(int)} falls back to
+ * the bundled art, and starts a fill itself at most once every half hour for each pack, so a
+ * pack that can't be downloaded doesn't start a fill for every notification.
+ */
+public class NotificationIconCache {
+    private static final String DIRECTORY = "notification_icons";
+    // Enough for the icons of two art packs at xxxhdpi
+    private static final int MEMORY_CACHE_BYTES = 2 * 1024 * 1024;
+    private static final long FILL_RETRY_MILLIS = 30 * 60 * 1000;
+
+    private static NotificationIconCache sInstance;
+
+    private final Context mContext;
+    private final ScaledArtCache mIcons;
+    // The pack a fill was last started for from getLargeIcon, and when
+    private String mFillStartedPack;
+    private long mFillStartedMillis;
+
+    public static synchronized NotificationIconCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NotificationIconCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private NotificationIconCache(Context context) {
+        mContext = context;
+        Resources resources = context.getResources();
+        mIcons = new ScaledArtCache(context, DIRECTORY,
+                resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
+                resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height),
+                MEMORY_CACHE_BYTES);
+    }
+
+    /**
+     * Returns the large icon for a weather condition in the current art pack.  Doesn't touch the
+     * network, so it may be called while posting a notification, but it may read the disk.
+     *
+     * @param weatherId from OpenWeatherMap API response
+     * @return the icon, or null if there is no art for the condition
+     */
+    public Bitmap getLargeIcon(int weatherId) {
+        String artName = Utility.getArtNameForWeatherCondition(weatherId);
+        if (artName == null) {
+            return null;
+        }
+        // The same pack fill() reads, so the two can't disagree
+        String artPack = PreferencesSnapshot.get(mContext).artPack;
+        Bitmap icon = mIcons.get(artPack, artName);
+        if (icon == null) {
+            // Not filled yet; the bundled art will do until it is.  It isn't put in the memory
+            // cache, so that the art pack's own icon is picked up once the fill finishes.
+            if (shouldStartFill(artPack, SystemClock.elapsedRealtime())) {
+                NotificationIconService.startFill(mContext);
+            }
+            return mIcons.decodeBundledArt(artName);
+        }
+        return icon;
+    }
+
+    private synchronized boolean shouldStartFill(String artPack, long nowMillis) {
+        if (artPack.equals(mFillStartedPack)
+                && nowMillis - mFillStartedMillis < FILL_RETRY_MILLIS) {
+            return false;
+        }
+        mFillStartedPack = artPack;
+        mFillStartedMillis = nowMillis;
+        return true;
+    }
+
+    /**
+     * Scales and stores the icons of the current art pack, and deletes those of any other pack.
+     * Downloads the art if the pack isn't bundled, so this must not run on the main thread.
+     */
+    public void fill() {
+        PreferencesSnapshot prefs = PreferencesSnapshot.get(mContext);
+        mIcons.fill(prefs.artPack, prefs.localGraphics);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.android.sunshine.app.art;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * IntentService which fills the {@link NotificationIconCache} for the current art pack.
+ */
+public class NotificationIconService extends IntentService {
+
+    public NotificationIconService() {
+        super("NotificationIconService");
+    }
+
+    /**
+     * Starts a fill in the background.  Fills that are already done return straight away, so
+     * this is cheap to call more often than needed.
+     */
+    public static void startFill(Context context) {
+        context.startService(new Intent(context, NotificationIconService.class));
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        NotificationIconCache.getInstance(this).fill();
+    }
+}
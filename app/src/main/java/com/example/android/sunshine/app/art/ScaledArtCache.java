@@ -0,0 +1,298 @@
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.example.android.sunshine.app.R;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The art for every weather condition, already scaled to fit one size.  Images are kept in
+ * memory up to a cap and in the app's cache directory, one directory per art pack and size, so
+ * whatever shows them doesn't have to download or decode full size art.
+ *
+ * {@link #fill(String, boolean)} stores a pack and must run off the main thread;
+ * {@link #get(String, String)} only reads what it stored.
+ */
+public class ScaledArtCache {
+    private static final String LOG_TAG = ScaledArtCache.class.getSimpleName();
+
+    // The bundled art for each of ArtPackManager.ART_NAMES, in the same order
+    private static final int[] ART_RESOURCES = {
+            R.drawable.art_clear, R.drawable.art_clouds, R.drawable.art_fog,
+            R.drawable.art_light_clouds, R.drawable.art_light_rain, R.drawable.art_rain,
+            R.drawable.art_snow, R.drawable.art_storm
+    };
+
+    private static final long DOWNLOAD_TIMEOUT_MILLIS = 30 * 1000;
+    // Downloads are mostly waiting on the network, so a few at once
+    private static final int FILL_THREADS = 4;
+
+    private final Context mContext;
+    private final String mDirectory;
+    private final int mWidth;
+    private final int mHeight;
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    /**
+     * @param directory    name of the directory under the cache directory to store images in
+     * @param memoryBytes  how much memory decoded images may take
+     */
+    public ScaledArtCache(Context context, String directory, int width, int height,
+                          int memoryBytes) {
+        mContext = context.getApplicationContext();
+        mDirectory = directory;
+        mWidth = width;
+        mHeight = height;
+        mMemoryCache = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Returns a stored image.  Doesn't touch the network, but may read the disk.
+     *
+     * @return the image, or null if the pack hasn't been filled with it
+     */
+    public Bitmap get(String artPack, String artName) {
+        String key = artPack + artName;
+        Bitmap image = mMemoryCache.get(key);
+        if (image != null) {
+            return image;
+        }
+        File file = getImageFile(artPack, artName);
+        if (file.exists()) {
+            image = BitmapFactory.decodeFile(file.getPath());
+        }
+        if (image != null) {
+            mMemoryCache.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Scales and stores every image of a pack that isn't stored yet, and deletes those of any
+     * other pack.  Downloads the art if the pack isn't bundled, several images at a time, and
+     * returns once they are all done.  Fills of the same cache wait for each other.  Must not
+     * run on the main thread.
+     *
+     * @param local true for the bundled pack, which is decoded from resources
+     */
+    public synchronized void fill(final String artPack, final boolean local) {
+        File packDirectory = getPackDirectory(artPack);
+        deleteOtherPacks(packDirectory);
+        if (!packDirectory.exists() && !packDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Couldn't create " + packDirectory);
+            return;
+        }
+
+        List<Callable<Void>> tasks =
+                new ArrayList<Callable<Void>>(ArtPackManager.ART_NAMES.length);
+        for (final String artName : ArtPackManager.ART_NAMES) {
+            final File file = getImageFile(artPack, artName);
+            if (file.exists()) {
+                continue;
+            }
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    Bitmap image = local
+                            ? decodeBundledArt(artName) : downloadArt(artPack, artName);
+                    if (image == null) {
+                        return null;
+                    }
+                    try {
+                        writeImage(image, file);
+                        mMemoryCache.put(artPack + artName, image);
+                    } catch (IOException e) {
+                        Log.e(LOG_TAG, "Couldn't store the " + artName + " image", e);
+                    }
+                    return null;
+                }
+            });
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        if (local || tasks.size() == 1) {
+            // Decoding is quick, and more threads would only contend for the CPU
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "Couldn't fill " + artPack, e);
+                }
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(FILL_THREADS, tasks.size()));
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Log.w(LOG_TAG, "Interrupted while filling " + artPack, e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Bitmap downloadArt(String artPack, String artName) {
+        String url = String.format(Locale.US, artPack, artName);
+        FutureTarget<Bitmap> target = Glide.with(mContext)
+                .load(url)
+                .asBitmap()
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .into(mWidth, mHeight);
+        try {
+            // Glide reuses its bitmaps once the target is cleared, so keep a copy.
+            Bitmap bitmap = target.get(DOWNLOAD_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return bitmap.copy(bitmap.getConfig(), false);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            Log.e(LOG_TAG, "Error retrieving art from " + url, e);
+            return null;
+        } finally {
+            Glide.clear(target);
+        }
+    }
+
+    /**
+     * Decodes the bundled art for a name at roughly the cache's size, and scales it to fit.
+     *
+     * @return the image, or null if there is no bundled art by that name
+     */
+    public Bitmap decodeBundledArt(String artName) {
+        int resourceId = getArtResource(artName);
+        if (resourceId == -1) {
+            return null;
+        }
+        Resources resources = mContext.getResources();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resourceId, options);
+        options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight,
+                mWidth, mHeight);
+        options.inJustDecodeBounds = false;
+        Bitmap art = BitmapFactory.decodeResource(resources, resourceId, options);
+        if (art == null) {
+            return null;
+        }
+        return scaleToFit(art, mWidth, mHeight);
+    }
+
+    /**
+     * @return the largest power of two that keeps the decoded image at least as big as the target
+     */
+    static int calculateSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth
+                && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scales a bitmap down to fit inside the given size, keeping its aspect ratio, as Glide's
+     * fitCenter would.  Recycles the source if a new bitmap was made.
+     */
+    static Bitmap scaleToFit(Bitmap source, int width, int height) {
+        float scale = Math.min((float) width / source.getWidth(),
+                (float) height / source.getHeight());
+        if (scale >= 1f) {
+            return source;
+        }
+        int scaledWidth = Math.max(1, Math.round(source.getWidth() * scale));
+        int scaledHeight = Math.max(1, Math.round(source.getHeight() * scale));
+        Bitmap scaled = Bitmap.createScaledBitmap(source, scaledWidth, scaledHeight, true);
+        if (scaled != source) {
+            source.recycle();
+        }
+        return scaled;
+    }
+
+    private static int getArtResource(String artName) {
+        for (int i = 0; i < ArtPackManager.ART_NAMES.length; i++) {
+            if (ArtPackManager.ART_NAMES[i].equals(artName)) {
+                return ART_RESOURCES[i];
+            }
+        }
+        return -1;
+    }
+
+    private static void writeImage(Bitmap image, File file) throws IOException {
+        // Written aside and renamed, so a half written image is never read back
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            image.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Couldn't rename " + temp + " to " + file);
+        }
+    }
+
+    private void deleteOtherPacks(File packDirectory) {
+        File[] packs = new File(mContext.getCacheDir(), mDirectory).listFiles();
+        if (packs == null) {
+            return;
+        }
+        for (File pack : packs) {
+            if (pack.equals(packDirectory)) {
+                continue;
+            }
+            File[] images = pack.listFiles();
+            if (images != null) {
+                for (File image : images) {
+                    image.delete();
+                }
+            }
+            pack.delete();
+        }
+    }
+
+    private File getPackDirectory(String artPack) {
+        // The pack is a URL, so its hash names the directory.  Images are per size as well, since
+        // the size changes with the display density.
+        return new File(new File(mContext.getCacheDir(), mDirectory),
+                Integer.toHexString(artPack.hashCode()) + "_" + mWidth + "x" + mHeight);
+    }
+
+    private File getImageFile(String artPack, String artName) {
+        return new File(getPackDirectory(artPack), artName + ".png");
+    }
+}
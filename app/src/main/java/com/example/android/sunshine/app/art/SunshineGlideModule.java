@@ -0,0 +1,27 @@
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.module.GlideModule;
+import com.example.android.sunshine.app.R;
+
+/**
+ * Gives Glide a disk cache sized for the art packs, which {@link ArtPackManager} prefetches into.
+ */
+public class SunshineGlideModule implements GlideModule {
+    private static final String DISK_CACHE_NAME = "art";
+
+    @Override
+    public void applyOptions(Context context, GlideBuilder builder) {
+        int sizeBytes = context.getResources().getInteger(R.integer.art_disk_cache_mb) * 1024 * 1024;
+        builder.setDiskCache(
+                new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, sizeBytes));
+    }
+
+    @Override
+    public void registerComponents(Context context, Glide glide) {
+    }
+}
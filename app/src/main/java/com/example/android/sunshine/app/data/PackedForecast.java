@@ -0,0 +1,153 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.Arrays;
+
+/**
+ * The forecast for a location, read out of a cursor once and kept as one primitive array per
+ * column.  Reading a field is then an array access, instead of a call into the cursor window
+ * for every field of every row each time a view binds.
+ *
+ * Immutable once built, so it can be handed between threads and shared by every screen showing
+ * the same forecast.  {@link #toCursor(String[], int, int)} serves it to code written against
+ * a Cursor.
+ */
+public class PackedForecast {
+    // Every column the list and the detail view show
+    public static final String[] COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            LocationEntry.COLUMN_LOCATION_SETTING,
+            LocationEntry.COLUMN_COORD_LAT,
+            LocationEntry.COLUMN_COORD_LONG
+    };
+
+    public final int size;
+    // One per forecast, since the rows are all for the same location
+    public final String locationSetting;
+    public final String latitude;
+    public final String longitude;
+
+    public final long[] ids;
+    public final long[] dates;
+    public final String[] descriptions;
+    public final float[] high;
+    public final float[] low;
+    public final float[] humidity;
+    public final float[] pressure;
+    public final float[] windSpeed;
+    public final float[] degrees;
+    // Condition codes are three digits
+    public final short[] weatherIds;
+
+    private PackedForecast(int size, String locationSetting, String latitude, String longitude) {
+        this.size = size;
+        this.locationSetting = locationSetting;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        ids = new long[size];
+        dates = new long[size];
+        descriptions = new String[size];
+        high = new float[size];
+        low = new float[size];
+        humidity = new float[size];
+        pressure = new float[size];
+        windSpeed = new float[size];
+        degrees = new float[size];
+        weatherIds = new short[size];
+    }
+
+    /**
+     * Reads every row of a cursor over some or all of {@link #COLUMNS}, sorted by date.  Columns
+     * the cursor doesn't have are left at zero.
+     */
+    public static PackedForecast from(Cursor cursor) {
+        int idIndex = cursor.getColumnIndex(WeatherEntry._ID);
+        int dateIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_DATE);
+        int descIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_SHORT_DESC);
+        int highIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_MAX_TEMP);
+        int lowIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_MIN_TEMP);
+        int humidityIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_HUMIDITY);
+        int pressureIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_PRESSURE);
+        int windSpeedIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_WIND_SPEED);
+        int degreesIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_DEGREES);
+        int weatherIdIndex = cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID);
+        int locationIndex = cursor.getColumnIndex(LocationEntry.COLUMN_LOCATION_SETTING);
+        int latIndex = cursor.getColumnIndex(LocationEntry.COLUMN_COORD_LAT);
+        int longIndex = cursor.getColumnIndex(LocationEntry.COLUMN_COORD_LONG);
+
+        String locationSetting = null;
+        String latitude = null;
+        String longitude = null;
+        if (cursor.moveToFirst()) {
+            locationSetting = getString(cursor, locationIndex);
+            latitude = getString(cursor, latIndex);
+            longitude = getString(cursor, longIndex);
+        }
+
+        PackedForecast forecast =
+                new PackedForecast(cursor.getCount(), locationSetting, latitude, longitude);
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            forecast.ids[i] = idIndex < 0 ? 0 : cursor.getLong(idIndex);
+            forecast.dates[i] = dateIndex < 0 ? 0 : cursor.getLong(dateIndex);
+            forecast.descriptions[i] = getString(cursor, descIndex);
+            forecast.high[i] = getFloat(cursor, highIndex);
+            forecast.low[i] = getFloat(cursor, lowIndex);
+            forecast.humidity[i] = getFloat(cursor, humidityIndex);
+            forecast.pressure[i] = getFloat(cursor, pressureIndex);
+            forecast.windSpeed[i] = getFloat(cursor, windSpeedIndex);
+            forecast.degrees[i] = getFloat(cursor, degreesIndex);
+            forecast.weatherIds[i] = weatherIdIndex < 0 ? 0 : cursor.getShort(weatherIdIndex);
+        }
+        return forecast;
+    }
+
+    private static String getString(Cursor cursor, int index) {
+        return index < 0 ? null : cursor.getString(index);
+    }
+
+    private static float getFloat(Cursor cursor, int index) {
+        return index < 0 ? 0 : cursor.getFloat(index);
+    }
+
+    /**
+     * @return the position of the row for the given normalized date, or -1 if there is none
+     */
+    public int findPosition(long date) {
+        int position = Arrays.binarySearch(dates, date);
+        return position < 0 ? -1 : position;
+    }
+
+    /**
+     * @return a cursor over rows {@code start} to {@code start + count - 1}, with the given
+     * columns from {@link #COLUMNS}
+     */
+    public Cursor toCursor(String[] projection, int start, int count) {
+        return new PackedForecastCursor(this, projection, start, count);
+    }
+
+    /**
+     * @return roughly how many bytes of heap the columns take, leaving out object headers
+     */
+    public long getSizeInBytes() {
+        long bytes = size * (8L + 8 + 4 * 6 + 2);
+        for (String description : descriptions) {
+            if (description != null) {
+                bytes += 2 * description.length();
+            }
+        }
+        return bytes;
+    }
+}
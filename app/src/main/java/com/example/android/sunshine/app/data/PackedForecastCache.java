@@ -0,0 +1,70 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+/**
+ * Holds the last forecast the list loaded, so the detail view reads its day from the same arrays
+ * instead of querying and keeping a copy of its own.
+ *
+ * Every write to the weather and location tables goes through {@link WeatherProvider}, which
+ * drops the forecast before notifying observers.  A forecast loaded from a query that started
+ * before a write is never kept, so whatever is served here is as fresh as the database.
+ */
+public class PackedForecastCache {
+    private static long sGeneration;
+    private static PackedForecast sForecast;
+
+    /**
+     * @return a token to pass to {@link #put(PackedForecast, long)}.  Take it before querying.
+     */
+    public static synchronized long getGeneration() {
+        return sGeneration;
+    }
+
+    /**
+     * Keeps a forecast, unless the tables were written after its query started.
+     */
+    public static synchronized void put(PackedForecast forecast, long generation) {
+        if (generation == sGeneration && forecast.size > 0) {
+            sForecast = forecast;
+        }
+    }
+
+    /**
+     * @return the kept forecast if it is for the given location, otherwise null
+     */
+    public static synchronized PackedForecast get(String locationSetting) {
+        PackedForecast forecast = sForecast;
+        return forecast != null && forecast.locationSetting.equals(locationSetting)
+                ? forecast : null;
+    }
+
+    static synchronized void invalidate() {
+        sGeneration++;
+        sForecast = null;
+    }
+
+    /**
+     * Answers a query for one day of weather, as built by
+     * {@link WeatherContract.WeatherEntry#buildWeatherLocationWithDate(String, long)}, from the
+     * kept forecast.  Like the provider's cursors, the cursor is notified of changes to the uri.
+     *
+     * @return a cursor over the day's row, or null if the day isn't kept
+     */
+    public static Cursor query(Context context, Uri uri, String[] projection) {
+        PackedForecast forecast =
+                get(WeatherContract.WeatherEntry.getLocationSettingFromUri(uri));
+        if (forecast == null) {
+            return null;
+        }
+        int position = forecast.findPosition(WeatherContract.WeatherEntry.getDateFromUri(uri));
+        if (position < 0) {
+            return null;
+        }
+        Cursor cursor = forecast.toCursor(projection, position, 1);
+        cursor.setNotificationUri(context.getContentResolver(), uri);
+        return cursor;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.AbstractCursor;
+
+/**
+ * A read-only cursor over rows of a {@link PackedForecast}, so code written against the
+ * provider's cursors can read a forecast that has already been loaded.  Reads go straight to the
+ * arrays, with nothing copied.
+ */
+class PackedForecastCursor extends AbstractCursor {
+    // Indices into PackedForecast.COLUMNS
+    private static final int ID = 0;
+    private static final int DATE = 1;
+    private static final int DESC = 2;
+    private static final int MAX_TEMP = 3;
+    private static final int MIN_TEMP = 4;
+    private static final int HUMIDITY = 5;
+    private static final int PRESSURE = 6;
+    private static final int WIND_SPEED = 7;
+    private static final int DEGREES = 8;
+    private static final int WEATHER_ID = 9;
+    private static final int LOCATION_SETTING = 10;
+    private static final int COORD_LAT = 11;
+    private static final int COORD_LONG = 12;
+
+    private final PackedForecast mForecast;
+    private final String[] mColumnNames;
+    // For each column of this cursor, its index in PackedForecast.COLUMNS
+    private final int[] mFields;
+    private final int mStart;
+    private final int mCount;
+
+    PackedForecastCursor(PackedForecast forecast, String[] projection, int start, int count) {
+        if (projection == null) {
+            projection = PackedForecast.COLUMNS;
+        }
+        mForecast = forecast;
+        mColumnNames = new String[projection.length];
+        mFields = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            mFields[i] = findField(projection[i]);
+            // Named as the provider's cursors name them, without the table
+            mColumnNames[i] = unqualify(projection[i]);
+        }
+        mStart = start;
+        mCount = count;
+    }
+
+    private static int findField(String column) {
+        String name = unqualify(column);
+        for (int i = 0; i < PackedForecast.COLUMNS.length; i++) {
+            if (unqualify(PackedForecast.COLUMNS[i]).equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Column not in a packed forecast: " + column);
+    }
+
+    private static String unqualify(String column) {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    @Override
+    public String getString(int column) {
+        int row = getRow();
+        switch (mFields[column]) {
+            case DESC:
+                return mForecast.descriptions[row];
+            case LOCATION_SETTING:
+                return mForecast.locationSetting;
+            case COORD_LAT:
+                return mForecast.latitude;
+            case COORD_LONG:
+                return mForecast.longitude;
+            case ID:
+            case DATE:
+            case WEATHER_ID:
+                return Long.toString(getLong(column));
+            default:
+                return Double.toString(getDouble(column));
+        }
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        int row = getRow();
+        switch (mFields[column]) {
+            case ID:
+                return mForecast.ids[row];
+            case DATE:
+                return mForecast.dates[row];
+            case WEATHER_ID:
+                return mForecast.weatherIds[row];
+            default:
+                return (long) getDouble(column);
+        }
+    }
+
+    @Override
+    public float getFloat(int column) {
+        int row = getRow();
+        switch (mFields[column]) {
+            case MAX_TEMP:
+                return mForecast.high[row];
+            case MIN_TEMP:
+                return mForecast.low[row];
+            case HUMIDITY:
+                return mForecast.humidity[row];
+            case PRESSURE:
+                return mForecast.pressure[row];
+            case WIND_SPEED:
+                return mForecast.windSpeed[row];
+            case DEGREES:
+                return mForecast.degrees[row];
+            case ID:
+            case DATE:
+            case WEATHER_ID:
+                return getLong(column);
+            default:
+                // Text that isn't a number reads as zero, as it does from SQLite
+                String value = getString(column);
+                try {
+                    return value == null ? 0 : Float.parseFloat(value);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+        }
+    }
+
+    @Override
+    public double getDouble(int column) {
+        switch (mFields[column]) {
+            case COORD_LAT:
+            case COORD_LONG:
+                // Parsed as doubles, so coordinates keep their precision
+                String value = getString(column);
+                try {
+                    return value == null ? 0 : Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            default:
+                return getFloat(column);
+        }
+    }
+
+    @Override
+    public int getType(int column) {
+        switch (mFields[column]) {
+            case ID:
+            case DATE:
+            case WEATHER_ID:
+                return FIELD_TYPE_INTEGER;
+            case DESC:
+            case LOCATION_SETTING:
+                return isNull(column) ? FIELD_TYPE_NULL : FIELD_TYPE_STRING;
+            default:
+                return isNull(column) ? FIELD_TYPE_NULL : FIELD_TYPE_FLOAT;
+        }
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        switch (mFields[column]) {
+            case DESC:
+            case LOCATION_SETTING:
+            case COORD_LAT:
+            case COORD_LONG:
+                return getString(column) == null;
+            default:
+                return false;
+        }
+    }
+
+    private int getRow() {
+        checkPosition();
+        return mStart + getPosition();
+    }
+}
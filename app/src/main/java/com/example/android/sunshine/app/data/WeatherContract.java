@@ -43,6 +43,8 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_HOURLY = "hourly";
+    public static final String PATH_SYNC_LOG = "sync_log";
 
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
@@ -126,6 +128,10 @@ public class WeatherContract {
         // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as floats.
         public static final String COLUMN_DEGREES = "degrees";
 
+        // Name of the forecast source(s) the day came from, e.g "owm".  Days merged from several
+        // sources list them all, joined by '+'.  May be null.
+        public static final String COLUMN_SOURCE = "source";
+
         public static Uri buildWeatherUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
@@ -165,4 +171,109 @@ public class WeatherContract {
                 return 0;
         }
     }
+
+    /* Inner class that defines the table contents of the hourly (3-hour step) forecast table */
+    public static final class HourlyEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_HOURLY).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_HOURLY;
+
+        public static final String TABLE_NAME = "hourly";
+
+        // There are about 8 of these rows for every row in the weather table, so everything is
+        // stored as an integer.  SQLite writes integers with as few bytes as the value needs,
+        // which keeps the table and its index small.
+
+        // Column with the foreign key into the location table.
+        public static final String COLUMN_LOC_KEY = "location_id";
+        // Start of the 3-hour step, in seconds (not milliseconds) since the epoch
+        public static final String COLUMN_TIMESTAMP = "ts";
+        // Weather id as returned by API, to identify the icon to be used
+        public static final String COLUMN_WEATHER_ID = "weather_id";
+
+        // Temperature in hundredths of a degree Celsius
+        public static final String COLUMN_TEMP = "temp";
+        public static final int TEMP_SCALE = 100;
+
+        // Wind speed in hundredths of a meter per second
+        public static final String COLUMN_WIND_SPEED = "wind";
+        public static final int WIND_SPEED_SCALE = 100;
+
+        // Pressure in tenths of a hPa
+        public static final String COLUMN_PRESSURE = "pressure";
+        public static final int PRESSURE_SCALE = 10;
+
+        // Humidity as a whole percentage
+        public static final String COLUMN_HUMIDITY = "humidity";
+
+        public static long toScaled(double value, int scale) {
+            return Math.round(value * scale);
+        }
+
+        public static double fromScaled(long value, int scale) {
+            return (double) value / scale;
+        }
+
+        /**
+         * Builds the URI for the hourly steps of one day at a location.
+         *
+         * @param date any time on the wanted day; it is normalized like the weather table's dates
+         */
+        public static Uri buildHourlyLocationWithDate(String locationSetting, long date) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendPath(Long.toString(normalizeDate(date))).build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+
+        public static long getDateFromUri(Uri uri) {
+            return Long.parseLong(uri.getPathSegments().get(2));
+        }
+    }
+
+    /* Inner class that defines the table contents of the sync log, one row per sync */
+    public static final class SyncLogEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_SYNC_LOG).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SYNC_LOG;
+
+        public static final String TABLE_NAME = "sync_log";
+
+        // When the sync started, in milliseconds since the epoch
+        public static final String COLUMN_STARTED = "started";
+        // How long the sync ran, in milliseconds
+        public static final String COLUMN_DURATION = "duration";
+
+        // Network type name as reported by ConnectivityManager, e.g "WIFI" or "MOBILE".
+        // "NONE" if there was no active network.
+        public static final String COLUMN_NETWORK_TYPE = "network_type";
+        // 1 if the network was metered, 0 otherwise
+        public static final String COLUMN_METERED = "metered";
+        // 1 if the network was roaming, 0 otherwise
+        public static final String COLUMN_ROAMING = "roaming";
+
+        // One of the MODE_ values below
+        public static final String COLUMN_MODE = "mode";
+        // Days of forecast requested
+        public static final String COLUMN_DAYS = "days";
+
+        // Bytes received and sent by the app while the sync ran
+        public static final String COLUMN_RX_BYTES = "rx_bytes";
+        public static final String COLUMN_TX_BYTES = "tx_bytes";
+
+        // Everything a routine sync fetches
+        public static final String MODE_FULL = "full";
+        // Only what the visible surfaces need, used on metered networks
+        public static final String MODE_LITE = "lite";
+        // Extra days requested by a view that scrolled past the routine horizon
+        public static final String MODE_EXTEND = "extend";
+    }
 }
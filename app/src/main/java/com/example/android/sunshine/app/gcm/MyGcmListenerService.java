@@ -21,7 +21,6 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
@@ -29,6 +28,9 @@ import android.widget.Toast;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.art.NotificationIconCache;
+import com.example.android.sunshine.app.sync.PushHealthPolicy;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.gcm.GcmListenerService;
 
 import org.json.JSONException;
@@ -41,8 +43,13 @@ public class MyGcmListenerService extends GcmListenerService {
     private static final String EXTRA_DATA = "data";
     private static final String EXTRA_WEATHER = "weather";
     private static final String EXTRA_LOCATION = "location";
+    private static final String EXTRA_FORECAST_DELTA = "forecast_delta";
+    // Sent by the server every couple of hours, with nothing else in the message
+    private static final String EXTRA_HEARTBEAT = "heartbeat";
 
     public static final int NOTIFICATION_ID = 1;
+    // Alerts are shown with the thunderstorm art
+    private static final int ALERT_WEATHER_ID = 200;
 
     /**
      * Called when message is received.
@@ -62,17 +69,28 @@ public class MyGcmListenerService extends GcmListenerService {
             }
             // Not a bad idea to check that the message is coming from your server.
             if ((senderId).equals(from)) {
+                // Any message from our server, heartbeats included, shows push is getting through.
+                PushHealthPolicy.getInstance(this).onPushReceived(System.currentTimeMillis(),
+                        data.containsKey(EXTRA_HEARTBEAT));
+                String forecastDelta = data.getString(EXTRA_FORECAST_DELTA);
+                if (forecastDelta != null) {
+                    // The changed days come with the message, so there is nothing to fetch.
+                    SunshineSyncAdapter.applyPushedForecast(this, forecastDelta);
+                }
+                String alertData = data.getString(EXTRA_DATA);
                 // Process message and then post a notification of the received message.
-                try {
-                    JSONObject jsonObject = new JSONObject(data.getString(EXTRA_DATA));
-                    String weather = jsonObject.getString(EXTRA_WEATHER);
-                    String location = jsonObject.getString(EXTRA_LOCATION);
-                    String alert =
-                            String.format(getString(R.string.gcm_weather_alert), weather, location);
-                    sendNotification(alert);
-                } catch (JSONException e) {
-                    // JSON parsing failed, so we just let this message go, since GCM is not one
-                    // of our critical features.
+                if (alertData != null) {
+                    try {
+                        JSONObject jsonObject = new JSONObject(alertData);
+                        String weather = jsonObject.getString(EXTRA_WEATHER);
+                        String location = jsonObject.getString(EXTRA_LOCATION);
+                        String alert = String.format(getString(R.string.gcm_weather_alert),
+                                weather, location);
+                        sendNotification(alert);
+                    } catch (JSONException e) {
+                        // JSON parsing failed, so we just let this message go, since GCM is not one
+                        // of our critical features.
+                    }
                 }
             }
             Log.i(TAG, "Received: " + data.toString());
@@ -95,7 +113,8 @@ public class MyGcmListenerService extends GcmListenerService {
         // icon as a bitmap. So we need to create that here from the resource ID, and pass the
         // object along in our notification builder. Generally, you want to use the app icon as the
         // small icon, so that users understand what app is triggering this notification.
-        Bitmap largeIcon = BitmapFactory.decodeResource(this.getResources(), R.drawable.art_storm);
+        // The cache has it already scaled, so nothing is decoded while the alert is posted.
+        Bitmap largeIcon = NotificationIconCache.getInstance(this).getLargeIcon(ALERT_WEATHER_ID);
         NotificationCompat.Builder mBuilder =
                 new NotificationCompat.Builder(this)
                         .setSmallIcon(R.drawable.art_clear)
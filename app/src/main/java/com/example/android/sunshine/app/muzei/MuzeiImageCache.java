@@ -0,0 +1,187 @@
+package com.example.android.sunshine.app.muzei;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.support.v4.content.FileProvider;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.target.Target;
+import com.example.android.sunshine.app.R;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The Muzei wallpapers for each weather condition, downloaded once into the app's cache directory
+ * and handed to Muzei as content URIs, so Muzei reads them from disk instead of downloading them
+ * again.  The least recently used images are deleted once they take more than
+ * {@code R.integer.muzei_image_cache_mb}.
+ *
+ * Also keeps the counts of publishes {@link WeatherMuzeiSource} skipped, and the bytes Muzei
+ * didn't have to download as a result of either.
+ */
+public class MuzeiImageCache {
+    private static final String LOG_TAG = MuzeiImageCache.class.getSimpleName();
+
+    private static final String MUZEI_PACKAGE = "net.nurik.roman.muzei";
+    // Must match res/xml/muzei_paths.xml
+    private static final String DIRECTORY = "muzei";
+    private static final long DOWNLOAD_TIMEOUT_MILLIS = 60 * 1000;
+
+    private static MuzeiImageCache sInstance;
+
+    private final Context mContext;
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private long mPublishesSkipped;
+    private long mBytesSaved;
+
+    public static synchronized MuzeiImageCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new MuzeiImageCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private MuzeiImageCache(Context context) {
+        mContext = context;
+        mDirectory = new File(context.getCacheDir(), DIRECTORY);
+        mMaxBytes = context.getResources().getInteger(R.integer.muzei_image_cache_mb)
+                * 1024L * 1024L;
+    }
+
+    /**
+     * Returns a content URI Muzei can read the image at the given URL from, downloading it first
+     * if it isn't stored yet.  Must not run on the main thread.
+     *
+     * @return the URI, or null if the image couldn't be downloaded
+     */
+    public synchronized Uri getImageUri(String imageUrl) {
+        File file = getImageFile(imageUrl);
+        if (file.exists()) {
+            // Muzei would have downloaded it otherwise
+            mBytesSaved += file.length();
+            file.setLastModified(System.currentTimeMillis());
+        } else if (!download(imageUrl, file)) {
+            return null;
+        } else {
+            trim(file);
+        }
+        Uri uri = FileProvider.getUriForFile(mContext,
+                mContext.getString(R.string.muzei_image_authority), file);
+        mContext.grantUriPermission(MUZEI_PACKAGE, uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return uri;
+    }
+
+    /**
+     * Records a publish that was skipped because the wallpaper wouldn't have changed.
+     */
+    public synchronized void recordSkippedPublish(String imageUrl) {
+        mPublishesSkipped++;
+        File file = getImageFile(imageUrl);
+        if (file.exists()) {
+            mBytesSaved += file.length();
+        }
+    }
+
+    public synchronized long getPublishesSkipped() {
+        return mPublishesSkipped;
+    }
+
+    public synchronized long getBytesSaved() {
+        return mBytesSaved;
+    }
+
+    private boolean download(String imageUrl, File file) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Couldn't create " + mDirectory);
+            return false;
+        }
+        FutureTarget<File> target = Glide.with(mContext)
+                .load(imageUrl)
+                .downloadOnly(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL);
+        try {
+            // Glide's disk cache may drop the file at any time, so keep a copy of our own
+            File downloaded = target.get(DOWNLOAD_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            copy(downloaded, file);
+            return true;
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            Log.e(LOG_TAG, "Error retrieving wallpaper from " + imageUrl, e);
+            return false;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Couldn't store the wallpaper from " + imageUrl, e);
+            return false;
+        } finally {
+            Glide.clear(target);
+        }
+    }
+
+    private static void copy(File source, File destination) throws IOException {
+        // Written aside and renamed, so Muzei never reads half an image
+        File temp = new File(destination.getPath() + ".tmp");
+        InputStream in = new FileInputStream(source);
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        if (!temp.renameTo(destination)) {
+            temp.delete();
+            throw new IOException("Couldn't rename " + temp + " to " + destination);
+        }
+    }
+
+    /**
+     * Deletes the least recently used images until the rest fit, never the one just stored.
+     */
+    private void trim(File keep) {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long left = lhs.lastModified();
+                long right = rhs.lastModified();
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && total > mMaxBytes; i++) {
+            if (!files[i].equals(keep)) {
+                total -= files[i].length();
+                files[i].delete();
+            }
+        }
+    }
+
+    private File getImageFile(String imageUrl) {
+        // The URL's hash names the file.  Every wallpaper is a JPEG.
+        return new File(mDirectory, Integer.toHexString(imageUrl.hashCode()) + ".jpg");
+    }
+}
@@ -18,6 +18,8 @@ package com.example.android.sunshine.app.muzei;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
+import android.text.TextUtils;
+import android.util.Log;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.Utility;
@@ -27,9 +29,14 @@ import com.google.android.apps.muzei.api.Artwork;
 import com.google.android.apps.muzei.api.MuzeiArtSource;
 
 /**
- * Muzei source that changes your background based on the current weather conditions
+ * Muzei source that changes your background based on the current weather conditions.
+ *
+ * Wallpapers are served to Muzei from {@link MuzeiImageCache}, and a sync that leaves the
+ * wallpaper as it was doesn't publish it again.
  */
 public class WeatherMuzeiSource extends MuzeiArtSource {
+    private static final String LOG_TAG = WeatherMuzeiSource.class.getSimpleName();
+
     private static final String[] FORECAST_COLUMNS = new String[]{
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
@@ -59,6 +66,9 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
                 location, System.currentTimeMillis());
         Cursor cursor = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
                 null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return;
+        }
         if (cursor.moveToFirst()) {
             int weatherId = cursor.getInt(INDEX_WEATHER_ID);
             String desc = cursor.getString(INDEX_SHORT_DESC);
@@ -66,14 +76,39 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
             String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
             // Only publish a new wallpaper if we have a valid image
             if (imageUrl != null) {
-                publishArtwork(new Artwork.Builder()
-                        .imageUri(Uri.parse(imageUrl))
-                        .title(desc)
-                        .byline(location)
-                        .viewIntent(new Intent(this, MainActivity.class))
-                        .build());
+                publishIfChanged(reason, imageUrl, desc, location);
             }
         }
         cursor.close();
     }
+
+    private void publishIfChanged(int reason, String imageUrl, String desc, String location) {
+        MuzeiImageCache imageCache = MuzeiImageCache.getInstance(this);
+        // The token is the image's URL.  After a sync, publishing the same image with the same
+        // title for the same location would only make Muzei load and blur the same wallpaper
+        // again.  A new description for the same image is still published; the image is cached,
+        // so that costs no download.
+        Artwork current = getCurrentArtwork();
+        if (reason == UPDATE_REASON_OTHER && current != null
+                && imageUrl.equals(current.getToken()) && location.equals(current.getByline())
+                && TextUtils.equals(desc, current.getTitle())) {
+            imageCache.recordSkippedPublish(imageUrl);
+            Log.d(LOG_TAG, "Wallpaper unchanged, " + imageCache.getPublishesSkipped()
+                    + " publishes skipped, " + imageCache.getBytesSaved() + " bytes saved");
+            return;
+        }
+
+        Uri imageUri = imageCache.getImageUri(imageUrl);
+        if (imageUri == null) {
+            // Couldn't store it, so let Muzei try the network itself
+            imageUri = Uri.parse(imageUrl);
+        }
+        publishArtwork(new Artwork.Builder()
+                .imageUri(imageUri)
+                .token(imageUrl)
+                .title(desc)
+                .byline(location)
+                .viewIntent(new Intent(this, MainActivity.class))
+                .build());
+    }
 }
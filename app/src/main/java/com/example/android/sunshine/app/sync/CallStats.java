@@ -0,0 +1,62 @@
+package com.example.android.sunshine.app.sync;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency and outcome counts for calls to one dependency, such as a forecast source or a post-sync
+ * consumer.  Thread-safe, and kept for the life of whatever owns it.
+ */
+public class CallStats {
+    private final LatencyHistogram mLatencies = new LatencyHistogram();
+    private final AtomicInteger mSuccesses = new AtomicInteger();
+    private final AtomicInteger mFailures = new AtomicInteger();
+    private final AtomicInteger mTimeouts = new AtomicInteger();
+
+    void recordLatency(long millis) {
+        mLatencies.record(millis);
+    }
+
+    void recordSuccess() {
+        mSuccesses.incrementAndGet();
+    }
+
+    void recordFailure() {
+        mFailures.incrementAndGet();
+    }
+
+    void recordTimeout() {
+        mTimeouts.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatencies() {
+        return mLatencies;
+    }
+
+    public int getSuccesses() {
+        return mSuccesses.get();
+    }
+
+    public int getFailures() {
+        return mFailures.get();
+    }
+
+    public int getTimeouts() {
+        return mTimeouts.get();
+    }
+
+    /**
+     * @return the share of calls that completed successfully in time, or 0 if none have been made
+     */
+    public double getSuccessRate() {
+        int total = getSuccesses() + getFailures() + getTimeouts();
+        return total == 0 ? 0 : (double) getSuccesses() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ok=" + getSuccesses() + " failed=" + getFailures()
+                + " timed out=" + getTimeouts()
+                + " success rate=" + Math.round(getSuccessRate() * 100) + "%"
+                + " latency " + mLatencies;
+    }
+}
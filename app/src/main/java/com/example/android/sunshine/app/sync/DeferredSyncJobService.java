@@ -0,0 +1,75 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.PersistableBundle;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+
+/**
+ * Runs the part of a sync that lite mode skipped, once the device is on an unmetered network.
+ * The job only requests a sync; the sync adapter does the work as usual.
+ */
+public class DeferredSyncJobService extends JobService {
+    private static final String LOG_TAG = DeferredSyncJobService.class.getSimpleName();
+
+    static final int JOB_ID = 3005;
+
+    /**
+     * Schedules the deferred refresh, replacing any pending one.
+     *
+     * @param horizonDays the number of days the deferred sync should fetch
+     */
+    public static void schedule(Context context, int horizonDays) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        PersistableBundle extras = new PersistableBundle();
+        extras.putInt(SunshineSyncAdapter.EXTRA_HORIZON_DAYS, horizonDays);
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, DeferredSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setExtras(extras)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    /**
+     * Drops the pending deferred refresh, if any.  Called after a full sync, on any network, has
+     * fetched the hourly steps too and so left nothing for it to do.
+     */
+    public static void cancel(Context context) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.cancel(JOB_ID);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        int horizonDays = params.getExtras().getInt(SunshineSyncAdapter.EXTRA_HORIZON_DAYS,
+                getResources().getInteger(R.integer.sync_horizon_days));
+        Log.d(LOG_TAG, "Unmetered network available, requesting full sync of "
+                + horizonDays + " days");
+
+        Bundle bundle = new Bundle();
+        bundle.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
+        bundle.putBoolean(SunshineSyncAdapter.EXTRA_FULL_REFRESH, true);
+        bundle.putInt(SunshineSyncAdapter.EXTRA_HORIZON_DAYS, horizonDays);
+        ContentResolver.requestSync(SunshineSyncAdapter.getSyncAccount(this),
+                getString(R.string.content_authority), bundle);
+
+        // The sync runs on its own, there's nothing left for this job to do.
+        return false;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return false;
+    }
+}
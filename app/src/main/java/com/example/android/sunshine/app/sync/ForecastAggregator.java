@@ -0,0 +1,229 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Queries several {@link ForecastSource}s in parallel and merges their days into one forecast.
+ *
+ * The first source is the primary one.  Every source must answer within the deadline passed to
+ * {@link #aggregate}; a source that doesn't is abandoned and the sync goes ahead with whatever the
+ * others returned, so a slow or down provider can't hold the sync up.
+ */
+public class ForecastAggregator {
+    private static final String LOG_TAG = ForecastAggregator.class.getSimpleName();
+
+    public enum MergePolicy {
+        // Each day comes from the first source, in order, that has it.
+        PREFER_PRIMARY,
+        // Each day's high and low are the mean over all sources that have it.  Everything else
+        // still comes from the first source that has the day.
+        AVERAGE_TEMPERATURES;
+
+        /**
+         * @param value the policy name in lower case, as stored in resources
+         */
+        public static MergePolicy fromString(String value) {
+            for (MergePolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+            return PREFER_PRIMARY;
+        }
+    }
+
+    private final List<ForecastSource> mSources;
+    private final List<CallStats> mStats;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * @param sources the sources to query, primary first
+     */
+    public ForecastAggregator(List<ForecastSource> sources) {
+        mSources = new ArrayList<ForecastSource>(sources);
+        mStats = new ArrayList<CallStats>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            mStats.add(new CallStats());
+        }
+    }
+
+    public List<ForecastSource> getSources() {
+        return Collections.unmodifiableList(mSources);
+    }
+
+    /**
+     * @return the stats for the source with the given name, or null if there is no such source
+     */
+    public CallStats getStats(String sourceName) {
+        for (int i = 0; i < mSources.size(); i++) {
+            if (mSources.get(i).getName().equals(sourceName)) {
+                return mStats.get(i);
+            }
+        }
+        return null;
+    }
+
+    public String getStatsSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < mSources.size(); i++) {
+            if (i > 0) {
+                summary.append("; ");
+            }
+            summary.append(mSources.get(i).getName()).append(": ").append(mStats.get(i));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Fetches the forecast from every source and merges the results.  Returns within
+     * deadlineMillis, give or take scheduling.
+     *
+     * @return the merged forecast if any source had days for the location.  Otherwise a failed
+     * result: LOCATION_STATUS_INVALID if a source reported the location as unknown, and
+     * LOCATION_STATUS_SERVER_DOWN if nobody answered.
+     */
+    public ForecastResult aggregate(final ForecastRequest request, long deadlineMillis,
+                                    MergePolicy policy) {
+        final long deadline = SystemClock.elapsedRealtime() + deadlineMillis;
+
+        List<Future<ForecastResult>> futures =
+                new ArrayList<Future<ForecastResult>>(mSources.size());
+        for (int i = 0; i < mSources.size(); i++) {
+            final ForecastSource source = mSources.get(i);
+            final CallStats stats = mStats.get(i);
+            futures.add(mExecutor.submit(new Callable<ForecastResult>() {
+                @Override
+                public ForecastResult call() throws Exception {
+                    long start = SystemClock.elapsedRealtime();
+                    ForecastResult result = source.fetch(request);
+                    stats.recordLatency(SystemClock.elapsedRealtime() - start);
+                    return result;
+                }
+            }));
+        }
+
+        // All sources share one deadline, so waiting on them in order doesn't add up.
+        List<ForecastResult> results = new ArrayList<ForecastResult>(mSources.size());
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<ForecastResult> future = futures.get(i);
+            String name = mSources.get(i).getName();
+            CallStats stats = mStats.get(i);
+            try {
+                if (interrupted) {
+                    throw new TimeoutException();
+                }
+                long remaining = Math.max(0, deadline - SystemClock.elapsedRealtime());
+                ForecastResult result = future.get(remaining, TimeUnit.MILLISECONDS);
+                if (result.status == SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN
+                        || result.status == SunshineSyncAdapter.LOCATION_STATUS_SERVER_INVALID) {
+                    stats.recordFailure();
+                } else {
+                    stats.recordSuccess();
+                }
+                results.add(result);
+            } catch (TimeoutException e) {
+                Log.w(LOG_TAG, name + " missed the " + deadlineMillis + "ms deadline");
+                future.cancel(true);
+                stats.recordTimeout();
+            } catch (ExecutionException e) {
+                Log.e(LOG_TAG, name + " failed", e.getCause());
+                stats.recordFailure();
+                results.add(ForecastResult.failed(
+                        e.getCause() instanceof JSONException
+                                ? SunshineSyncAdapter.LOCATION_STATUS_SERVER_INVALID
+                                : SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN));
+            } catch (InterruptedException e) {
+                // Stop waiting, but still merge whatever already came in.
+                interrupted = true;
+                future.cancel(true);
+                stats.recordTimeout();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return merge(results, policy);
+    }
+
+    /**
+     * Merges per-day results, which must be ordered by source preference.
+     */
+    static ForecastResult merge(List<ForecastResult> results, MergePolicy policy) {
+        ForecastResult base = null;
+        // If nobody had days, an unknown location beats a bad response beats no response.
+        int failedStatus = SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN;
+        for (ForecastResult result : results) {
+            if (result.hasDays()) {
+                if (base == null) {
+                    base = result;
+                }
+            } else if (result.status == SunshineSyncAdapter.LOCATION_STATUS_INVALID) {
+                failedStatus = result.status;
+            } else if (result.status == SunshineSyncAdapter.LOCATION_STATUS_SERVER_INVALID
+                    && failedStatus == SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN) {
+                failedStatus = result.status;
+            }
+        }
+        if (base == null) {
+            return ForecastResult.failed(failedStatus);
+        }
+
+        // Line the days up by Julian day, keeping the sources in order of preference.
+        TreeMap<Integer, List<ForecastDay>> daysByJulianDay =
+                new TreeMap<Integer, List<ForecastDay>>();
+        for (ForecastResult result : results) {
+            if (!result.hasDays()) {
+                continue;
+            }
+            for (ForecastDay day : result.days) {
+                List<ForecastDay> candidates = daysByJulianDay.get(day.julianDay);
+                if (candidates == null) {
+                    candidates = new ArrayList<ForecastDay>(results.size());
+                    daysByJulianDay.put(day.julianDay, candidates);
+                }
+                candidates.add(day);
+            }
+        }
+
+        List<ForecastDay> merged = new ArrayList<ForecastDay>(daysByJulianDay.size());
+        for (Map.Entry<Integer, List<ForecastDay>> entry : daysByJulianDay.entrySet()) {
+            List<ForecastDay> candidates = entry.getValue();
+            ForecastDay preferred = candidates.get(0);
+            if (policy == MergePolicy.AVERAGE_TEMPERATURES && candidates.size() > 1) {
+                double high = 0;
+                double low = 0;
+                StringBuilder sources = new StringBuilder();
+                for (ForecastDay day : candidates) {
+                    high += day.high;
+                    low += day.low;
+                    if (sources.length() > 0) {
+                        sources.append('+');
+                    }
+                    sources.append(day.source);
+                }
+                merged.add(preferred.withTemperatures(high / candidates.size(),
+                        low / candidates.size(), sources.toString()));
+            } else {
+                merged.add(preferred);
+            }
+        }
+        return new ForecastResult(base.cityName, base.cityLatitude, base.cityLongitude, merged);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.android.sunshine.app.sync;
+
+/**
+ * One day of forecast as reported by a {@link ForecastSource}, before it is written to the
+ * weather table.  Days are identified by their Julian day so that results from different
+ * providers can be lined up against each other.
+ */
+public class ForecastDay {
+    public final int julianDay;
+    public final int weatherId;
+    public final String description;
+    public final double high;
+    public final double low;
+    public final double humidity;
+    public final double pressure;
+    public final double windSpeed;
+    public final double windDirection;
+    // Name of the source(s) that served this day, e.g "owm" or "owm+backup" once merged.
+    public final String source;
+
+    public ForecastDay(int julianDay, int weatherId, String description, double high, double low,
+                       double humidity, double pressure, double windSpeed, double windDirection,
+                       String source) {
+        this.julianDay = julianDay;
+        this.weatherId = weatherId;
+        this.description = description;
+        this.high = high;
+        this.low = low;
+        this.humidity = humidity;
+        this.pressure = pressure;
+        this.windSpeed = windSpeed;
+        this.windDirection = windDirection;
+        this.source = source;
+    }
+
+    /**
+     * @return a copy of this day with the temperatures and source replaced, used when merging
+     * the same day from several sources.
+     */
+    public ForecastDay withTemperatures(double high, double low, String source) {
+        return new ForecastDay(julianDay, weatherId, description, high, low, humidity, pressure,
+                windSpeed, windDirection, source);
+    }
+}
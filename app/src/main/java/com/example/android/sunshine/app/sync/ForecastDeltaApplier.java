@@ -0,0 +1,316 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.preference.PreferenceManager;
+import android.support.annotation.IntDef;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.data.PackedForecast;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a forecast delta pushed through GCM straight to the weather provider, without fetching
+ * anything.  A delta names the days that changed and only the fields that changed in each:
+ *
+ * <pre>
+ * {"version": 1, "location": "94043", "revision": 42, "from": 1457049600, "to": 1457222400,
+ *  "city": {"name": "Mountain View", "lat": 37.39, "lon": -122.08},
+ *  "days": [{"date": 1457136000, "max": 18.5, "condition": 500, "summary": "Rain"}, ...]}
+ * </pre>
+ *
+ * Dates are UTC seconds at the start of the day and every day falls between "from" and "to".
+ * Day fields are named as {@link JsonForecastSource} names them.  "city" is only needed when the
+ * location isn't stored yet.
+ *
+ * "revision" goes up with every delta the server sends for a location.  GCM doesn't keep
+ * messages in order, so the last revision applied is kept per location in the shared
+ * preferences, and a delta that isn't newer than it is dropped rather than laid over the newer
+ * days.  Syncs don't carry a revision and leave it alone.
+ *
+ * Changed fields are laid over the stored day, read as doubles so the others keep every digit,
+ * and the result goes through {@link ForecastWriter}, so it is stored exactly as a sync would
+ * store it.  A delta that can't be applied as a whole, because it is of an unknown version, is
+ * malformed, has no revision, or changes a day that isn't stored without giving all of its
+ * fields, is not applied at all and asks for a full sync instead.
+ */
+public class ForecastDeltaApplier {
+    private static final String LOG_TAG = ForecastDeltaApplier.class.getSimpleName();
+
+    // The only version of the payload this client understands
+    static final int VERSION = 1;
+    static final String SOURCE_NAME = "push";
+    private static final String PREF_REVISION_PREFIX = "forecast_delta_revision_";
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({OUTCOME_APPLIED, OUTCOME_IGNORED, OUTCOME_NEEDS_SYNC, OUTCOME_STALE})
+    public @interface Outcome {}
+
+    public static final int OUTCOME_APPLIED = 0;
+    // For a location other than the preferred one, which nothing shows
+    public static final int OUTCOME_IGNORED = 1;
+    public static final int OUTCOME_NEEDS_SYNC = 2;
+    // Not newer than a delta already applied for the location
+    public static final int OUTCOME_STALE = 3;
+
+    private final Context mContext;
+    private final SharedPreferences mPrefs;
+    private ForecastSnapshot mSnapshot;
+
+    public ForecastDeltaApplier(Context context) {
+        this(context, PreferenceManager.getDefaultSharedPreferences(context));
+    }
+
+    ForecastDeltaApplier(Context context, SharedPreferences prefs) {
+        mContext = context;
+        mPrefs = prefs;
+    }
+
+    /**
+     * @return what became of the delta
+     */
+    @Outcome
+    public int apply(String payload) {
+        mSnapshot = null;
+        try {
+            return apply(new JSONObject(payload));
+        } catch (JSONException e) {
+            Log.w(LOG_TAG, "Malformed forecast delta", e);
+            return OUTCOME_NEEDS_SYNC;
+        }
+    }
+
+    /**
+     * @return the forecast the last applied delta stored, for the post-sync consumers, or null
+     * if it wasn't applied
+     */
+    public ForecastSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    @Outcome
+    private int apply(JSONObject delta) throws JSONException {
+        if (delta.optInt("version", -1) != VERSION) {
+            Log.d(LOG_TAG, "Forecast delta of version " + delta.opt("version") + ", syncing");
+            return OUTCOME_NEEDS_SYNC;
+        }
+        String locationSetting = delta.getString("location");
+        if (!locationSetting.equals(PreferencesSnapshot.get(mContext).location)) {
+            return OUTCOME_IGNORED;
+        }
+        long revision = delta.getLong("revision");
+        int firstDay = toJulianDay(delta.getLong("from"));
+        int lastDay = toJulianDay(delta.getLong("to"));
+        JSONArray dayArray = delta.getJSONArray("days");
+        if (firstDay > lastDay || dayArray.length() == 0) {
+            return OUTCOME_NEEDS_SYNC;
+        }
+
+        // Held from reading the last revision until the new one is stored, so two deltas
+        // arriving together are still applied in order
+        synchronized (ForecastDeltaApplier.class) {
+            String revisionKey = PREF_REVISION_PREFIX + locationSetting;
+            long lastRevision = mPrefs.getLong(revisionKey, Long.MIN_VALUE);
+            if (revision <= lastRevision) {
+                Log.d(LOG_TAG, "Forecast delta of revision " + revision + " after "
+                        + lastRevision + ", dropping it");
+                return OUTCOME_STALE;
+            }
+
+            StoredForecast stored = queryStored(locationSetting);
+            JSONObject city = delta.optJSONObject("city");
+            if (stored.days.isEmpty() && city == null) {
+                // Nothing stored to say where the location is
+                return OUTCOME_NEEDS_SYNC;
+            }
+
+            List<ForecastDay> days = new ArrayList<ForecastDay>(dayArray.length());
+            int previousDay = Integer.MIN_VALUE;
+            for (int i = 0; i < dayArray.length(); i++) {
+                JSONObject changes = dayArray.getJSONObject(i);
+                int julianDay = toJulianDay(changes.getLong("date"));
+                if (julianDay < firstDay || julianDay > lastDay || julianDay <= previousDay) {
+                    Log.d(LOG_TAG, "Forecast delta with a day out of range or order, syncing");
+                    return OUTCOME_NEEDS_SYNC;
+                }
+                previousDay = julianDay;
+                ForecastDay day = merge(stored.find(julianDay), julianDay, changes);
+                if (day == null) {
+                    Log.d(LOG_TAG, "Forecast delta with an incomplete new day, syncing");
+                    return OUTCOME_NEEDS_SYNC;
+                }
+                days.add(day);
+            }
+
+            String cityName = city != null ? city.getString("name") : null;
+            double latitude = city != null ? city.getDouble("lat") : stored.latitude;
+            double longitude = city != null ? city.getDouble("lon") : stored.longitude;
+            // Only the changed days are written; the rows replace the stored ones of the same
+            // date
+            new ForecastWriter(mContext).write(locationSetting,
+                    new ForecastResult(cityName, latitude, longitude, days));
+            mPrefs.edit().putLong(revisionKey, revision).apply();
+            // The consumers are handed the whole forecast, as after a sync
+            mSnapshot = ForecastSnapshot.from(locationSetting, new ForecastResult(cityName,
+                    latitude, longitude, mergeAll(stored.days, days)));
+            Log.d(LOG_TAG, "Applied a forecast delta of " + days.size() + " days without a sync");
+            return OUTCOME_APPLIED;
+        }
+    }
+
+    /**
+     * @return the stored days with the changed ones in place, ordered by Julian day
+     */
+    private static List<ForecastDay> mergeAll(List<ForecastDay> stored,
+                                              List<ForecastDay> changed) {
+        List<ForecastDay> days = new ArrayList<ForecastDay>(stored.size() + changed.size());
+        int next = 0;
+        for (ForecastDay storedDay : stored) {
+            while (next < changed.size() && changed.get(next).julianDay < storedDay.julianDay) {
+                days.add(changed.get(next++));
+            }
+            if (next < changed.size() && changed.get(next).julianDay == storedDay.julianDay) {
+                days.add(changed.get(next++));
+            } else {
+                days.add(storedDay);
+            }
+        }
+        while (next < changed.size()) {
+            days.add(changed.get(next++));
+        }
+        return days;
+    }
+
+    /**
+     * Lays the changed fields over the stored day.
+     *
+     * @param stored the stored day, or null if it isn't stored
+     * @return the day, or null if it isn't stored and the changes don't give every field
+     */
+    static ForecastDay merge(ForecastDay stored, int julianDay, JSONObject changes)
+            throws JSONException {
+        if (stored == null) {
+            String[] fields = {"condition", "summary", "max", "min", "humidity", "pressure",
+                    "wind_speed", "wind_deg"};
+            for (String field : fields) {
+                if (!changes.has(field)) {
+                    return null;
+                }
+            }
+        }
+        return new ForecastDay(julianDay,
+                stored == null || changes.has("condition")
+                        ? changes.getInt("condition") : stored.weatherId,
+                stored == null || changes.has("summary")
+                        ? changes.getString("summary") : stored.description,
+                stored == null || changes.has("max")
+                        ? changes.getDouble("max") : stored.high,
+                stored == null || changes.has("min")
+                        ? changes.getDouble("min") : stored.low,
+                stored == null || changes.has("humidity")
+                        ? changes.getDouble("humidity") : stored.humidity,
+                stored == null || changes.has("pressure")
+                        ? changes.getDouble("pressure") : stored.pressure,
+                stored == null || changes.has("wind_speed")
+                        ? changes.getDouble("wind_speed") : stored.windSpeed,
+                stored == null || changes.has("wind_deg")
+                        ? changes.getDouble("wind_deg") : stored.windDirection,
+                SOURCE_NAME);
+    }
+
+    /**
+     * Reads the stored days as doubles, rather than through {@link PackedForecast}'s floats, so
+     * the fields a delta leaves alone are written back exactly as they were.
+     */
+    private StoredForecast queryStored(String locationSetting) {
+        StoredForecast stored = new StoredForecast();
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherLocation(locationSetting),
+                PackedForecast.COLUMNS, null, null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return stored;
+        }
+        try {
+            int dateIndex = cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
+            int descIndex = cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+            int highIndex = cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP);
+            int lowIndex = cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP);
+            int humidityIndex =
+                    cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_HUMIDITY);
+            int pressureIndex =
+                    cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_PRESSURE);
+            int windSpeedIndex =
+                    cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED);
+            int degreesIndex = cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DEGREES);
+            int weatherIdIndex =
+                    cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+            Time dayTime = new Time();
+            while (cursor.moveToNext()) {
+                if (cursor.isFirst()) {
+                    stored.latitude = parse(cursor.getString(cursor.getColumnIndex(
+                            WeatherContract.LocationEntry.COLUMN_COORD_LAT)));
+                    stored.longitude = parse(cursor.getString(cursor.getColumnIndex(
+                            WeatherContract.LocationEntry.COLUMN_COORD_LONG)));
+                }
+                // Stored dates are the start of the day in the device's time zone
+                long date = cursor.getLong(dateIndex);
+                dayTime.set(date);
+                stored.days.add(new ForecastDay(Time.getJulianDay(date, dayTime.gmtoff),
+                        cursor.getInt(weatherIdIndex), cursor.getString(descIndex),
+                        cursor.getDouble(highIndex), cursor.getDouble(lowIndex),
+                        cursor.getDouble(humidityIndex), cursor.getDouble(pressureIndex),
+                        cursor.getDouble(windSpeedIndex), cursor.getDouble(degreesIndex),
+                        SOURCE_NAME));
+            }
+            return stored;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static int toJulianDay(long utcSeconds) {
+        return Time.getJulianDay(utcSeconds * 1000, 0);
+    }
+
+    private static double parse(String coordinate) {
+        try {
+            return coordinate == null ? 0 : Double.parseDouble(coordinate);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /*
+        The stored days of a location, ordered by Julian day, and where the location is.
+     */
+    private static class StoredForecast {
+        final List<ForecastDay> days = new ArrayList<ForecastDay>();
+        double latitude;
+        double longitude;
+
+        /**
+         * @return the stored day, or null if it isn't stored
+         */
+        ForecastDay find(int julianDay) {
+            for (ForecastDay day : days) {
+                if (day.julianDay == julianDay) {
+                    return day;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads forecast responses with connect and read timeouts, optionally hedging slow requests.
+ *
+ * When hedging is enabled and a request hasn't completed after the hedge delay, a duplicate
+ * request is sent and whichever response completes first is used.  The other request is cancelled
+ * by disconnecting it.  Hedges are charged to the {@link RequestQuota} like any other call and are
+ * skipped when the quota has no room left.  Unless a fixed delay has been set, the hedge delay
+ * follows the p95 of the latencies recorded by this fetcher.  A cancelled request records how
+ * long it had been running when it was cancelled, a lower bound on its latency, since the
+ * requests that lose are mostly the slow ones.
+ */
+public class ForecastFetcher {
+    private static final String LOG_TAG = ForecastFetcher.class.getSimpleName();
+
+    static final int CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    static final int READ_TIMEOUT_MILLIS = 20 * 1000;
+
+    // Until we have seen enough responses, we hedge after a conservative fixed delay.
+    static final long DEFAULT_HEDGE_DELAY_MILLIS = 1500;
+    static final long MIN_HEDGE_DELAY_MILLIS = 100;
+    static final int MIN_SAMPLES_FOR_ADAPTIVE_DELAY = 20;
+    static final double HEDGE_PERCENTILE = 0.95;
+
+    private final RequestQuota mQuota;
+    private final LatencyHistogram mLatencies = new LatencyHistogram();
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final AtomicInteger mHedgesSent = new AtomicInteger();
+    private final AtomicInteger mHedgesWon = new AtomicInteger();
+
+    private volatile boolean mHedgingEnabled;
+    private volatile long mFixedHedgeDelayMillis = -1;
+
+    public ForecastFetcher(RequestQuota quota, boolean hedgingEnabled) {
+        mQuota = quota;
+        mHedgingEnabled = hedgingEnabled;
+    }
+
+    public void setHedgingEnabled(boolean hedgingEnabled) {
+        mHedgingEnabled = hedgingEnabled;
+    }
+
+    /**
+     * Pins the hedge delay instead of deriving it from the observed latencies.
+     *
+     * @param delayMillis the delay to use, or a negative value to go back to the adaptive delay
+     */
+    public void setFixedHedgeDelay(long delayMillis) {
+        mFixedHedgeDelayMillis = delayMillis;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return mLatencies;
+    }
+
+    public int getHedgesSent() {
+        return mHedgesSent.get();
+    }
+
+    public int getHedgesWon() {
+        return mHedgesWon.get();
+    }
+
+    long getHedgeDelayMillis() {
+        long fixedDelay = mFixedHedgeDelayMillis;
+        if (fixedDelay >= 0) {
+            return fixedDelay;
+        }
+        if (mLatencies.getCount() < MIN_SAMPLES_FOR_ADAPTIVE_DELAY) {
+            return DEFAULT_HEDGE_DELAY_MILLIS;
+        }
+        return Math.max(MIN_HEDGE_DELAY_MILLIS, mLatencies.getPercentile(HEDGE_PERCENTILE));
+    }
+
+    /**
+     * Downloads the given URL, hedging if enabled.
+     *
+     * @return the response body, which is empty if the server sent nothing
+     * @throws IOException if every request that was sent failed
+     */
+    public String fetch(URL url) throws IOException {
+        mQuota.acquire();
+        Attempt primary = new Attempt(url);
+        if (!mHedgingEnabled) {
+            return primary.call();
+        }
+
+        CompletionService<String> completionService =
+                new ExecutorCompletionService<String>(mExecutor);
+        Future<String> primaryFuture = completionService.submit(primary);
+        Attempt hedge = null;
+        try {
+            Future<String> done = completionService.poll(getHedgeDelayMillis(),
+                    TimeUnit.MILLISECONDS);
+            int outstanding = 1;
+            if (done == null && mQuota.tryAcquire()) {
+                hedge = new Attempt(url);
+                completionService.submit(hedge);
+                mHedgesSent.incrementAndGet();
+                outstanding++;
+                Log.d(LOG_TAG, "Hedging request to " + url.getHost());
+            }
+
+            IOException failure = null;
+            while (outstanding > 0) {
+                // Both attempts are bounded by the connection timeouts, so this can't hang.
+                if (done == null) {
+                    done = completionService.take();
+                }
+                outstanding--;
+                try {
+                    String body = done.get();
+                    if (done != primaryFuture) {
+                        mHedgesWon.incrementAndGet();
+                    }
+                    return body;
+                } catch (ExecutionException e) {
+                    failure = toIOException(e.getCause());
+                }
+                done = null;
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url.getHost());
+        } finally {
+            // Cancelling the winner is a no-op, cancelling the loser drops its connection.
+            primary.cancel();
+            if (hedge != null) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    private static IOException toIOException(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException) t;
+        }
+        return new IOException(t);
+    }
+
+    /**
+     * A single HTTP GET.  Cancelling it disconnects the connection, which unblocks any read that
+     * is in progress on another thread.
+     */
+    private class Attempt implements Callable<String> {
+        private final URL mUrl;
+        private volatile HttpURLConnection mConnection;
+        private volatile boolean mCancelled;
+        private volatile long mStartMillis = -1;
+        // Set once the attempt's latency is recorded, or once it failed and won't be
+        private final AtomicBoolean mSettled = new AtomicBoolean();
+
+        Attempt(URL url) {
+            mUrl = url;
+        }
+
+        @Override
+        public String call() throws IOException {
+            mStartMillis = SystemClock.elapsedRealtime();
+            HttpURLConnection urlConnection = (HttpURLConnection) mUrl.openConnection();
+            mConnection = urlConnection;
+            BufferedReader reader = null;
+            try {
+                if (mCancelled) {
+                    throw new InterruptedIOException("Request cancelled");
+                }
+                urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                urlConnection.setReadTimeout(READ_TIMEOUT_MILLIS);
+                urlConnection.setRequestMethod("GET");
+                urlConnection.connect();
+
+                // Read the input stream into a String
+                InputStream inputStream = urlConnection.getInputStream();
+                StringBuilder buffer = new StringBuilder();
+                if (inputStream == null) {
+                    return "";
+                }
+                reader = new BufferedReader(new InputStreamReader(inputStream));
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    buffer.append(line).append('\n');
+                }
+
+                // A cancelled request has already recorded how long it ran before it was cancelled
+                if (mSettled.compareAndSet(false, true)) {
+                    mLatencies.record(SystemClock.elapsedRealtime() - mStartMillis);
+                }
+                return buffer.toString();
+            } finally {
+                // A request that failed says nothing about how long a response takes
+                mSettled.set(true);
+                urlConnection.disconnect();
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (final IOException e) {
+                        Log.e(LOG_TAG, "Error closing stream", e);
+                    }
+                }
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            // Dropping the requests that lost would leave only the winners in the histogram, and
+            // the p95 would drift down until hedging fires on every request.  The time it ran so
+            // far is recorded instead; it took at least that long.
+            long start = mStartMillis;
+            if (start >= 0 && mSettled.compareAndSet(false, true)) {
+                mLatencies.record(SystemClock.elapsedRealtime() - start);
+            }
+            HttpURLConnection urlConnection = mConnection;
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
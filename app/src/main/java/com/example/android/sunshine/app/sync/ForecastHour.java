@@ -0,0 +1,24 @@
+package com.example.android.sunshine.app.sync;
+
+/**
+ * One 3-hour step of OpenWeatherMap's 5 day forecast, in the API's units.
+ */
+public class ForecastHour {
+    // Start of the step, in seconds since the epoch
+    public final long timestamp;
+    public final int weatherId;
+    public final double temperature;
+    public final double windSpeed;
+    public final double pressure;
+    public final int humidity;
+
+    public ForecastHour(long timestamp, int weatherId, double temperature, double windSpeed,
+                        double pressure, int humidity) {
+        this.timestamp = timestamp;
+        this.weatherId = weatherId;
+        this.temperature = temperature;
+        this.windSpeed = windSpeed;
+        this.pressure = pressure;
+        this.humidity = humidity;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IntentService which hands the stored forecast to the post-sync consumers again, for settings
+ * like the units that change how the forecast is shown outside the app without changing it.
+ * The watch in particular is sent temperatures already converted, so it would otherwise keep the
+ * old units until the next sync.
+ */
+public class ForecastRepublishService extends IntentService {
+    private static final String SOURCE_NAME = "stored";
+
+    private static final String[] COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME
+    };
+    private static final int COL_DATE = 0;
+    private static final int COL_WEATHER_ID = 1;
+    private static final int COL_SHORT_DESC = 2;
+    private static final int COL_MAX_TEMP = 3;
+    private static final int COL_MIN_TEMP = 4;
+    private static final int COL_HUMIDITY = 5;
+    private static final int COL_PRESSURE = 6;
+    private static final int COL_WIND_SPEED = 7;
+    private static final int COL_DEGREES = 8;
+    private static final int COL_CITY_NAME = 9;
+
+    public ForecastRepublishService() {
+        super("ForecastRepublishService");
+    }
+
+    public static void start(Context context) {
+        context.startService(new Intent(context, ForecastRepublishService.class));
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        ForecastSnapshot snapshot = queryStored(this, PreferencesSnapshot.get(this).location);
+        if (snapshot != null) {
+            SunshineSyncAdapter.getPostSyncDispatcher(this).dispatch(snapshot);
+        }
+    }
+
+    /**
+     * @return the stored forecast for a location, or null if nothing is stored for it
+     */
+    static ForecastSnapshot queryStored(Context context, String locationSetting) {
+        Cursor cursor = context.getContentResolver().query(
+                WeatherContract.WeatherEntry.buildWeatherLocation(locationSetting), COLUMNS,
+                null, null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            String cityName = cursor.getString(COL_CITY_NAME);
+            List<ForecastDay> days = new ArrayList<ForecastDay>(cursor.getCount());
+            Time dayTime = new Time();
+            do {
+                // Stored dates are the start of the day in the device's time zone
+                long date = cursor.getLong(COL_DATE);
+                dayTime.set(date);
+                days.add(new ForecastDay(Time.getJulianDay(date, dayTime.gmtoff),
+                        cursor.getInt(COL_WEATHER_ID), cursor.getString(COL_SHORT_DESC),
+                        cursor.getDouble(COL_MAX_TEMP), cursor.getDouble(COL_MIN_TEMP),
+                        cursor.getDouble(COL_HUMIDITY), cursor.getDouble(COL_PRESSURE),
+                        cursor.getDouble(COL_WIND_SPEED), cursor.getDouble(COL_DEGREES),
+                        SOURCE_NAME));
+            } while (cursor.moveToNext());
+            return ForecastSnapshot.from(locationSetting,
+                    new ForecastResult(cityName, 0, 0, days));
+        } finally {
+            cursor.close();
+        }
+    }
+}
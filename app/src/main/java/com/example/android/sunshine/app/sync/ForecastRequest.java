@@ -0,0 +1,37 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+
+/**
+ * The location and number of days a sync asks every {@link ForecastSource} for.
+ */
+public class ForecastRequest {
+    public final String locationSetting;
+    // Set when the location came from the Place Picker, in which case sources should query by
+    // coordinates rather than by the location string.
+    public final boolean hasLatLon;
+    public final double latitude;
+    public final double longitude;
+    public final int numDays;
+
+    public ForecastRequest(String locationSetting, boolean hasLatLon, double latitude,
+                           double longitude, int numDays) {
+        this.locationSetting = locationSetting;
+        this.hasLatLon = hasLatLon;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.numDays = numDays;
+    }
+
+    /**
+     * Builds a request for the user's preferred location.
+     */
+    public static ForecastRequest forPreferredLocation(Context context, int numDays) {
+        // One snapshot, so the location and its coordinates always match
+        PreferencesSnapshot prefs = PreferencesSnapshot.get(context);
+        return new ForecastRequest(prefs.location, prefs.latLonAvailable, prefs.latitude,
+                prefs.longitude, numDays);
+    }
+}
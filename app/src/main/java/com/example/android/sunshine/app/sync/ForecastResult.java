@@ -0,0 +1,46 @@
+package com.example.android.sunshine.app.sync;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a {@link ForecastSource} (or the {@link ForecastAggregator} merging several of them)
+ * returned for a {@link ForecastRequest}.
+ */
+public class ForecastResult {
+    @SunshineSyncAdapter.LocationStatus
+    public final int status;
+    public final String cityName;
+    public final double cityLatitude;
+    public final double cityLongitude;
+    // Ordered by Julian day, empty unless status is LOCATION_STATUS_OK
+    public final List<ForecastDay> days;
+
+    public ForecastResult(String cityName, double cityLatitude, double cityLongitude,
+                          List<ForecastDay> days) {
+        this.status = SunshineSyncAdapter.LOCATION_STATUS_OK;
+        this.cityName = cityName;
+        this.cityLatitude = cityLatitude;
+        this.cityLongitude = cityLongitude;
+        this.days = days;
+    }
+
+    private ForecastResult(@SunshineSyncAdapter.LocationStatus int status) {
+        this.status = status;
+        this.cityName = null;
+        this.cityLatitude = 0;
+        this.cityLongitude = 0;
+        this.days = Collections.emptyList();
+    }
+
+    /**
+     * @param status one of the LOCATION_STATUS values other than LOCATION_STATUS_OK
+     */
+    public static ForecastResult failed(@SunshineSyncAdapter.LocationStatus int status) {
+        return new ForecastResult(status);
+    }
+
+    public boolean hasDays() {
+        return status == SunshineSyncAdapter.LOCATION_STATUS_OK && !days.isEmpty();
+    }
+}
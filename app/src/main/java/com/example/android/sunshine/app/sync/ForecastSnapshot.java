@@ -0,0 +1,42 @@
+package com.example.android.sunshine.app.sync;
+
+import android.text.format.Time;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The forecast a sync has just stored, handed to the post-sync consumers so they don't have to
+ * query the provider for what the sync already has in memory.
+ */
+public class ForecastSnapshot {
+    public final String locationSetting;
+    public final String cityName;
+    // Ordered by Julian day
+    public final List<ForecastDay> days;
+    // The day for today in the device's time zone, or null if the forecast doesn't include it
+    public final ForecastDay today;
+
+    public ForecastSnapshot(String locationSetting, String cityName, List<ForecastDay> days,
+                            ForecastDay today) {
+        this.locationSetting = locationSetting;
+        this.cityName = cityName;
+        this.days = Collections.unmodifiableList(days);
+        this.today = today;
+    }
+
+    public static ForecastSnapshot from(String locationSetting, ForecastResult result) {
+        Time time = new Time();
+        time.setToNow();
+        int julianToday = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+
+        ForecastDay today = null;
+        for (ForecastDay day : result.days) {
+            if (day.julianDay == julianToday) {
+                today = day;
+                break;
+            }
+        }
+        return new ForecastSnapshot(locationSetting, result.cityName, result.days, today);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.android.sunshine.app.sync;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+
+/**
+ * A weather provider the sync adapter can get a daily forecast from.  Implementations are called
+ * from the {@link ForecastAggregator}'s worker threads and may be abandoned if they miss the sync
+ * deadline, so they must not touch the database.
+ */
+public interface ForecastSource {
+    /**
+     * @return a short name that identifies this source in the weather table and in the stats
+     */
+    String getName();
+
+    /**
+     * Downloads and parses the forecast.  A location the provider doesn't know should be reported
+     * as a result with LOCATION_STATUS_INVALID rather than as an exception.
+     */
+    ForecastResult fetch(ForecastRequest request) throws IOException, JSONException;
+}
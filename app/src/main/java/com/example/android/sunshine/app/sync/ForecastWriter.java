@@ -0,0 +1,158 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.List;
+
+/**
+ * Writes parsed forecasts into the weather provider.
+ */
+public class ForecastWriter {
+    private final Context mContext;
+
+    public ForecastWriter(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Stores the days of a successful result for the given location and deletes the days before
+     * today, so we don't build up an endless history.
+     *
+     * @return the number of days inserted
+     */
+    public int write(String locationSetting, ForecastResult result) {
+        long locationId = addLocation(locationSetting, result.cityName,
+                result.cityLatitude, result.cityLongitude);
+
+        List<ForecastDay> days = result.days;
+        ContentValues[] cvArray = new ContentValues[days.size()];
+        // we work exclusively in UTC
+        Time dayTime = new Time();
+        for (int i = 0; i < cvArray.length; i++) {
+            cvArray[i] = toContentValues(locationId, days.get(i), dayTime);
+        }
+        if (cvArray.length == 0) {
+            return 0;
+        }
+        int inserted = mContext.getContentResolver().bulkInsert(
+                WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
+
+        Time now = new Time();
+        now.setToNow();
+        int julianToday = Time.getJulianDay(System.currentTimeMillis(), now.gmtoff);
+        mContext.getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
+                new String[] {Long.toString(dayTime.setJulianDay(julianToday - 1))});
+        return inserted;
+    }
+
+    /**
+     * Stores the 3-hour steps for a location that {@link #write} has already stored, and deletes
+     * the steps before today.
+     *
+     * @return the number of steps inserted
+     */
+    public int writeHourly(String locationSetting, ForecastResult result, List<ForecastHour> hours) {
+        if (hours.isEmpty()) {
+            return 0;
+        }
+        long locationId = addLocation(locationSetting, result.cityName,
+                result.cityLatitude, result.cityLongitude);
+
+        ContentValues[] cvArray = new ContentValues[hours.size()];
+        for (int i = 0; i < cvArray.length; i++) {
+            cvArray[i] = toHourlyContentValues(locationId, hours.get(i));
+        }
+        int inserted = mContext.getContentResolver().bulkInsert(
+                WeatherContract.HourlyEntry.CONTENT_URI, cvArray);
+
+        long todayStartSeconds = WeatherContract.normalizeDate(System.currentTimeMillis()) / 1000;
+        mContext.getContentResolver().delete(WeatherContract.HourlyEntry.CONTENT_URI,
+                WeatherContract.HourlyEntry.COLUMN_TIMESTAMP + " < ?",
+                new String[] {Long.toString(todayStartSeconds)});
+        return inserted;
+    }
+
+    static ContentValues toHourlyContentValues(long locationId, ForecastHour hour) {
+        ContentValues hourlyValues = new ContentValues();
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_LOC_KEY, locationId);
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_TIMESTAMP, hour.timestamp);
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_WEATHER_ID, hour.weatherId);
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_TEMP, WeatherContract.HourlyEntry
+                .toScaled(hour.temperature, WeatherContract.HourlyEntry.TEMP_SCALE));
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_WIND_SPEED, WeatherContract.HourlyEntry
+                .toScaled(hour.windSpeed, WeatherContract.HourlyEntry.WIND_SPEED_SCALE));
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_PRESSURE, WeatherContract.HourlyEntry
+                .toScaled(hour.pressure, WeatherContract.HourlyEntry.PRESSURE_SCALE));
+        hourlyValues.put(WeatherContract.HourlyEntry.COLUMN_HUMIDITY, hour.humidity);
+        return hourlyValues;
+    }
+
+    static ContentValues toContentValues(long locationId, ForecastDay day, Time dayTime) {
+        ContentValues weatherValues = new ContentValues();
+
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE,
+                dayTime.setJulianDay(day.julianDay));
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, day.humidity);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, day.pressure);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, day.windSpeed);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, day.windDirection);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, day.high);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, day.low);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, day.description);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, day.weatherId);
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SOURCE, day.source);
+        return weatherValues;
+    }
+
+    /**
+     * Helper method to handle insertion of a new location in the weather database.
+     *
+     * @param locationSetting The location string used to request updates from the server.
+     * @param cityName A human-readable city name, e.g "Mountain View"
+     * @param lat the latitude of the city
+     * @param lon the longitude of the city
+     * @return the row ID of the added location.
+     */
+    long addLocation(String locationSetting, String cityName, double lat, double lon) {
+        long locationId;
+
+        // First, check if the location with this city name exists in the db
+        Cursor locationCursor = mContext.getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry._ID},
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{locationSetting},
+                null);
+
+        if (locationCursor.moveToFirst()) {
+            int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
+            locationId = locationCursor.getLong(locationIdIndex);
+        } else {
+            ContentValues locationValues = new ContentValues();
+            locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
+            locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
+            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
+
+            Uri insertedUri = mContext.getContentResolver().insert(
+                    WeatherContract.LocationEntry.CONTENT_URI,
+                    locationValues
+            );
+
+            // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
+            locationId = ContentUris.parseId(insertedUri);
+        }
+
+        locationCursor.close();
+        return locationId;
+    }
+}
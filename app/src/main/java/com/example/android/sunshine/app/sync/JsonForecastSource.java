@@ -0,0 +1,98 @@
+package com.example.android.sunshine.app.sync;
+
+import android.net.Uri;
+import android.text.format.Time;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A secondary provider speaking a flat JSON format:
+ *
+ * <pre>
+ * {"location": {"name": "Mountain View", "lat": 37.39, "lon": -122.08},
+ *  "days": [{"date": 1457049600, "condition": 800, "summary": "Clear",
+ *            "min": 8.2, "max": 17.5, "humidity": 60, "pressure": 1021.5,
+ *            "wind_speed": 2.4, "wind_deg": 310}, ...]}
+ * </pre>
+ *
+ * Dates are UTC seconds at the start of the day, temperatures are metric and condition codes
+ * follow OpenWeatherMap's so the rest of the app can use them unchanged.  An unknown location is
+ * answered with a 404.
+ */
+public class JsonForecastSource implements ForecastSource {
+    private static final String QUERY_PARAM = "q";
+    private static final String LAT_PARAM = "lat";
+    private static final String LON_PARAM = "lon";
+    private static final String DAYS_PARAM = "days";
+
+    private final String mName;
+    private final String mBaseUrl;
+    private final ForecastFetcher mFetcher;
+
+    public JsonForecastSource(String name, String baseUrl, ForecastFetcher fetcher) {
+        mName = name;
+        mBaseUrl = baseUrl;
+        mFetcher = fetcher;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public ForecastResult fetch(ForecastRequest request) throws IOException, JSONException {
+        Uri.Builder uriBuilder = Uri.parse(mBaseUrl).buildUpon();
+        if (request.hasLatLon) {
+            uriBuilder.appendQueryParameter(LAT_PARAM, String.valueOf(request.latitude))
+                    .appendQueryParameter(LON_PARAM, String.valueOf(request.longitude));
+        } else {
+            uriBuilder.appendQueryParameter(QUERY_PARAM, request.locationSetting);
+        }
+        uriBuilder.appendQueryParameter(DAYS_PARAM, Integer.toString(request.numDays));
+
+        String body;
+        try {
+            body = mFetcher.fetch(new URL(uriBuilder.build().toString()));
+        } catch (FileNotFoundException e) {
+            // HttpURLConnection reports a 404 this way
+            return ForecastResult.failed(SunshineSyncAdapter.LOCATION_STATUS_INVALID);
+        }
+        if (body.length() == 0) {
+            return ForecastResult.failed(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN);
+        }
+        return parse(body, mName);
+    }
+
+    static ForecastResult parse(String body, String sourceName) throws JSONException {
+        JSONObject json = new JSONObject(body);
+        JSONObject location = json.getJSONObject("location");
+        JSONArray dayArray = json.getJSONArray("days");
+
+        List<ForecastDay> days = new ArrayList<ForecastDay>(dayArray.length());
+        for (int i = 0; i < dayArray.length(); i++) {
+            JSONObject day = dayArray.getJSONObject(i);
+            int julianDay = Time.getJulianDay(day.getLong("date") * 1000, 0);
+            days.add(new ForecastDay(julianDay,
+                    day.getInt("condition"),
+                    day.getString("summary"),
+                    day.getDouble("max"),
+                    day.getDouble("min"),
+                    day.getDouble("humidity"),
+                    day.getDouble("pressure"),
+                    day.getDouble("wind_speed"),
+                    day.getDouble("wind_deg"),
+                    sourceName));
+        }
+        return new ForecastResult(location.getString("name"),
+                location.getDouble("lat"), location.getDouble("lon"), days);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.android.sunshine.app.sync;
+
+/**
+ * A small, thread-safe latency histogram with exponentially sized buckets.  Percentiles are
+ * reported as the upper bound of the bucket they fall into, which is plenty accurate for tuning
+ * timeouts and hedge delays.
+ */
+public class LatencyHistogram {
+    // Bucket upper bounds grow by 25% per bucket, starting at 10ms.  The last bucket is open ended.
+    private static final long FIRST_BUCKET_MILLIS = 10;
+    private static final double BUCKET_GROWTH = 1.25;
+    private static final int BUCKET_COUNT = 40;
+    private static final long[] BUCKET_BOUNDS = new long[BUCKET_COUNT];
+
+    static {
+        double bound = FIRST_BUCKET_MILLIS;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            BUCKET_BOUNDS[i] = Math.round(bound);
+            bound *= BUCKET_GROWTH;
+        }
+    }
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount;
+    private long mMaxMillis;
+
+    public synchronized void record(long millis) {
+        mCounts[bucketFor(millis)]++;
+        mTotalCount++;
+        if (millis > mMaxMillis) {
+            mMaxMillis = millis;
+        }
+    }
+
+    public synchronized long getCount() {
+        return mTotalCount;
+    }
+
+    /**
+     * @param percentile a value between 0 and 1, e.g 0.95 for the p95
+     * @return the latency in milliseconds below which the given share of samples fall, or -1 if
+     * nothing has been recorded yet.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(percentile * mTotalCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank && mCounts[i] > 0) {
+                // Never report more than we have actually observed.
+                return Math.min(BUCKET_BOUNDS[i], mMaxMillis);
+            }
+        }
+        return mMaxMillis;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mTotalCount = 0;
+        mMaxMillis = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "n=" + mTotalCount
+                + " p50=" + getPercentile(0.5)
+                + " p95=" + getPercentile(0.95)
+                + " p99=" + getPercentile(0.99)
+                + " max=" + mMaxMillis;
+    }
+
+    private static int bucketFor(long millis) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (millis <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_COUNT - 1;
+    }
+}
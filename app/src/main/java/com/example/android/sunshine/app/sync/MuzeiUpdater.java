@@ -0,0 +1,34 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
+
+/**
+ * Asks our Muzei source to pick up the new forecast.
+ */
+public class MuzeiUpdater implements PostSyncConsumer {
+    private static final long DEADLINE_MILLIS = 2 * 1000;
+
+    @Override
+    public String getName() {
+        return "muzei";
+    }
+
+    @Override
+    public long getDeadlineMillis() {
+        return DEADLINE_MILLIS;
+    }
+
+    @Override
+    public void onForecastUpdated(Context context, ForecastSnapshot snapshot) {
+        // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
+        // Muzei background on lower API level devices
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            context.startService(new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED)
+                    .setClass(context, WeatherMuzeiSource.class));
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.android.sunshine.app.sync;
+
+import android.net.Uri;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.BuildConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The daily forecast from OpenWeatherMap, our primary provider.
+ */
+public class OwmForecastSource implements ForecastSource {
+    public static final String NAME = "owm";
+
+    // Possible parameters are avaiable at OWM's forecast API page, at
+    // http://openweathermap.org/API#forecast
+    private static final String FORECAST_BASE_URL =
+            "http://api.openweathermap.org/data/2.5/forecast/daily?";
+    // The 5 day forecast in 3-hour steps
+    private static final String HOURLY_BASE_URL =
+            "http://api.openweathermap.org/data/2.5/forecast?";
+    private static final String QUERY_PARAM = "q";
+    private static final String LAT_PARAM = "lat";
+    private static final String LON_PARAM = "lon";
+    private static final String FORMAT_PARAM = "mode";
+    private static final String UNITS_PARAM = "units";
+    private static final String DAYS_PARAM = "cnt";
+    private static final String APPID_PARAM = "APPID";
+
+    private final ForecastFetcher mFetcher;
+
+    public OwmForecastSource(ForecastFetcher fetcher) {
+        mFetcher = fetcher;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public ForecastFetcher getFetcher() {
+        return mFetcher;
+    }
+
+    @Override
+    public ForecastResult fetch(ForecastRequest request) throws IOException, JSONException {
+        Uri builtUri = buildUri(FORECAST_BASE_URL, request)
+                .appendQueryParameter(DAYS_PARAM, Integer.toString(request.numDays))
+                .build();
+
+        String forecastJsonStr = mFetcher.fetch(new URL(builtUri.toString()));
+        if (forecastJsonStr.length() == 0) {
+            // Stream was empty.  No point in parsing.
+            return ForecastResult.failed(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN);
+        }
+        return parse(forecastJsonStr);
+    }
+
+    /**
+     * Downloads the 5 day forecast in 3-hour steps.
+     *
+     * @return the steps in time order, empty if the server had nothing for the location
+     */
+    public List<ForecastHour> fetchHourly(ForecastRequest request)
+            throws IOException, JSONException {
+        Uri builtUri = buildUri(HOURLY_BASE_URL, request).build();
+        String hourlyJsonStr = mFetcher.fetch(new URL(builtUri.toString()));
+        if (hourlyJsonStr.length() == 0) {
+            return new ArrayList<ForecastHour>();
+        }
+        return parseHourly(hourlyJsonStr);
+    }
+
+    private static Uri.Builder buildUri(String baseUrl, ForecastRequest request) {
+        Uri.Builder uriBuilder = Uri.parse(baseUrl).buildUpon();
+
+        // Instead of always building the query based off of the location string, we want to
+        // potentially build a query using a lat/lon value. This will be the case when we are
+        // syncing based off of a new location from the Place Picker API. So we need to check
+        // if we have a lat/lon to work with, and use those when we do. Otherwise, the weather
+        // service may not understand the location address provided by the Place Picker API
+        // and the user could end up with no weather! The horror!
+        if (request.hasLatLon) {
+            uriBuilder.appendQueryParameter(LAT_PARAM, String.valueOf(request.latitude))
+                    .appendQueryParameter(LON_PARAM, String.valueOf(request.longitude));
+        } else {
+            uriBuilder.appendQueryParameter(QUERY_PARAM, request.locationSetting);
+        }
+
+        return uriBuilder.appendQueryParameter(FORMAT_PARAM, "json")
+                .appendQueryParameter(UNITS_PARAM, "metric")
+                .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY);
+    }
+
+    /**
+     * Take the String representing the complete forecast in JSON Format and
+     * pull out the data we need.
+     */
+    static ForecastResult parse(String forecastJsonStr) throws JSONException {
+        // These are the names of the JSON objects that need to be extracted.
+
+        // Location information
+        final String OWM_CITY = "city";
+        final String OWM_CITY_NAME = "name";
+        final String OWM_COORD = "coord";
+
+        // Location coordinate
+        final String OWM_LATITUDE = "lat";
+        final String OWM_LONGITUDE = "lon";
+
+        // Weather information.  Each day's forecast info is an element of the "list" array.
+        final String OWM_LIST = "list";
+
+        final String OWM_PRESSURE = "pressure";
+        final String OWM_HUMIDITY = "humidity";
+        final String OWM_WINDSPEED = "speed";
+        final String OWM_WIND_DIRECTION = "deg";
+
+        // All temperatures are children of the "temp" object.
+        final String OWM_TEMPERATURE = "temp";
+        final String OWM_MAX = "max";
+        final String OWM_MIN = "min";
+
+        final String OWM_WEATHER = "weather";
+        final String OWM_DESCRIPTION = "main";
+        final String OWM_WEATHER_ID = "id";
+
+        final String OWM_MESSAGE_CODE = "cod";
+
+        JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+        // do we have an error?
+        if (forecastJson.has(OWM_MESSAGE_CODE)) {
+            int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
+
+            switch (errorCode) {
+                case HttpURLConnection.HTTP_OK:
+                    break;
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                    return ForecastResult.failed(SunshineSyncAdapter.LOCATION_STATUS_INVALID);
+                default:
+                    return ForecastResult.failed(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN);
+            }
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+
+        JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
+        String cityName = cityJson.getString(OWM_CITY_NAME);
+
+        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+        double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
+        double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+
+        // OWM returns daily forecasts based upon the local time of the city that is being
+        // asked for, which means that we need to know the GMT offset to translate this data
+        // properly.
+
+        // Since this data is also sent in-order and the first day is always the
+        // current day, we're going to take advantage of that to get a nice
+        // normalized UTC date for all of our weather.
+        Time dayTime = new Time();
+        dayTime.setToNow();
+
+        // we start at the day returned by local time. Otherwise this is a mess.
+        int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
+
+        List<ForecastDay> days = new ArrayList<ForecastDay>(weatherArray.length());
+        for (int i = 0; i < weatherArray.length(); i++) {
+            // Get the JSON object representing the day
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+            // Description is in a child array called "weather", which is 1 element long.
+            // That element also contains a weather code.
+            JSONObject weatherObject =
+                    dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+
+            // Temperatures are in a child object called "temp".  Try not to name variables
+            // "temp" when working with temperature.  It confuses everybody.
+            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+
+            days.add(new ForecastDay(julianStartDay + i,
+                    weatherObject.getInt(OWM_WEATHER_ID),
+                    weatherObject.getString(OWM_DESCRIPTION),
+                    temperatureObject.getDouble(OWM_MAX),
+                    temperatureObject.getDouble(OWM_MIN),
+                    dayForecast.getInt(OWM_HUMIDITY),
+                    dayForecast.getDouble(OWM_PRESSURE),
+                    dayForecast.getDouble(OWM_WINDSPEED),
+                    dayForecast.getDouble(OWM_WIND_DIRECTION),
+                    NAME));
+        }
+        return new ForecastResult(cityName, cityLatitude, cityLongitude, days);
+    }
+
+    static List<ForecastHour> parseHourly(String hourlyJsonStr) throws JSONException {
+        final String OWM_LIST = "list";
+        final String OWM_DATETIME = "dt";
+        final String OWM_MAIN = "main";
+        final String OWM_TEMPERATURE = "temp";
+        final String OWM_PRESSURE = "pressure";
+        final String OWM_HUMIDITY = "humidity";
+        final String OWM_WIND = "wind";
+        final String OWM_WINDSPEED = "speed";
+        final String OWM_WEATHER = "weather";
+        final String OWM_WEATHER_ID = "id";
+
+        JSONObject hourlyJson = new JSONObject(hourlyJsonStr);
+        JSONArray stepArray = hourlyJson.optJSONArray(OWM_LIST);
+        if (stepArray == null) {
+            // An unknown location comes back as an error code without a list
+            return new ArrayList<ForecastHour>();
+        }
+
+        List<ForecastHour> hours = new ArrayList<ForecastHour>(stepArray.length());
+        for (int i = 0; i < stepArray.length(); i++) {
+            JSONObject step = stepArray.getJSONObject(i);
+            JSONObject main = step.getJSONObject(OWM_MAIN);
+            hours.add(new ForecastHour(step.getLong(OWM_DATETIME),
+                    step.getJSONArray(OWM_WEATHER).getJSONObject(0).getInt(OWM_WEATHER_ID),
+                    main.getDouble(OWM_TEMPERATURE),
+                    step.getJSONObject(OWM_WIND).getDouble(OWM_WINDSPEED),
+                    main.getDouble(OWM_PRESSURE),
+                    main.getInt(OWM_HUMIDITY)));
+        }
+        return hours;
+    }
+}
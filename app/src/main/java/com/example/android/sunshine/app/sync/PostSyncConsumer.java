@@ -0,0 +1,22 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+
+/**
+ * Something that needs to hear about a freshly stored forecast: a widget, Muzei, the notification
+ * or the watch.  Consumers run concurrently on the {@link PostSyncDispatcher}'s threads and are
+ * interrupted once their deadline passes.
+ */
+public interface PostSyncConsumer {
+    /**
+     * @return a short name for logs and stats
+     */
+    String getName();
+
+    /**
+     * @return how long the consumer may run, in milliseconds, before it is interrupted
+     */
+    long getDeadlineMillis();
+
+    void onForecastUpdated(Context context, ForecastSnapshot snapshot) throws Exception;
+}
@@ -0,0 +1,130 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands a freshly stored forecast to every {@link PostSyncConsumer} concurrently, so the sync
+ * finishes without waiting for the slowest of them.
+ *
+ * Consumers run on a small bounded pool.  Each one is interrupted when its own deadline passes and
+ * a failing consumer doesn't affect the others.  Latency is measured from dispatch to completion,
+ * so time spent queued behind other consumers counts.
+ */
+public class PostSyncDispatcher {
+    private static final String LOG_TAG = PostSyncDispatcher.class.getSimpleName();
+
+    private static final int THREADS = 4;
+    // Room for a couple of syncs' worth of consumers; anything beyond that is dropped.
+    private static final int QUEUE_CAPACITY = 16;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final Context mContext;
+    private final List<PostSyncConsumer> mConsumers;
+    private final List<CallStats> mStats;
+    private final ThreadPoolExecutor mExecutor;
+    private final ScheduledExecutorService mWatchdog = new ScheduledThreadPoolExecutor(1);
+
+    public PostSyncDispatcher(Context context, List<PostSyncConsumer> consumers) {
+        mContext = context.getApplicationContext();
+        mConsumers = new ArrayList<PostSyncConsumer>(consumers);
+        mStats = new ArrayList<CallStats>(consumers.size());
+        for (int i = 0; i < consumers.size(); i++) {
+            mStats.add(new CallStats());
+        }
+        mExecutor = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY));
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts every consumer and returns without waiting for them.
+     */
+    public void dispatch(final ForecastSnapshot snapshot) {
+        final long dispatched = SystemClock.elapsedRealtime();
+        for (int i = 0; i < mConsumers.size(); i++) {
+            final PostSyncConsumer consumer = mConsumers.get(i);
+            final CallStats stats = mStats.get(i);
+            // Set by whichever of the consumer and the watchdog finishes with it first, so each
+            // dispatch is counted exactly once
+            final AtomicBoolean settled = new AtomicBoolean();
+            final Future<?> future;
+            try {
+                future = mExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            consumer.onForecastUpdated(mContext, snapshot);
+                            if (settled.compareAndSet(false, true)) {
+                                stats.recordLatency(SystemClock.elapsedRealtime() - dispatched);
+                                stats.recordSuccess();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            if (settled.compareAndSet(false, true)) {
+                                // Interrupted by something other than the watchdog
+                                stats.recordFailure();
+                            }
+                        } catch (Exception e) {
+                            Log.e(LOG_TAG, consumer.getName() + " failed", e);
+                            if (settled.compareAndSet(false, true)) {
+                                stats.recordFailure();
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                Log.w(LOG_TAG, "Dropped " + consumer.getName() + ", too many updates queued");
+                stats.recordFailure();
+                continue;
+            }
+
+            mWatchdog.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (settled.compareAndSet(false, true)) {
+                        future.cancel(true);
+                        Log.w(LOG_TAG, consumer.getName() + " missed its "
+                                + consumer.getDeadlineMillis() + "ms deadline");
+                        stats.recordTimeout();
+                    }
+                }
+            }, consumer.getDeadlineMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the stats for the consumer with the given name, or null if there is no such consumer
+     */
+    public CallStats getStats(String consumerName) {
+        for (int i = 0; i < mConsumers.size(); i++) {
+            if (mConsumers.get(i).getName().equals(consumerName)) {
+                return mStats.get(i);
+            }
+        }
+        return null;
+    }
+
+    public String getStatsSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < mConsumers.size(); i++) {
+            if (i > 0) {
+                summary.append("; ");
+            }
+            summary.append(mConsumers.get(i).getName()).append(": ").append(mStats.get(i));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.annotation.IntDef;
+import android.util.Log;
+
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Decides whether a periodic sync is worth running, given how well push delivery is working.
+ *
+ * Push counts as healthy once our token has reached the server and a message, a forecast delta
+ * or one of the server's heartbeats, arrived within {@code R.integer.push_healthy_window_minutes}.
+ * While it is, forecasts arrive by push and periodic syncs are skipped, apart from one every
+ * {@code R.integer.push_safety_sync_minutes} in case push missed something.  Once push goes
+ * quiet for longer than the window, periodic syncs run again on their own.  Syncs somebody asked
+ * for are never skipped.
+ *
+ * The periodic sync keeps its interval, since its wakeups are what notice that push has gone
+ * quiet; a skipped one costs a wakeup but no network.  Everything, the counters included, is kept
+ * in the shared preferences, since pushes and syncs are hours apart and the process is usually
+ * killed in between.
+ */
+public class PushHealthPolicy {
+    private static final String LOG_TAG = PushHealthPolicy.class.getSimpleName();
+
+    private static final String PREF_LAST_PUSH = "push_last_received";
+    private static final String PREF_LAST_SYNC = "push_last_periodic_sync";
+    private static final String PREF_PUSHES = "push_received";
+    private static final String PREF_HEARTBEATS = "push_heartbeats";
+    private static final String PREF_SYNCS_RUN = "push_periodic_syncs_run";
+    private static final String PREF_SYNCS_AVOIDED = "push_periodic_syncs_avoided";
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({DECISION_POLL, DECISION_SAFETY_SYNC, DECISION_SKIP})
+    public @interface Decision {}
+
+    // Push isn't healthy, so the sync runs as it always has
+    public static final int DECISION_POLL = 0;
+    // Push is healthy, but it has been too long since the last sync
+    public static final int DECISION_SAFETY_SYNC = 1;
+    public static final int DECISION_SKIP = 2;
+
+    private static PushHealthPolicy sInstance;
+
+    private final SharedPreferences mPrefs;
+    private final long mHealthyWindowMillis;
+    private final long mSafetySyncMillis;
+
+    public static synchronized PushHealthPolicy getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new PushHealthPolicy(
+                    PreferenceManager.getDefaultSharedPreferences(appContext),
+                    appContext.getResources().getInteger(R.integer.push_healthy_window_minutes)
+                            * 60 * 1000L,
+                    appContext.getResources().getInteger(R.integer.push_safety_sync_minutes)
+                            * 60 * 1000L);
+        }
+        return sInstance;
+    }
+
+    PushHealthPolicy(SharedPreferences prefs, long healthyWindowMillis, long safetySyncMillis) {
+        mPrefs = prefs;
+        mHealthyWindowMillis = healthyWindowMillis;
+        mSafetySyncMillis = safetySyncMillis;
+    }
+
+    /**
+     * Records a message from our server.
+     *
+     * @param heartbeat true if the message only says the server is still there
+     */
+    public synchronized void onPushReceived(long nowMillis, boolean heartbeat) {
+        SharedPreferences.Editor editor = mPrefs.edit()
+                .putLong(PREF_LAST_PUSH, nowMillis)
+                .putLong(PREF_PUSHES, mPrefs.getLong(PREF_PUSHES, 0) + 1);
+        if (heartbeat) {
+            editor.putLong(PREF_HEARTBEATS, mPrefs.getLong(PREF_HEARTBEATS, 0) + 1);
+        }
+        editor.apply();
+    }
+
+    public synchronized boolean isPushHealthy(long nowMillis) {
+        if (!mPrefs.getBoolean(MainActivity.SENT_TOKEN_TO_SERVER, false)) {
+            return false;
+        }
+        long lastPush = mPrefs.getLong(PREF_LAST_PUSH, 0);
+        // A push from the future means the clock was turned back, so nothing can be told from it
+        return lastPush > 0 && lastPush <= nowMillis
+                && nowMillis - lastPush <= mHealthyWindowMillis;
+    }
+
+    /**
+     * Decides whether a periodic sync starting now runs, and records the decision.  A sync that
+     * runs counts from now for the next safety sync.
+     */
+    @Decision
+    public synchronized int decidePeriodicSync(long nowMillis) {
+        int decision;
+        if (!isPushHealthy(nowMillis)) {
+            decision = DECISION_POLL;
+        } else {
+            long lastSync = mPrefs.getLong(PREF_LAST_SYNC, 0);
+            decision = lastSync > nowMillis || nowMillis - lastSync >= mSafetySyncMillis
+                    ? DECISION_SAFETY_SYNC : DECISION_SKIP;
+        }
+
+        SharedPreferences.Editor editor = mPrefs.edit();
+        if (decision == DECISION_SKIP) {
+            editor.putLong(PREF_SYNCS_AVOIDED, mPrefs.getLong(PREF_SYNCS_AVOIDED, 0) + 1);
+        } else {
+            editor.putLong(PREF_LAST_SYNC, nowMillis)
+                    .putLong(PREF_SYNCS_RUN, mPrefs.getLong(PREF_SYNCS_RUN, 0) + 1);
+        }
+        editor.apply();
+        Log.d(LOG_TAG, "Periodic sync " + getDecisionName(decision) + ". " + getStatsSummary());
+        return decision;
+    }
+
+    public synchronized long getSyncsAvoided() {
+        return mPrefs.getLong(PREF_SYNCS_AVOIDED, 0);
+    }
+
+    public synchronized long getSyncsRun() {
+        return mPrefs.getLong(PREF_SYNCS_RUN, 0);
+    }
+
+    public synchronized String getStatsSummary() {
+        return "Push: " + mPrefs.getLong(PREF_PUSHES, 0) + " received ("
+                + mPrefs.getLong(PREF_HEARTBEATS, 0) + " heartbeats); periodic syncs: "
+                + getSyncsRun() + " run, " + getSyncsAvoided() + " avoided";
+    }
+
+    static String getDecisionName(@Decision int decision) {
+        switch (decision) {
+            case DECISION_POLL:
+                return "polled";
+            case DECISION_SAFETY_SYNC:
+                return "run as a safety sync";
+            case DECISION_SKIP:
+                return "skipped";
+            default:
+                return "unknown";
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.android.sunshine.app.sync;
+
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+
+/**
+ * Sliding window count of the calls made with our OpenWeatherMap API key.  Required calls are
+ * always charged with {@link #acquire()}; optional calls (such as hedged requests) should use
+ * {@link #tryAcquire()} so they back off before the key's rate limit is reached.
+ */
+public class RequestQuota {
+    private final int mMaxRequests;
+    private final long mWindowMillis;
+    private final ArrayDeque<Long> mRequestTimes = new ArrayDeque<Long>();
+
+    public RequestQuota(int maxRequests, long windowMillis) {
+        mMaxRequests = maxRequests;
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Charges a request that is going to be made regardless of the remaining quota.
+     */
+    public synchronized void acquire() {
+        long now = SystemClock.elapsedRealtime();
+        expire(now);
+        mRequestTimes.addLast(now);
+    }
+
+    /**
+     * Charges a request only if the window still has room for it.
+     *
+     * @return true if the request may be made
+     */
+    public synchronized boolean tryAcquire() {
+        long now = SystemClock.elapsedRealtime();
+        expire(now);
+        if (mRequestTimes.size() >= mMaxRequests) {
+            return false;
+        }
+        mRequestTimes.addLast(now);
+        return true;
+    }
+
+    /**
+     * @return the number of requests charged within the current window
+     */
+    public synchronized int getUsed() {
+        expire(SystemClock.elapsedRealtime());
+        return mRequestTimes.size();
+    }
+
+    private void expire(long now) {
+        while (!mRequestTimes.isEmpty() && now - mRequestTimes.peekFirst() >= mWindowMillis) {
+            mRequestTimes.removeFirst();
+        }
+    }
+}
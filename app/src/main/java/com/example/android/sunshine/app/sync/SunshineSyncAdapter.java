@@ -2,65 +2,34 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.annotation.SuppressLint;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
 import android.content.ContentProviderClient;
 import android.content.ContentResolver;
-import android.content.ContentUris;
-import android.content.ContentValues;
 import android.content.Context;
-import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SyncRequest;
 import android.content.SyncResult;
 import android.content.res.Resources;
-import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
-import android.support.v4.app.NotificationCompat;
-import android.support.v4.app.TaskStackBuilder;
-import android.text.format.Time;
 import android.util.Log;
 
-import com.bumptech.glide.Glide;
-import com.example.android.sunshine.app.BuildConfig;
-import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.PreferencesSnapshot;
 import com.example.android.sunshine.app.R;
-import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
-import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
-import com.example.sharedassets.SharedUtility;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.DataApi;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
-import com.google.android.gms.wearable.Wearable;
-
-import org.json.JSONArray;
+
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Vector;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.List;
 
-public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements GoogleApiClient.ConnectionCallbacks,GoogleApiClient.OnConnectionFailedListener {
+public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public final String LOG_TAG = SunshineSyncAdapter.class.getSimpleName();
     public static final String ACTION_DATA_UPDATED =
             "com.example.android.sunshine.app.ACTION_DATA_UPDATED";
@@ -68,26 +37,30 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
     // 60 seconds (1 minute) * 180 = 3 hours
     public static final int SYNC_INTERVAL = 60 * 180;
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL/3;
-    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
-    private static final int WEATHER_NOTIFICATION_ID = 3004;
-
-    public GoogleApiClient mGoogleApiClient;
-    public double mTopTemp;
-    public double mLowTemp;
-
-
-    private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-    };
 
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-    private static final int INDEX_SHORT_DESC = 3;
+    // OpenWeatherMap's free tier allows 60 calls per minute for an API key.
+    private static final int OWM_REQUESTS_PER_MINUTE = 60;
+    private static final RequestQuota sOwmQuota =
+            new RequestQuota(OWM_REQUESTS_PER_MINUTE, 60 * 1000);
+    private static final String SECONDARY_SOURCE_NAME = "backup";
+    private static final int SECONDARY_REQUESTS_PER_MINUTE = 60;
+    private static final RequestQuota sSecondaryQuota =
+            new RequestQuota(SECONDARY_REQUESTS_PER_MINUTE, 60 * 1000);
+    private static ForecastAggregator sForecastAggregator;
+    private static OwmForecastSource sOwmSource;
+
+    // Sync extra asking for more days than the routine horizon
+    public static final String EXTRA_HORIZON_DAYS = "horizon_days";
+    // Sync extra marking the full refresh that lite mode deferred to an unmetered network
+    public static final String EXTRA_FULL_REFRESH = "full_refresh";
+    // Extension requests closer together than this are dropped
+    private static final long HORIZON_EXTENSION_DEBOUNCE_MILLIS = 5 * 60 * 1000;
+    private static long sLastHorizonExtensionMillis;
+    // How long all forecast sources together may take, in milliseconds.
+    private static final long SYNC_DEADLINE_MILLIS = 25 * 1000;
+
+    private static PostSyncDispatcher sPostSyncDispatcher;
+    private static PostSyncDispatcher sWidgetDispatcher;
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LOCATION_STATUS_OK, LOCATION_STATUS_SERVER_DOWN, LOCATION_STATUS_SERVER_INVALID,  LOCATION_STATUS_UNKNOWN, LOCATION_STATUS_INVALID})
@@ -101,478 +74,184 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
 
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
-        mGoogleApiClient = new GoogleApiClient.Builder(getContext())
-                .addApi(Wearable.API)
-                .addConnectionCallbacks(this)
-                .addOnConnectionFailedListener(this)
-                .build();
     }
 
     @Override
     public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
         Log.d(LOG_TAG, "Starting sync");
-
-        // We no longer need just the location String, but also potentially the latitude and
-        // longitude, in case we are syncing based on a new Place Picker API result.
-        Context context = getContext();
-        String locationQuery = Utility.getPreferredLocation(context);
-        String locationLatitude = String.valueOf(Utility.getLocationLatitude(context));
-        String locationLongitude = String.valueOf(Utility.getLocationLongitude(context));
-
-        // These two need to be declared outside the try/catch
-        // so that they can be closed in the finally block.
-        HttpURLConnection urlConnection = null;
-        BufferedReader reader = null;
-
-        // Will contain the raw JSON response as a string.
-        String forecastJsonStr = null;
-
-        String format = "json";
-        String units = "metric";
-        int numDays = 14;
-
+        if (isPeriodic(extras) && PushHealthPolicy.getInstance(getContext())
+                .decidePeriodicSync(System.currentTimeMillis()) == PushHealthPolicy.DECISION_SKIP) {
+            // Push is delivering the forecast, so there is nothing to poll for.
+            return;
+        }
+        SyncTrafficLog trafficLog = SyncTrafficLog.begin(getContext());
         try {
-            // Construct the URL for the OpenWeatherMap query
-            // Possible parameters are avaiable at OWM's forecast API page, at
-            // http://openweathermap.org/API#forecast
-            final String FORECAST_BASE_URL =
-                    "http://api.openweathermap.org/data/2.5/forecast/daily?";
-            final String QUERY_PARAM = "q";
-            final String LAT_PARAM = "lat";
-            final String LON_PARAM = "lon";
-            final String FORMAT_PARAM = "mode";
-            final String UNITS_PARAM = "units";
-            final String DAYS_PARAM = "cnt";
-            final String APPID_PARAM = "APPID";
-
-            Uri.Builder uriBuilder = Uri.parse(FORECAST_BASE_URL).buildUpon();
-
-            // Instead of always building the query based off of the location string, we want to
-            // potentially build a query using a lat/lon value. This will be the case when we are
-            // syncing based off of a new location from the Place Picker API. So we need to check
-            // if we have a lat/lon to work with, and use those when we do. Otherwise, the weather
-            // service may not understand the location address provided by the Place Picker API
-            // and the user could end up with no weather! The horror!
-            if (Utility.isLocationLatLonAvailable(context)) {
-                uriBuilder.appendQueryParameter(LAT_PARAM, locationLatitude)
-                        .appendQueryParameter(LON_PARAM, locationLongitude);
-            } else {
-                uriBuilder.appendQueryParameter(QUERY_PARAM, locationQuery);
-            }
-
-            Uri builtUri = uriBuilder.appendQueryParameter(FORMAT_PARAM, format)
-                    .appendQueryParameter(UNITS_PARAM, units)
-                    .appendQueryParameter(DAYS_PARAM, Integer.toString(numDays))
-                    .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY)
-                    .build();
-
-            URL url = new URL(builtUri.toString());
-
-            // Create the request to OpenWeatherMap, and open the connection
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // Read the input stream into a String
-            InputStream inputStream = urlConnection.getInputStream();
-            StringBuffer buffer = new StringBuffer();
-            if (inputStream == null) {
-                // Nothing to do.
-                return;
-            }
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Since it's JSON, adding a newline isn't necessary (it won't affect parsing)
-                // But it does make debugging a *lot* easier if you print out the completed
-                // buffer for debugging.
-                buffer.append(line + "\n");
-            }
-
-            if (buffer.length() == 0) {
-                // Stream was empty.  No point in parsing.
-                setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                return;
-            }
-            forecastJsonStr = buffer.toString();
-            getWeatherDataFromJson(forecastJsonStr, locationQuery);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error ", e);
-            // If the code didn't successfully get the weather data, there's no point in attempting
-            // to parse it.
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
+            performSync(extras, trafficLog);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (final IOException e) {
-                    Log.e(LOG_TAG, "Error closing stream", e);
-                }
-            }
+            trafficLog.end();
         }
-        return;
     }
 
     /**
-     * Take the String representing the complete forecast in JSON Format and
-     * pull out the data we need to construct the Strings needed for the wireframes.
-     *
-     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-     * into an Object hierarchy for us.
+     * @return true for the syncs the framework runs every SYNC_INTERVAL, as opposed to those
+     * somebody asked for
      */
-    private void getWeatherDataFromJson(String forecastJsonStr,
-                                        String locationSetting)
-            throws JSONException {
-
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
-
-        // These are the names of the JSON objects that need to be extracted.
-
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
-
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
-
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
-
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
-
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
-
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
-
-        final String OWM_MESSAGE_CODE = "cod";
-
-        try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
-            Context context = getContext();
-
-            // do we have an error?
-            if ( forecastJson.has(OWM_MESSAGE_CODE) ) {
-                int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-                switch (errorCode) {
-                    case HttpURLConnection.HTTP_OK:
-                        break;
-                    case HttpURLConnection.HTTP_NOT_FOUND:
-                        setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
-                        return;
-                    default:
-                        setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                        return;
-                }
-            }
-
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
-
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
-
-            // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
-
-            // OWM returns daily forecasts based upon the local time of the city that is being
-            // asked for, which means that we need to know the GMT offset to translate this data
-            // properly.
-
-            // Since this data is also sent in-order and the first day is always the
-            // current day, we're going to take advantage of that to get a nice
-            // normalized UTC date for all of our weather.
-
-            Time dayTime = new Time();
-            dayTime.setToNow();
-
-            // we start at the day returned by local time. Otherwise this is a mess.
-            int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
-
-            // now we work exclusively in UTC
-            dayTime = new Time();
-
-            for(int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
-
-                double high;
-                double low;
-
-                String description;
-                int weatherId;
-
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
-
-                // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay+i);
-
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
-
-                mTopTemp = high;
-                mLowTemp = low;
+    private static boolean isPeriodic(Bundle extras) {
+        return !extras.getBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, false)
+                && !extras.containsKey(EXTRA_HORIZON_DAYS);
+    }
 
-                ContentValues weatherValues = new ContentValues();
+    /**
+     * On a metered network a periodic sync only fetches what is on screen: today for the
+     * widgets, watch and notification, and the first few days of the list.  The rest waits for
+     * an unmetered network.  A sync somebody asked for, a refresh from the settings, a first
+     * launch, an extension for somebody scrolling towards those days, is always let through.
+     *
+     * @return one of the SyncLogEntry MODE_ values
+     */
+    static String chooseMode(Bundle extras, boolean metered) {
+        if (extras.containsKey(EXTRA_HORIZON_DAYS)
+                && !extras.getBoolean(EXTRA_FULL_REFRESH, false)) {
+            return WeatherContract.SyncLogEntry.MODE_EXTEND;
+        }
+        if (metered && isPeriodic(extras)) {
+            return WeatherContract.SyncLogEntry.MODE_LITE;
+        }
+        return WeatherContract.SyncLogEntry.MODE_FULL;
+    }
 
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+    private void performSync(Bundle extras, SyncTrafficLog trafficLog) {
+        // We no longer need just the location String, but also potentially the latitude and
+        // longitude, in case we are syncing based on a new Place Picker API result.
+        Context context = getContext();
+        Resources resources = context.getResources();
+        // Routine syncs only fetch a few days; the rest is fetched when somebody scrolls to it.
+        int maxHorizon = resources.getInteger(R.integer.sync_max_horizon_days);
+        int horizon = Math.min(maxHorizon, extras.getInt(EXTRA_HORIZON_DAYS,
+                resources.getInteger(R.integer.sync_horizon_days)));
+        String mode = chooseMode(extras, trafficLog.isMetered());
+        boolean extendingHorizon = WeatherContract.SyncLogEntry.MODE_EXTEND.equals(mode);
+        boolean lite = WeatherContract.SyncLogEntry.MODE_LITE.equals(mode);
+        if (lite) {
+            DeferredSyncJobService.schedule(context, horizon);
+            horizon = Math.min(horizon, resources.getInteger(R.integer.sync_lite_horizon_days));
+        }
+        trafficLog.setMode(mode, horizon);
+        ForecastRequest request = ForecastRequest.forPreferredLocation(context, horizon);
+
+        // Every source is queried in parallel, and none of them may hold the sync up for longer
+        // than the deadline.
+        ForecastAggregator aggregator = getForecastAggregator(context);
+        ForecastAggregator.MergePolicy policy = ForecastAggregator.MergePolicy.fromString(
+                context.getString(R.string.sync_merge_policy));
+        ForecastResult result = aggregator.aggregate(request, SYNC_DEADLINE_MILLIS, policy);
+        Log.d(LOG_TAG, "Forecast sources: " + aggregator.getStatsSummary());
+
+        if (!result.hasDays()) {
+            // Nothing usable came back in time, so leave the database as it is.
+            setLocationStatus(context, result.status);
+            return;
+        }
 
-                cVVector.add(weatherValues);
-            }
+        int inserted = new ForecastWriter(context).write(request.locationSetting, result);
 
-            int inserted = 0;
-            // add to database
-            if ( cVVector.size() > 0 ) {
-                ContentValues[] cvArray = new ContentValues[cVVector.size()];
-                cVVector.toArray(cvArray);
-                getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
-
-                // delete old data so we don't build up an endless history
-                getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[] {Long.toString(dayTime.setJulianDay(julianStartDay-1))});
-
-                updateWidgets();
-                updateMuzei();
-                notifyWeather();
-            }
-            Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
-            setLocationStatus(getContext(), LOCATION_STATUS_OK);
+        Log.d(LOG_TAG, "Sync Complete. " + inserted + " Inserted");
+        setLocationStatus(context, LOCATION_STATUS_OK);
 
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
+        // Widgets, Muzei, the notification and the watch are updated in parallel from what we
+        // have in memory, and the sync carries on without waiting for them.
+        ForecastSnapshot snapshot = ForecastSnapshot.from(request.locationSetting, result);
+        if (extendingHorizon) {
+            // Today hasn't changed since the routine sync, so only the widget lists have anything
+            // new, and there is nothing for the hourly table.
+            getWidgetDispatcher(context).dispatch(snapshot);
+            return;
+        }
+        PostSyncDispatcher dispatcher = getPostSyncDispatcher(context);
+        dispatcher.dispatch(snapshot);
+        Log.d(LOG_TAG, "Post-sync consumers so far: " + dispatcher.getStatsSummary());
+        if (lite) {
+            // The hourly steps are left for the deferred sync.
+            return;
         }
-    }
 
-    private void updateWidgets() {
-        Context context = getContext();
-        // Setting the package ensures that only components in our app will receive the broadcast
-        Intent dataUpdatedIntent = new Intent(ACTION_DATA_UPDATED)
-                .setPackage(context.getPackageName());
-        context.sendBroadcast(dataUpdatedIntent);
+        // The 3-hour steps are extra detail, so they are fetched only once everything that
+        // depends on the daily forecast has been handed its update.
+        if (syncHourly(context, request, result)) {
+            // Nothing is left for a pending deferred sync to do.
+            DeferredSyncJobService.cancel(context);
+        }
     }
 
-    private void updateMuzei() {
-        // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
-        // Muzei background on lower API level devices
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            Context context = getContext();
-            context.startService(new Intent(ACTION_DATA_UPDATED)
-                    .setClass(context, WeatherMuzeiSource.class));
+    /**
+     * @return true if the hourly steps were fetched and stored
+     */
+    private boolean syncHourly(Context context, ForecastRequest request, ForecastResult result) {
+        OwmForecastSource owmSource;
+        synchronized (SunshineSyncAdapter.class) {
+            owmSource = sOwmSource;
+        }
+        try {
+            List<ForecastHour> hours = owmSource.fetchHourly(request);
+            int inserted = new ForecastWriter(context)
+                    .writeHourly(request.locationSetting, result, hours);
+            Log.d(LOG_TAG, "Hourly sync complete. " + inserted + " Inserted");
+            return true;
+        } catch (IOException | JSONException e) {
+            // The daily forecast is already stored, so there is no location status to report.
+            Log.e(LOG_TAG, "Error fetching hourly forecast", e);
+            return false;
         }
     }
 
-    private void notifyWeather() {
-        Context context = getContext();
-        //checking the last update and notify if it' the first of the day
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
-                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
-
-        if ( displayNotifications ) {
-
-            String lastNotificationKey = context.getString(R.string.pref_last_notification);
-            long lastSync = prefs.getLong(lastNotificationKey, 0);
-
-            if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
-                // Last sync was more than 1 day ago, let's send a notification with the weather.
-                String locationQuery = Utility.getPreferredLocation(context);
-
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-                // we'll query our contentProvider, as always
-                Cursor cursor = context.getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
-
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-                    double high = cursor.getDouble(INDEX_MAX_TEMP);
-                    double low = cursor.getDouble(INDEX_MIN_TEMP);
-                    String desc = cursor.getString(INDEX_SHORT_DESC);
-
-                    int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
-                    Resources resources = context.getResources();
-                    int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-                    String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
-
-                    // On Honeycomb and higher devices, we can retrieve the size of the large icon
-                    // Prior to that, we use a fixed size
-                    @SuppressLint("InlinedApi")
-                    int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-                    @SuppressLint("InlinedApi")
-                    int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-
-                    // Retrieve the large icon
-                    Bitmap largeIcon;
-                    try {
-                        largeIcon = Glide.with(context)
-                                .load(artUrl)
-                                .asBitmap()
-                                .error(artResourceId)
-                                .fitCenter()
-                                .into(largeIconWidth, largeIconHeight).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
-                        largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
-                    }
-                    String title = context.getString(R.string.app_name);
-
-                    // Define the text of the forecast.
-                    String contentText = String.format(context.getString(R.string.format_notification),
-                            desc,
-                            Utility.formatTemperature(context, high),
-                            Utility.formatTemperature(context, low));
-
-                    // NotificationCompatBuilder is a very convenient way to build backward-compatible
-                    // notifications.  Just throw in some data.
-                    NotificationCompat.Builder mBuilder =
-                            new NotificationCompat.Builder(getContext())
-                                    .setColor(resources.getColor(R.color.primary_light))
-                                    .setSmallIcon(iconId)
-                                    .setLargeIcon(largeIcon)
-                                    .setContentTitle(title)
-                                    .setContentText(contentText);
-
-                    // Make something interesting happen when the user clicks on the notification.
-                    // In this case, opening the app is sufficient.
-                    Intent resultIntent = new Intent(context, MainActivity.class);
-
-                    // The stack builder object will contain an artificial back stack for the
-                    // started Activity.
-                    // This ensures that navigating backward from the Activity leads out of
-                    // your application to the Home screen.
-                    TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
-                    stackBuilder.addNextIntent(resultIntent);
-                    PendingIntent resultPendingIntent =
-                            stackBuilder.getPendingIntent(
-                                    0,
-                                    PendingIntent.FLAG_UPDATE_CURRENT
-                            );
-                    mBuilder.setContentIntent(resultPendingIntent);
-
-                    NotificationManager mNotificationManager =
-                            (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
-                    // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
-                    mNotificationManager.notify(WEATHER_NOTIFICATION_ID, mBuilder.build());
-
-                    //refreshing last sync
-                    SharedPreferences.Editor editor = prefs.edit();
-                    editor.putLong(lastNotificationKey, System.currentTimeMillis());
-                    editor.commit();
-                }
-                cursor.close();
+    /**
+     * Returns the process-wide forecast aggregator.  It is shared between syncs so that the
+     * fetchers' latency histograms, which drive the hedge delay, and the per-source stats keep
+     * improving for as long as the process lives.
+     */
+    static synchronized ForecastAggregator getForecastAggregator(Context context) {
+        if (sForecastAggregator == null) {
+            boolean hedge = context.getResources().getBoolean(R.bool.sync_hedge_requests);
+            List<ForecastSource> sources = new ArrayList<ForecastSource>(2);
+            sOwmSource = new OwmForecastSource(new ForecastFetcher(sOwmQuota, hedge));
+            sources.add(sOwmSource);
+
+            String secondaryUrl = context.getString(R.string.secondary_forecast_url);
+            if (secondaryUrl.length() > 0) {
+                sources.add(new JsonForecastSource(SECONDARY_SOURCE_NAME, secondaryUrl,
+                        new ForecastFetcher(sSecondaryQuota, hedge)));
             }
+            sForecastAggregator = new ForecastAggregator(sources);
         }
+        return sForecastAggregator;
     }
 
     /**
-     * Helper method to handle insertion of a new location in the weather database.
-     *
-     * @param locationSetting The location string used to request updates from the server.
-     * @param cityName A human-readable city name, e.g "Mountain View"
-     * @param lat the latitude of the city
-     * @param lon the longitude of the city
-     * @return the row ID of the added location.
+     * Returns the process-wide dispatcher for everything that shows the forecast outside the app.
+     * Like the aggregator it is shared between syncs, so its threads and stats outlive a sync.
      */
-    long addLocation(String locationSetting, String cityName, double lat, double lon) {
-        long locationId;
-
-        // First, check if the location with this city name exists in the db
-        Cursor locationCursor = getContext().getContentResolver().query(
-                WeatherContract.LocationEntry.CONTENT_URI,
-                new String[]{WeatherContract.LocationEntry._ID},
-                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
-                new String[]{locationSetting},
-                null);
-
-        if (locationCursor.moveToFirst()) {
-            int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
-            locationId = locationCursor.getLong(locationIdIndex);
-        } else {
-            // Now that the content provider is set up, inserting rows of data is pretty simple.
-            // First create a ContentValues object to hold the data you want to insert.
-            ContentValues locationValues = new ContentValues();
-
-            // Then add the data, along with the corresponding name of the data type,
-            // so the content provider knows what kind of value is being inserted.
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
-
-            // Finally, insert location data into the database.
-            Uri insertedUri = getContext().getContentResolver().insert(
-                    WeatherContract.LocationEntry.CONTENT_URI,
-                    locationValues
-            );
-
-            // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
-            locationId = ContentUris.parseId(insertedUri);
+    static synchronized PostSyncDispatcher getPostSyncDispatcher(Context context) {
+        if (sPostSyncDispatcher == null) {
+            List<PostSyncConsumer> consumers = new ArrayList<PostSyncConsumer>(4);
+            consumers.add(new WidgetUpdater());
+            consumers.add(new MuzeiUpdater());
+            consumers.add(new WeatherNotifier());
+            consumers.add(new WearForecastPublisher());
+            sPostSyncDispatcher = new PostSyncDispatcher(context, consumers);
         }
+        return sPostSyncDispatcher;
+    }
 
-        locationCursor.close();
-        // Wait, that worked?  Yes!
-        return locationId;
+    /**
+     * Returns the dispatcher used by horizon extensions, which only have news for the widgets.
+     */
+    static synchronized PostSyncDispatcher getWidgetDispatcher(Context context) {
+        if (sWidgetDispatcher == null) {
+            List<PostSyncConsumer> consumers = new ArrayList<PostSyncConsumer>(1);
+            consumers.add(new WidgetUpdater());
+            sWidgetDispatcher = new PostSyncDispatcher(context, consumers);
+        }
+        return sWidgetDispatcher;
     }
 
     /**
@@ -606,6 +285,58 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
                 context.getString(R.string.content_authority), bundle);
     }
 
+    /**
+     * Stores a forecast delta pushed through GCM and updates everything that shows the forecast,
+     * without fetching anything.  Falls back to a sync if the delta can't be applied.  Must not
+     * run on the main thread.
+     *
+     * @param payload the delta, as described in {@link ForecastDeltaApplier}
+     */
+    public static void applyPushedForecast(Context context, String payload) {
+        ForecastDeltaApplier applier = new ForecastDeltaApplier(context);
+        switch (applier.apply(payload)) {
+            case ForecastDeltaApplier.OUTCOME_APPLIED:
+                setLocationStatus(context, LOCATION_STATUS_OK);
+                getPostSyncDispatcher(context).dispatch(applier.getSnapshot());
+                break;
+            case ForecastDeltaApplier.OUTCOME_NEEDS_SYNC:
+                syncImmediately(context);
+                break;
+            case ForecastDeltaApplier.OUTCOME_IGNORED:
+            case ForecastDeltaApplier.OUTCOME_STALE:
+                break;
+        }
+    }
+
+    /**
+     * Asks for a background sync of the full forecast horizon, for views that are about to run
+     * out of days.  Cheap enough to call from scroll callbacks: it does nothing if the view
+     * already has the full horizon, or if an extension was requested recently.
+     *
+     * @param context The context used to access the account service
+     * @param daysAvailable how many days, starting today, the caller already has
+     */
+    public static void extendHorizon(Context context, int daysAvailable) {
+        int maxHorizon = context.getResources().getInteger(R.integer.sync_max_horizon_days);
+        if (daysAvailable >= maxHorizon) {
+            return;
+        }
+        synchronized (SunshineSyncAdapter.class) {
+            long now = SystemClock.elapsedRealtime();
+            if (sLastHorizonExtensionMillis != 0
+                    && now - sLastHorizonExtensionMillis < HORIZON_EXTENSION_DEBOUNCE_MILLIS) {
+                return;
+            }
+            sLastHorizonExtensionMillis = now;
+        }
+        Bundle bundle = new Bundle();
+        // Manual so it runs now, but not expedited: nobody is waiting on a spinner for it.
+        bundle.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
+        bundle.putInt(EXTRA_HORIZON_DAYS, maxHorizon);
+        ContentResolver.requestSync(getSyncAccount(context),
+                context.getString(R.string.content_authority), bundle);
+    }
+
     /**
      * Helper method to get the fake account to be used with SyncAdapter, or make a new one
      * if the fake account doesn't exist yet.  If we make a new account, we call the
@@ -677,35 +408,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter implements
         SharedPreferences.Editor spe = sp.edit();
         spe.putInt(c.getString(R.string.pref_location_status_key), locationStatus);
         spe.commit();
+        PreferencesSnapshot.refresh(c);
     }
-
-    @Override
-    public void onConnected(Bundle bundle) {
-        PutDataMapRequest dataMap = PutDataMapRequest.create("/forcast");
-        dataMap.getDataMap().putDouble(SharedUtility.HIGH_TEMP_KEY, mTopTemp); // send the current temperature to wearable for display
-        dataMap.getDataMap().putDouble(SharedUtility.LOW_TEMP_KEY,mLowTemp);
-
-        PutDataRequest request = dataMap.asPutDataRequest();
-        Wearable.DataApi.putDataItem(mGoogleApiClient,request)
-                .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                    @Override
-                    public void onResult(DataApi.DataItemResult dataItemResult) {
-                        if (dataItemResult.getStatus().isSuccess()) {
-                            //putting data to watch was successful
-                        } else if (!dataItemResult.getStatus().isSuccess()) {
-                            //putting data to watch item failed
-                        }
-                    }
-                });
-    }
-
-    @Override
-    public void onConnectionSuspended(int i) {
-
-    }
-
-    @Override
-    public void onConnectionFailed(ConnectionResult connectionResult) {
-        String result = connectionResult.getErrorMessage();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.TrafficStats;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.SyncLogEntry;
+
+/**
+ * Records the network a sync ran on and how many bytes it moved into the sync_log table.
+ *
+ * Bytes are counted with TrafficStats for our uid, so anything else the app downloads while a sync
+ * runs (Glide loading art for the list, say) is counted too.  That overestimates the sync a little,
+ * but it is what the radio actually carried.
+ */
+public class SyncTrafficLog {
+    private static final String LOG_TAG = SyncTrafficLog.class.getSimpleName();
+
+    // Rows older than this are pruned whenever a new row is written
+    private static final long RETENTION_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private final Context mContext;
+    private final long mStartedMillis;
+    private final long mStartedElapsed;
+    private final long mStartRxBytes;
+    private final long mStartTxBytes;
+    private final String mNetworkType;
+    private final boolean mMetered;
+    private final boolean mRoaming;
+
+    private String mMode = SyncLogEntry.MODE_FULL;
+    private int mDays;
+
+    private SyncTrafficLog(Context context) {
+        mContext = context;
+        mStartedMillis = System.currentTimeMillis();
+        mStartedElapsed = SystemClock.elapsedRealtime();
+        mStartRxBytes = TrafficStats.getUidRxBytes(Process.myUid());
+        mStartTxBytes = TrafficStats.getUidTxBytes(Process.myUid());
+
+        ConnectivityManager cm =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        mNetworkType = activeNetwork == null ? "NONE" : activeNetwork.getTypeName();
+        mRoaming = activeNetwork != null && activeNetwork.isRoaming();
+        // Roaming is always treated as metered, whatever the network says about itself.
+        mMetered = cm.isActiveNetworkMetered() || mRoaming;
+    }
+
+    /**
+     * Snapshots the network and the byte counters at the start of a sync.
+     */
+    public static SyncTrafficLog begin(Context context) {
+        return new SyncTrafficLog(context);
+    }
+
+    public boolean isMetered() {
+        return mMetered;
+    }
+
+    /**
+     * @param mode one of the SyncLogEntry MODE_ values
+     * @param days the number of days of forecast requested
+     */
+    public void setMode(String mode, int days) {
+        mMode = mode;
+        mDays = days;
+    }
+
+    /**
+     * Writes the row for this sync.  Must be called from the sync thread, once.
+     */
+    public void end() {
+        ContentValues values = new ContentValues();
+        values.put(SyncLogEntry.COLUMN_STARTED, mStartedMillis);
+        values.put(SyncLogEntry.COLUMN_DURATION, SystemClock.elapsedRealtime() - mStartedElapsed);
+        values.put(SyncLogEntry.COLUMN_NETWORK_TYPE, mNetworkType);
+        values.put(SyncLogEntry.COLUMN_METERED, mMetered ? 1 : 0);
+        values.put(SyncLogEntry.COLUMN_ROAMING, mRoaming ? 1 : 0);
+        values.put(SyncLogEntry.COLUMN_MODE, mMode);
+        values.put(SyncLogEntry.COLUMN_DAYS, mDays);
+        values.put(SyncLogEntry.COLUMN_RX_BYTES,
+                delta(mStartRxBytes, TrafficStats.getUidRxBytes(Process.myUid())));
+        values.put(SyncLogEntry.COLUMN_TX_BYTES,
+                delta(mStartTxBytes, TrafficStats.getUidTxBytes(Process.myUid())));
+        Log.d(LOG_TAG, "Sync used " + values);
+
+        mContext.getContentResolver().insert(SyncLogEntry.CONTENT_URI, values);
+        mContext.getContentResolver().delete(SyncLogEntry.CONTENT_URI,
+                SyncLogEntry.COLUMN_STARTED + " < ?",
+                new String[] {Long.toString(mStartedMillis - RETENTION_MILLIS)});
+    }
+
+    private static long delta(long start, long end) {
+        // Devices without per-uid accounting report UNSUPPORTED for both
+        if (start == TrafficStats.UNSUPPORTED || end == TrafficStats.UNSUPPORTED) {
+            return 0;
+        }
+        return Math.max(0, end - start);
+    }
+}
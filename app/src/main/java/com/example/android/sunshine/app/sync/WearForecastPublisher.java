@@ -0,0 +1,94 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.sharedassets.SharedUtility;
+import com.example.sharedassets.WearForecast;
+import com.example.sharedassets.WearForecastCodec;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the next few days for the preferred location to the watch face through the Wearable Data
+ * Layer, so the watch never fetches weather itself.  The days go encoded by
+ * {@link WearForecastCodec}, with today's high and low alongside for older watch faces.
+ */
+public class WearForecastPublisher implements PostSyncConsumer {
+    private static final String LOG_TAG = WearForecastPublisher.class.getSimpleName();
+
+    private static final long DEADLINE_MILLIS = 10 * 1000;
+    // Connecting and sending share the deadline, leaving a little slack for the rest.
+    private static final long CONNECT_TIMEOUT_MILLIS = 5 * 1000;
+    private static final long PUT_TIMEOUT_MILLIS = 4 * 1000;
+
+    @Override
+    public String getName() {
+        return "wear";
+    }
+
+    @Override
+    public long getDeadlineMillis() {
+        return DEADLINE_MILLIS;
+    }
+
+    @Override
+    public void onForecastUpdated(Context context, ForecastSnapshot snapshot) throws IOException {
+        PreferencesSnapshot prefs = PreferencesSnapshot.get(context);
+        if (snapshot.today == null || !snapshot.locationSetting.equals(prefs.location)) {
+            // The watch only shows the preferred location
+            return;
+        }
+        byte[] forecast = WearForecastCodec.encode(toWearForecast(snapshot, prefs.metric));
+        GoogleApiClient client = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .build();
+        ConnectionResult connectionResult =
+                client.blockingConnect(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (!connectionResult.isSuccess()) {
+            throw new IOException("Couldn't connect to the Wearable API: "
+                    + connectionResult.getErrorMessage());
+        }
+        try {
+            PutDataMapRequest dataMap = PutDataMapRequest.create(SharedUtility.FORECAST_PATH);
+            dataMap.getDataMap().putDouble(SharedUtility.HIGH_TEMP_KEY, snapshot.today.high);
+            dataMap.getDataMap().putDouble(SharedUtility.LOW_TEMP_KEY, snapshot.today.low);
+            dataMap.getDataMap().putByteArray(SharedUtility.FORECAST_KEY, forecast);
+
+            DataApi.DataItemResult result = Wearable.DataApi
+                    .putDataItem(client, dataMap.asPutDataRequest())
+                    .await(PUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (!result.getStatus().isSuccess()) {
+                throw new IOException("Putting the forecast to the watch failed: "
+                        + result.getStatus());
+            }
+            Log.d(LOG_TAG, "Sent the forecast to the watch in " + forecast.length + " bytes");
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    /**
+     * @return the days from today on, as many as the watch takes
+     */
+    static WearForecast toWearForecast(ForecastSnapshot snapshot, boolean metric) {
+        List<WearForecast.Day> days = new ArrayList<WearForecast.Day>(WearForecastCodec.MAX_DAYS);
+        for (ForecastDay day : snapshot.days) {
+            if (day.julianDay >= snapshot.today.julianDay
+                    && days.size() < WearForecastCodec.MAX_DAYS) {
+                days.add(new WearForecast.Day(day.julianDay, day.weatherId, day.high, day.low));
+            }
+        }
+        return new WearForecast(snapshot.locationSetting, metric,
+                days.toArray(new WearForecast.Day[days.size()]));
+    }
+}
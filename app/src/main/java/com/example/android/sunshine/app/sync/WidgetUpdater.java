@@ -0,0 +1,28 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+
+import com.example.android.sunshine.app.widget.WidgetRefreshScheduler;
+
+/**
+ * Tells the widgets that new data is available, through the {@link WidgetRefreshScheduler} so
+ * bursts of syncs redraw them once.
+ */
+public class WidgetUpdater implements PostSyncConsumer {
+    private static final long DEADLINE_MILLIS = 2 * 1000;
+
+    @Override
+    public String getName() {
+        return "widgets";
+    }
+
+    @Override
+    public long getDeadlineMillis() {
+        return DEADLINE_MILLIS;
+    }
+
+    @Override
+    public void onForecastUpdated(Context context, ForecastSnapshot snapshot) {
+        WidgetRefreshScheduler.getInstance(context).onForecastUpdated(snapshot);
+    }
+}
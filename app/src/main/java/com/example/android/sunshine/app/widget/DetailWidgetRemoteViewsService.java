@@ -1,31 +1,32 @@
 package com.example.android.sunshine.app.widget;
 
 import android.annotation.TargetApi;
+import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Binder;
 import android.os.Build;
-import android.util.Log;
 import android.widget.AdapterView;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.Target;
+import com.example.android.sunshine.app.PreferencesSnapshot;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.ScaledArtCache;
 import com.example.android.sunshine.app.data.WeatherContract;
-
-import java.util.concurrent.ExecutionException;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 
 /**
- * RemoteViewsService controlling the data being shown in the scrollable weather detail widget
+ * RemoteViewsService controlling the data being shown in the scrollable weather detail widget.
+ *
+ * Art from a downloaded pack is scaled to the icon's size when the data set changes, so each row
+ * carries a small bitmap to the launcher instead of the full size art.
  */
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 public class DetailWidgetRemoteViewsService extends RemoteViewsService {
-    public final String LOG_TAG = DetailWidgetRemoteViewsService.class.getSimpleName();
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
             WeatherContract.WeatherEntry.COLUMN_DATE,
@@ -42,134 +43,165 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
     static final int INDEX_WEATHER_MAX_TEMP = 4;
     static final int INDEX_WEATHER_MIN_TEMP = 5;
 
+    // Enough for the icons of one art pack at xxxhdpi
+    private static final int ICON_CACHE_BYTES = 1024 * 1024;
+    private static ScaledArtCache sIconCache;
+
+    /**
+     * @return the art of the selected pack, scaled to the size the list shows it at
+     */
+    static synchronized ScaledArtCache getIconCache(Context context) {
+        if (sIconCache == null) {
+            int size = context.getResources().getDimensionPixelSize(R.dimen.list_icon);
+            sIconCache = new ScaledArtCache(context, "widget_icons", size, size,
+                    ICON_CACHE_BYTES);
+        }
+        return sIconCache;
+    }
+
     @Override
     public RemoteViewsFactory onGetViewFactory(Intent intent) {
-        return new RemoteViewsFactory() {
-            private Cursor data = null;
+        return new DetailWidgetViewsFactory(this);
+    }
 
-            @Override
-            public void onCreate() {
-                // Nothing to do
-            }
+    static class DetailWidgetViewsFactory implements RemoteViewsFactory {
+        private final Context mContext;
+        private Cursor data = null;
 
-            @Override
-            public void onDataSetChanged() {
-                if (data != null) {
-                    data.close();
-                }
-                // This method is called by the app hosting the widget (e.g., the launcher)
-                // However, our ContentProvider is not exported so it doesn't have access to the
-                // data. Therefore we need to clear (and finally restore) the calling identity so
-                // that calls use our process and permission
-                final long identityToken = Binder.clearCallingIdentity();
-                String location = Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
-                Uri weatherForLocationUri = WeatherContract.WeatherEntry
-                        .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
-                data = getContentResolver().query(weatherForLocationUri,
-                        FORECAST_COLUMNS,
-                        null,
-                        null,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-                Binder.restoreCallingIdentity(identityToken);
-            }
+        DetailWidgetViewsFactory(Context context) {
+            mContext = context;
+        }
 
-            @Override
-            public void onDestroy() {
-                if (data != null) {
-                    data.close();
-                    data = null;
-                }
-            }
+        @Override
+        public void onCreate() {
+            // Nothing to do
+        }
 
-            @Override
-            public int getCount() {
-                return data == null ? 0 : data.getCount();
+        @Override
+        public void onDataSetChanged() {
+            if (data != null) {
+                data.close();
             }
-
-            @Override
-            public RemoteViews getViewAt(int position) {
-                if (position == AdapterView.INVALID_POSITION ||
-                        data == null || !data.moveToPosition(position)) {
-                    return null;
-                }
-                RemoteViews views = new RemoteViews(getPackageName(),
-                        R.layout.widget_detail_list_item);
-                int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
-                int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
-                Bitmap weatherArtImage = null;
-                if ( !Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this) ) {
-                    String weatherArtResourceUrl = Utility.getArtUrlForWeatherCondition(
-                            DetailWidgetRemoteViewsService.this, weatherId);
-                    try {
-                        weatherArtImage = Glide.with(DetailWidgetRemoteViewsService.this)
-                                .load(weatherArtResourceUrl)
-                                .asBitmap()
-                                .error(weatherArtResourceId)
-                                .into(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + weatherArtResourceUrl, e);
-                    }
-                }
-                String description = data.getString(INDEX_WEATHER_DESC);
-                long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
-                String formattedDate = Utility.getFriendlyDayString(
-                        DetailWidgetRemoteViewsService.this, dateInMillis, false);
-                double maxTemp = data.getDouble(INDEX_WEATHER_MAX_TEMP);
-                double minTemp = data.getDouble(INDEX_WEATHER_MIN_TEMP);
-                String formattedMaxTemperature =
-                        Utility.formatTemperature(DetailWidgetRemoteViewsService.this, maxTemp);
-                String formattedMinTemperature =
-                        Utility.formatTemperature(DetailWidgetRemoteViewsService.this, minTemp);
-                if (weatherArtImage != null) {
-                    views.setImageViewBitmap(R.id.widget_icon, weatherArtImage);
-                } else {
-                    views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
-                }
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-                    setRemoteContentDescription(views, description);
-                }
-                views.setTextViewText(R.id.widget_date, formattedDate);
-                views.setTextViewText(R.id.widget_description, description);
-                views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
-                views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
-
-                final Intent fillInIntent = new Intent();
-                String locationSetting =
-                        Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
-                        locationSetting,
-                        dateInMillis);
-                fillInIntent.setData(weatherUri);
-                views.setOnClickFillInIntent(R.id.widget_list_item, fillInIntent);
-                return views;
+            // This method is called by the app hosting the widget (e.g., the launcher)
+            // However, our ContentProvider is not exported so it doesn't have access to the
+            // data. Therefore we need to clear (and finally restore) the calling identity so
+            // that calls use our process and permission
+            final long identityToken = Binder.clearCallingIdentity();
+            PreferencesSnapshot prefs = PreferencesSnapshot.get(mContext);
+            Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                    .buildWeatherLocationWithStartDate(prefs.location, System.currentTimeMillis());
+            data = mContext.getContentResolver().query(weatherForLocationUri,
+                    FORECAST_COLUMNS,
+                    null,
+                    null,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+
+            // The widget scrolls through every day we have, so ask for the full horizon if
+            // routine syncs have only fetched the next few days.  This too has to run with
+            // our own identity.
+            if (data != null) {
+                SunshineSyncAdapter.extendHorizon(mContext, data.getCount());
             }
 
-            @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
-            private void setRemoteContentDescription(RemoteViews views, String description) {
-                views.setContentDescription(R.id.widget_icon, description);
+            // Scale the art here, every condition at once, so getViewAt only has to read it
+            // back.  The bundled art is set by resource and needs none.
+            if (!prefs.localGraphics) {
+                getIconCache(mContext).fill(prefs.artPack, false);
             }
-
-            @Override
-            public RemoteViews getLoadingView() {
-                return new RemoteViews(getPackageName(), R.layout.widget_detail_list_item);
+            Binder.restoreCallingIdentity(identityToken);
+        }
+
+        @Override
+        public void onDestroy() {
+            if (data != null) {
+                data.close();
+                data = null;
             }
-
-            @Override
-            public int getViewTypeCount() {
-                return 1;
+        }
+
+        @Override
+        public int getCount() {
+            return data == null ? 0 : data.getCount();
+        }
+
+        @Override
+        public RemoteViews getViewAt(int position) {
+            if (position == AdapterView.INVALID_POSITION ||
+                    data == null || !data.moveToPosition(position)) {
+                return null;
             }
-
-            @Override
-            public long getItemId(int position) {
-                if (data.moveToPosition(position))
-                    return data.getLong(INDEX_WEATHER_ID);
-                return position;
+            return buildViews(data.getLong(INDEX_WEATHER_DATE),
+                    data.getInt(INDEX_WEATHER_CONDITION_ID), data.getString(INDEX_WEATHER_DESC),
+                    data.getDouble(INDEX_WEATHER_MAX_TEMP), data.getDouble(INDEX_WEATHER_MIN_TEMP));
+        }
+
+        RemoteViews buildViews(long dateInMillis, int weatherId, String description,
+                               double maxTemp, double minTemp) {
+            RemoteViews views = new RemoteViews(mContext.getPackageName(),
+                    R.layout.widget_detail_list_item);
+            PreferencesSnapshot prefs = PreferencesSnapshot.get(mContext);
+            int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
+            Bitmap weatherArtImage = null;
+            if ( !prefs.localGraphics ) {
+                String artName = Utility.getArtNameForWeatherCondition(weatherId);
+                if (artName != null) {
+                    // Null if the art couldn't be fetched, in which case the bundled icon shows
+                    weatherArtImage = getIconCache(mContext).get(prefs.artPack, artName);
+                }
             }
-
-            @Override
-            public boolean hasStableIds() {
-                return true;
+            String formattedDate = Utility.getFriendlyDayString(mContext, dateInMillis, false);
+            String formattedMaxTemperature = Utility.formatTemperature(mContext, maxTemp,
+                    prefs.metric);
+            String formattedMinTemperature = Utility.formatTemperature(mContext, minTemp,
+                    prefs.metric);
+            if (weatherArtImage != null) {
+                views.setImageViewBitmap(R.id.widget_icon, weatherArtImage);
+            } else {
+                views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+                setRemoteContentDescription(views, description);
             }
-        };
+            views.setTextViewText(R.id.widget_date, formattedDate);
+            views.setTextViewText(R.id.widget_description, description);
+            views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
+            views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+
+            final Intent fillInIntent = new Intent();
+            String locationSetting = prefs.location;
+            Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                    locationSetting,
+                    dateInMillis);
+            fillInIntent.setData(weatherUri);
+            views.setOnClickFillInIntent(R.id.widget_list_item, fillInIntent);
+            return views;
+        }
+
+        @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
+        private void setRemoteContentDescription(RemoteViews views, String description) {
+            views.setContentDescription(R.id.widget_icon, description);
+        }
+
+        @Override
+        public RemoteViews getLoadingView() {
+            return new RemoteViews(mContext.getPackageName(), R.layout.widget_detail_list_item);
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return 1;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            if (data.moveToPosition(position))
+                return data.getLong(INDEX_WEATHER_ID);
+            return position;
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
     }
 }
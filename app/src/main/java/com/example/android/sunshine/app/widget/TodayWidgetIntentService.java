@@ -26,6 +26,8 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.widget.RemoteViews;
 
@@ -35,9 +37,19 @@ import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
 
 /**
- * IntentService which handles updating all Today widgets with the latest data
+ * IntentService which handles updating all Today widgets with the latest data.
+ *
+ * Widgets whose layout and values are the same as what was last pushed to them are skipped, see
+ * {@link TodayWidgetRenderCache}.
  */
 public class TodayWidgetIntentService extends IntentService {
+    private static final String LOG_TAG = TodayWidgetIntentService.class.getSimpleName();
+
+    // Set when the system asked for the update, so every widget is pushed even if its views
+    // haven't changed
+    public static final String EXTRA_FORCE_UPDATE =
+            "com.example.android.sunshine.app.widget.extra.FORCE_UPDATE";
+
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
@@ -85,40 +97,82 @@ public class TodayWidgetIntentService extends IntentService {
         String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
         data.close();
 
+        boolean force = intent != null && intent.getBooleanExtra(EXTRA_FORCE_UPDATE, false);
+        if (force) {
+            TodayWidgetRenderCache.forget(appWidgetIds);
+        }
+
+        // Widgets the same size show the same views, so they are built once per layout
+        SparseArray<RemoteViews> viewsByLayout = new SparseArray<RemoteViews>(3);
+        int rendered = 0;
+        int reused = 0;
+        int skipped = 0;
         // Perform this loop procedure for each Today widget
         for (int appWidgetId : appWidgetIds) {
-            // Find the correct layout based on the widget's width
-            int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId);
-            int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
-            int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
-            int layoutId;
-            if (widgetWidth >= largeWidth) {
-                layoutId = R.layout.widget_today_large;
-            } else if (widgetWidth >= defaultWidth) {
-                layoutId = R.layout.widget_today;
-            } else {
-                layoutId = R.layout.widget_today_small;
+            int layoutId = getLayoutId(appWidgetManager, appWidgetId);
+            TodayWidgetRenderCache.Rendered shown = new TodayWidgetRenderCache.Rendered(layoutId,
+                    weatherArtResourceId, description, formattedMaxTemperature,
+                    formattedMinTemperature);
+            if (TodayWidgetRenderCache.isPushed(appWidgetId, shown)) {
+                // The widget already shows exactly this
+                skipped++;
+                continue;
             }
-            RemoteViews views = new RemoteViews(getPackageName(), layoutId);
 
-            // Add the data to the RemoteViews
-            views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
-            // Content Descriptions for RemoteViews were only added in ICS MR1
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-                setRemoteContentDescription(views, description);
+            RemoteViews views = viewsByLayout.get(layoutId);
+            if (views == null) {
+                views = buildViews(layoutId, weatherArtResourceId, description,
+                        formattedMaxTemperature, formattedMinTemperature);
+                viewsByLayout.put(layoutId, views);
+                rendered++;
+            } else {
+                reused++;
             }
-            views.setTextViewText(R.id.widget_description, description);
-            views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
-            views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
-
-            // Create an Intent to launch MainActivity
-            Intent launchIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
-            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
 
             // Tell the AppWidgetManager to perform an update on the current app widget
             appWidgetManager.updateAppWidget(appWidgetId, views);
+            TodayWidgetRenderCache.setPushed(appWidgetId, shown);
         }
+        Log.d(LOG_TAG, appWidgetIds.length + " widgets: " + rendered + " rendered, " + reused
+                + " reused, " + skipped + " skipped");
+    }
+
+    /**
+     * Finds the correct layout based on the widget's width.
+     */
+    private int getLayoutId(AppWidgetManager appWidgetManager, int appWidgetId) {
+        int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId);
+        int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+        int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
+        if (widgetWidth >= largeWidth) {
+            return R.layout.widget_today_large;
+        } else if (widgetWidth >= defaultWidth) {
+            return R.layout.widget_today;
+        } else {
+            return R.layout.widget_today_small;
+        }
+    }
+
+    private RemoteViews buildViews(int layoutId, int weatherArtResourceId, String description,
+                                   String formattedMaxTemperature,
+                                   String formattedMinTemperature) {
+        RemoteViews views = new RemoteViews(getPackageName(), layoutId);
+
+        // Add the data to the RemoteViews
+        views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+        // Content Descriptions for RemoteViews were only added in ICS MR1
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+            setRemoteContentDescription(views, description);
+        }
+        views.setTextViewText(R.id.widget_description, description);
+        views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
+        views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+
+        // Create an Intent to launch MainActivity
+        Intent launchIntent = new Intent(this, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
+        views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+        return views;
     }
 
     private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId) {
@@ -0,0 +1,85 @@
+package com.example.android.sunshine.app.widget;
+
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+/**
+ * Remembers what was last pushed to each Today widget, the layout and the values shown in it, so
+ * a broadcast that changes neither doesn't send the widget host the same views again.  The values
+ * are a few short strings, so they are kept as they are and compared in full; a hash alone could
+ * match a new forecast and leave the widget stale.
+ *
+ * Only kept in memory.  After the process is restarted every widget is pushed once more, and the
+ * system's own update requests push regardless, since the host may have lost the views.
+ */
+class TodayWidgetRenderCache {
+    // Widget id to what was last pushed to it
+    private static final SparseArray<Rendered> sPushed = new SparseArray<Rendered>();
+
+    /**
+     * What a Today widget shows.
+     */
+    static class Rendered {
+        final int layoutId;
+        final int artResourceId;
+        final String description;
+        final String high;
+        final String low;
+
+        Rendered(int layoutId, int artResourceId, String description, String high, String low) {
+            this.layoutId = layoutId;
+            this.artResourceId = artResourceId;
+            this.description = description;
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Rendered)) {
+                return false;
+            }
+            Rendered other = (Rendered) o;
+            return layoutId == other.layoutId && artResourceId == other.artResourceId
+                    && TextUtils.equals(description, other.description)
+                    && TextUtils.equals(high, other.high) && TextUtils.equals(low, other.low);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = layoutId;
+            hash = 31 * hash + artResourceId;
+            hash = 31 * hash + (description == null ? 0 : description.hashCode());
+            hash = 31 * hash + (high == null ? 0 : high.hashCode());
+            hash = 31 * hash + (low == null ? 0 : low.hashCode());
+            return hash;
+        }
+    }
+
+    /**
+     * @return true if the widget was last pushed exactly this
+     */
+    static synchronized boolean isPushed(int appWidgetId, Rendered rendered) {
+        return rendered.equals(sPushed.get(appWidgetId));
+    }
+
+    static synchronized void setPushed(int appWidgetId, Rendered rendered) {
+        sPushed.put(appWidgetId, rendered);
+    }
+
+    /**
+     * Forgets the given widgets, so they are pushed on the next update.
+     */
+    static synchronized void forget(int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            sPushed.delete(appWidgetId);
+        }
+    }
+
+    static synchronized void clear() {
+        sPushed.clear();
+    }
+}
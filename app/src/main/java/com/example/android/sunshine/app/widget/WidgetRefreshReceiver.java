@@ -0,0 +1,16 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Receives the alarm {@link WidgetRefreshScheduler} sets while a refresh is waiting, so a refresh
+ * isn't lost when the process waiting for it dies.
+ */
+public class WidgetRefreshReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        WidgetRefreshScheduler.getInstance(context).onRefreshAlarm();
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.android.sunshine.app.widget;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.text.TextUtils;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.PreferencesSnapshot;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.sync.ForecastDay;
+import com.example.android.sunshine.app.sync.ForecastSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Decides when the Today and detail widgets redraw after a sync.
+ *
+ * Syncs tend to come in bursts, a location change followed by a push for instance, so a refresh
+ * waits {@code R.integer.widget_refresh_debounce_millis} and every sync landing meanwhile joins
+ * it.  A sync for a location other than the preferred one, which the widgets don't show, or one
+ * that stored what the widgets already show, doesn't refresh them at all.  While the screen is
+ * off nobody can see the widgets, so the refresh waits for the screen to come back on.
+ *
+ * A refresh that is waiting only lives in memory, and the process is likely to be killed while
+ * the screen is off.  So while one waits, a flag in the shared preferences says so and a
+ * non-wakeup alarm repeats, which costs nothing while the device sleeps.  If the process died,
+ * the alarm starts a new one through {@link WidgetRefreshReceiver}, which runs the refresh for
+ * the preferred location.  Only used from the main thread, apart from {@link #onForecastUpdated}
+ * and the counters.
+ */
+public class WidgetRefreshScheduler {
+    private static final String LOG_TAG = WidgetRefreshScheduler.class.getSimpleName();
+
+    private static final String PREF_REFRESH_PENDING = "widget_refresh_pending";
+
+    private static WidgetRefreshScheduler sInstance;
+
+    private final Context mContext;
+    private final SharedPreferences mPrefs;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final long mDebounceMillis;
+    private final Runnable mRefresh = new Runnable() {
+        @Override
+        public void run() {
+            refreshWhenVisible();
+        }
+    };
+    private final BroadcastReceiver mScreenOnReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onScreenOn();
+        }
+    };
+
+    // Main thread only
+    private boolean mScheduled;
+    private boolean mWaitingForScreen;
+    private String mPendingLocation;
+    private Rendered mPending;
+    private Rendered mRendered;
+
+    // Guarded by this
+    private long mRequests;
+    private long mRenders;
+    private long mCoalesced;
+    private long mUnchanged;
+    private long mOtherLocation;
+    private long mDeferred;
+
+    public static synchronized WidgetRefreshScheduler getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new WidgetRefreshScheduler(appContext,
+                    PreferenceManager.getDefaultSharedPreferences(appContext),
+                    appContext.getResources().getInteger(R.integer.widget_refresh_debounce_millis));
+        }
+        return sInstance;
+    }
+
+    WidgetRefreshScheduler(Context context, SharedPreferences prefs, long debounceMillis) {
+        mContext = context;
+        mPrefs = prefs;
+        mDebounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedules a refresh for a freshly stored forecast.  May be called from any thread.
+     */
+    public void onForecastUpdated(ForecastSnapshot snapshot) {
+        final String location = snapshot.locationSetting;
+        final Rendered rendered = Rendered.of(mContext, snapshot);
+        synchronized (this) {
+            mRequests++;
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                schedule(location, rendered);
+            }
+        });
+    }
+
+    private void schedule(String location, Rendered rendered) {
+        if (mScheduled || mWaitingForScreen) {
+            // Joins the refresh already waiting, which then draws the latest forecast
+            synchronized (this) {
+                mCoalesced++;
+            }
+        }
+        mPendingLocation = location;
+        mPending = rendered;
+        if (!mScheduled && !mWaitingForScreen) {
+            mScheduled = true;
+            mHandler.postDelayed(mRefresh, mDebounceMillis);
+            setPendingPersisted(true);
+        }
+    }
+
+    /**
+     * Called by the alarm that stands in for a waiting refresh.  Runs the refresh if the process
+     * that was waiting for it has died.  Main thread only.
+     */
+    void onRefreshAlarm() {
+        if (mScheduled || mWaitingForScreen) {
+            // Still waiting in this process
+            return;
+        }
+        if (!isPendingPersisted()) {
+            // Left over from a refresh that has run since
+            setPendingPersisted(false);
+            return;
+        }
+        Log.d(LOG_TAG, "Recovering a widget refresh lost with its process");
+        // What the sync stored isn't known any more, so the widgets draw whatever is stored for
+        // the location they show
+        mPendingLocation = PreferencesSnapshot.get(mContext).location;
+        mPending = null;
+        refreshWhenVisible();
+    }
+
+    /**
+     * Called when the screen comes back on while a refresh waits for it.  Main thread only.
+     */
+    void onScreenOn() {
+        if (!mWaitingForScreen) {
+            return;
+        }
+        mContext.unregisterReceiver(mScreenOnReceiver);
+        mWaitingForScreen = false;
+        refresh();
+    }
+
+    private void refreshWhenVisible() {
+        mScheduled = false;
+        if (!isScreenOn()) {
+            synchronized (this) {
+                mDeferred++;
+            }
+            mWaitingForScreen = true;
+            mContext.registerReceiver(mScreenOnReceiver,
+                    new IntentFilter(Intent.ACTION_SCREEN_ON));
+            return;
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        // Whatever happens to it, the refresh is no longer waiting
+        setPendingPersisted(false);
+        if (!mPendingLocation.equals(PreferencesSnapshot.get(mContext).location)) {
+            // A sync that finished after the location changed; the widgets don't show it
+            synchronized (this) {
+                mOtherLocation++;
+            }
+            return;
+        }
+        if (mPending != null && mPending.equals(mRendered)) {
+            synchronized (this) {
+                mUnchanged++;
+            }
+            return;
+        }
+        // After a recovered refresh what the widgets show isn't known, so the next sync redraws
+        mRendered = mPending;
+        synchronized (this) {
+            mRenders++;
+        }
+
+        render();
+        Log.d(LOG_TAG, getStatsSummary());
+    }
+
+    /**
+     * Redraws the Today widgets and tells the detail widgets their list changed.
+     */
+    void render() {
+        mContext.startService(new Intent(mContext, TodayWidgetIntentService.class));
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(mContext);
+        int[] detailWidgetIds = appWidgetManager.getAppWidgetIds(
+                new ComponentName(mContext, DetailWidgetProvider.class));
+        if (detailWidgetIds.length > 0) {
+            appWidgetManager.notifyAppWidgetViewDataChanged(detailWidgetIds, R.id.widget_list);
+        }
+    }
+
+    boolean isScreenOn() {
+        PowerManager powerManager =
+                (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        return powerManager.isInteractive();
+    }
+
+    /**
+     * @return true if a refresh is waiting, as the next process would see it
+     */
+    boolean isPendingPersisted() {
+        return mPrefs.getBoolean(PREF_REFRESH_PENDING, false);
+    }
+
+    private void setPendingPersisted(boolean pending) {
+        mPrefs.edit().putBoolean(PREF_REFRESH_PENDING, pending).apply();
+        AlarmManager alarmManager = (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent alarmIntent = PendingIntent.getBroadcast(mContext, 0,
+                new Intent(mContext, WidgetRefreshReceiver.class), 0);
+        if (pending) {
+            // Not a wakeup alarm: while the device sleeps nobody sees the widgets anyway, and
+            // once it wakes the alarm is delivered
+            alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                    SystemClock.elapsedRealtime() + mDebounceMillis,
+                    AlarmManager.INTERVAL_FIFTEEN_MINUTES, alarmIntent);
+        } else {
+            alarmManager.cancel(alarmIntent);
+        }
+    }
+
+    /**
+     * What a forecast looks like in the widgets: its days, which day is today, and the settings
+     * it is formatted with.
+     */
+    static class Rendered {
+        final String location;
+        final int today;
+        final boolean metric;
+        final String artPack;
+        final int[] julianDays;
+        final int[] weatherIds;
+        final String[] descriptions;
+        final double[] highs;
+        final double[] lows;
+
+        private Rendered(String location, int today, boolean metric, String artPack, int days) {
+            this.location = location;
+            this.today = today;
+            this.metric = metric;
+            this.artPack = artPack;
+            julianDays = new int[days];
+            weatherIds = new int[days];
+            descriptions = new String[days];
+            highs = new double[days];
+            lows = new double[days];
+        }
+
+        static Rendered of(Context context, ForecastSnapshot snapshot) {
+            Time time = new Time();
+            time.setToNow();
+            PreferencesSnapshot prefs = PreferencesSnapshot.get(context);
+            Rendered rendered = new Rendered(snapshot.locationSetting,
+                    Time.getJulianDay(System.currentTimeMillis(), time.gmtoff), prefs.metric,
+                    prefs.artPack, snapshot.days.size());
+            for (int i = 0; i < snapshot.days.size(); i++) {
+                ForecastDay day = snapshot.days.get(i);
+                rendered.julianDays[i] = day.julianDay;
+                rendered.weatherIds[i] = day.weatherId;
+                rendered.descriptions[i] = day.description;
+                rendered.highs[i] = day.high;
+                rendered.lows[i] = day.low;
+            }
+            return rendered;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Rendered)) {
+                return false;
+            }
+            Rendered other = (Rendered) o;
+            return today == other.today && metric == other.metric
+                    && TextUtils.equals(location, other.location)
+                    && TextUtils.equals(artPack, other.artPack)
+                    && Arrays.equals(julianDays, other.julianDays)
+                    && Arrays.equals(weatherIds, other.weatherIds)
+                    && Arrays.equals(descriptions, other.descriptions)
+                    && Arrays.equals(highs, other.highs) && Arrays.equals(lows, other.lows);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = location == null ? 0 : location.hashCode();
+            hash = 31 * hash + today;
+            hash = 31 * hash + (metric ? 1 : 0);
+            hash = 31 * hash + (artPack == null ? 0 : artPack.hashCode());
+            hash = 31 * hash + Arrays.hashCode(julianDays);
+            hash = 31 * hash + Arrays.hashCode(weatherIds);
+            hash = 31 * hash + Arrays.hashCode(descriptions);
+            hash = 31 * hash + Arrays.hashCode(highs);
+            hash = 31 * hash + Arrays.hashCode(lows);
+            return hash;
+        }
+    }
+
+    /**
+     * @return how many refreshes ran
+     */
+    public synchronized long getRenders() {
+        return mRenders;
+    }
+
+    /**
+     * @return how many syncs didn't cause a refresh of their own: joined to another, unchanged,
+     * or for another location
+     */
+    public synchronized long getRendersAvoided() {
+        return mCoalesced + mUnchanged + mOtherLocation;
+    }
+
+    public synchronized String getStatsSummary() {
+        return "Widget refreshes: " + mRequests + " requested, " + mRenders + " rendered, "
+                + mCoalesced + " coalesced, " + mUnchanged + " unchanged, " + mOtherLocation
+                + " for another location, " + mDeferred + " deferred until the screen was on";
+    }
+}
@@ -5,6 +5,9 @@ package com.example.sharedassets;
  */
 public class SharedUtility {
     public static final String FORECAST_PATH = "/forcast";
+    // Today's high and low, for watch faces from before FORECAST_KEY
     public static final String HIGH_TEMP_KEY = "High Temp";
-    public static final String LOW_TEMP_KEY = "High Temp";
+    public static final String LOW_TEMP_KEY = "Low Temp";
+    // The forecast, as encoded by WearForecastCodec
+    public static final String FORECAST_KEY = "forecast";
 }
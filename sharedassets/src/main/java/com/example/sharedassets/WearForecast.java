@@ -0,0 +1,45 @@
+package com.example.sharedassets;
+
+/**
+ * The forecast the phone hands the watch: the next few days for the preferred location, as
+ * {@link WearForecastCodec} carries them.  Temperatures are in Celsius; {@link #metric} says how
+ * the user wants them shown.
+ */
+public class WearForecast {
+    public final String locationSetting;
+    public final boolean metric;
+    // Ordered by Julian day
+    public final Day[] days;
+
+    public WearForecast(String locationSetting, boolean metric, Day[] days) {
+        this.locationSetting = locationSetting;
+        this.metric = metric;
+        this.days = days;
+    }
+
+    /**
+     * @return the day with the given Julian day, or null if the forecast doesn't include it
+     */
+    public Day getDay(int julianDay) {
+        for (Day day : days) {
+            if (day.julianDay == julianDay) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    public static class Day {
+        public final int julianDay;
+        public final int weatherId;
+        public final double high;
+        public final double low;
+
+        public Day(int julianDay, int weatherId, double high, double low) {
+            this.julianDay = julianDay;
+            this.weatherId = weatherId;
+            this.high = high;
+            this.low = low;
+        }
+    }
+}
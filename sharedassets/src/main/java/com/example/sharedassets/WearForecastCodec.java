@@ -0,0 +1,79 @@
+package com.example.sharedassets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Packs a {@link WearForecast} into the few bytes the phone puts in the Data Layer under
+ * {@link SharedUtility#FORECAST_KEY}, and unpacks it on the watch.
+ *
+ * A version byte leads, then the location, the units flag and the days, ten bytes each.
+ * Temperatures go as tenths of a degree.  Equal forecasts encode to equal bytes, so the Data
+ * Layer doesn't send a forecast the watch already has.
+ */
+public class WearForecastCodec {
+    static final int VERSION = 1;
+    // The most days a forecast carries
+    public static final int MAX_DAYS = 7;
+
+    public static byte[] encode(WearForecast forecast) {
+        int count = Math.min(forecast.days.length, MAX_DAYS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + count * 10);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeUTF(forecast.locationSetting);
+            out.writeBoolean(forecast.metric);
+            out.writeByte(count);
+            for (int i = 0; i < count; i++) {
+                WearForecast.Day day = forecast.days[i];
+                out.writeInt(day.julianDay);
+                out.writeShort(day.weatherId);
+                out.writeShort(toTenths(day.high));
+                out.writeShort(toTenths(day.low));
+            }
+            out.flush();
+        } catch (IOException e) {
+            // A ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the bytes are of another version or aren't a forecast
+     */
+    public static WearForecast decode(byte[] encoded) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown forecast version " + version);
+        }
+        String locationSetting = in.readUTF();
+        boolean metric = in.readBoolean();
+        int count = in.readUnsignedByte();
+        if (count > MAX_DAYS) {
+            throw new IOException("Forecast of " + count + " days");
+        }
+        WearForecast.Day[] days = new WearForecast.Day[count];
+        for (int i = 0; i < count; i++) {
+            int julianDay = in.readInt();
+            int weatherId = in.readUnsignedShort();
+            double high = in.readShort() / 10.0;
+            double low = in.readShort() / 10.0;
+            days[i] = new WearForecast.Day(julianDay, weatherId, high, low);
+        }
+        if (in.read() != -1) {
+            throw new IOException("Trailing bytes after the forecast");
+        }
+        return new WearForecast(locationSetting, metric, days);
+    }
+
+    private static int toTenths(double degrees) {
+        long tenths = Math.round(degrees * 10);
+        return (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, tenths));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.sharedassets;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class WearForecastCodecTest {
+    private static final int TODAY = 2457450;
+
+    @Test
+    public void roundTrip() throws Exception {
+        WearForecast forecast = new WearForecast("94043", false, new WearForecast.Day[] {
+                new WearForecast.Day(TODAY, 800, 21.53, 9.96),
+                new WearForecast.Day(TODAY + 1, 500, -3.04, -12.5)
+        });
+
+        WearForecast decoded = WearForecastCodec.decode(WearForecastCodec.encode(forecast));
+
+        assertEquals("94043", decoded.locationSetting);
+        assertFalse(decoded.metric);
+        assertEquals(2, decoded.days.length);
+        assertEquals(TODAY, decoded.days[0].julianDay);
+        assertEquals(800, decoded.days[0].weatherId);
+        // Carried as tenths of a degree
+        assertEquals(21.5, decoded.days[0].high, 1e-9);
+        assertEquals(10.0, decoded.days[0].low, 1e-9);
+        assertEquals(TODAY + 1, decoded.days[1].julianDay);
+        assertEquals(500, decoded.days[1].weatherId);
+        assertEquals(-3.0, decoded.days[1].high, 1e-9);
+        assertEquals(-12.5, decoded.days[1].low, 1e-9);
+    }
+
+    @Test
+    public void equalForecastsEncodeEqually() {
+        assertArrayEquals(WearForecastCodec.encode(buildForecast(7)),
+                WearForecastCodec.encode(buildForecast(7)));
+    }
+
+    @Test
+    public void compact() {
+        byte[] encoded = WearForecastCodec.encode(buildForecast(WearForecastCodec.MAX_DAYS));
+        // A version byte, the location, the units and ten bytes a day
+        assertEquals(1 + 2 + 5 + 1 + 1 + 10 * WearForecastCodec.MAX_DAYS, encoded.length);
+    }
+
+    @Test
+    public void keepsAtMostMaxDays() throws Exception {
+        WearForecast decoded = WearForecastCodec.decode(
+                WearForecastCodec.encode(buildForecast(WearForecastCodec.MAX_DAYS + 7)));
+        assertEquals(WearForecastCodec.MAX_DAYS, decoded.days.length);
+        assertEquals(TODAY, decoded.days[0].julianDay);
+    }
+
+    @Test
+    public void getDay() {
+        WearForecast forecast = buildForecast(3);
+        assertEquals(TODAY + 2, forecast.getDay(TODAY + 2).julianDay);
+        assertNull(forecast.getDay(TODAY + 3));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherVersion() throws Exception {
+        byte[] encoded = WearForecastCodec.encode(buildForecast(1));
+        encoded[0] = (byte) (WearForecastCodec.VERSION + 1);
+        WearForecastCodec.decode(encoded);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncated() throws Exception {
+        byte[] encoded = WearForecastCodec.encode(buildForecast(3));
+        WearForecastCodec.decode(Arrays.copyOf(encoded, encoded.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTrailingBytes() throws Exception {
+        byte[] encoded = WearForecastCodec.encode(buildForecast(3));
+        WearForecastCodec.decode(Arrays.copyOf(encoded, encoded.length + 1));
+    }
+
+    private static WearForecast buildForecast(int dayCount) {
+        WearForecast.Day[] days = new WearForecast.Day[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            days[i] = new WearForecast.Day(TODAY + i, 800 + i % 5, 20 + i, 10 - i);
+        }
+        return new WearForecast("94043", true, days);
+    }
+}